@@ -59,18 +59,11 @@
     public *;
 }
 
-# SimpleXML
--dontwarn com.bea.xml.stream.**
--dontwarn org.simpleframework.xml.stream.**
--keep class org.simpleframework.xml.**{ *; }
--keepclassmembers,allowobfuscation class * {
-    @org.simpleframework.xml.* <fields>;
-    @org.simpleframework.xml.* <init>(...);
-}
-
 # Some models that need to be reflective
 -keep class io.sweers.catchup.data.github.**{ *; }
 -keep class io.sweers.catchup.data.hackernews.model.**{ *; }
+# RedditObjectFactory reads the kinds off these constants' @Json names.
+-keepclassmembers enum io.sweers.catchup.data.reddit.model.RedditType { <fields>; }
 
 # Okio
 -dontwarn okio.**
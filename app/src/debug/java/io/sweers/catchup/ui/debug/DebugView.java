@@ -48,12 +48,18 @@ import io.sweers.catchup.P;
 import io.sweers.catchup.R;
 import io.sweers.catchup.app.ApplicationComponent;
 import io.sweers.catchup.app.CatchUpApplication;
+import io.sweers.catchup.data.AdaptiveTimeouts;
+import io.sweers.catchup.data.CachingDns;
+import io.sweers.catchup.data.CircuitBreaker;
+import io.sweers.catchup.data.CoalescingInterceptor;
 import io.sweers.catchup.data.LumberYard;
+import io.sweers.catchup.data.RequestHedger;
 import io.sweers.catchup.injection.scopes.PerView;
 import io.sweers.catchup.ui.logs.LogsDialog;
 import io.sweers.catchup.util.Strings;
 import java.lang.reflect.Method;
 import java.util.Locale;
+import java.util.Set;
 import javax.inject.Inject;
 import okhttp3.Cache;
 import okhttp3.OkHttpClient;
@@ -97,7 +103,17 @@ public final class DebugView extends FrameLayout {
   @BindView(R.id.debug_okhttp_cache_request_count) TextView okHttpCacheRequestCountView;
   @BindView(R.id.debug_okhttp_cache_network_count) TextView okHttpCacheNetworkCountView;
   @BindView(R.id.debug_okhttp_cache_hit_count) TextView okHttpCacheHitCountView;
+  @BindView(R.id.debug_okhttp_coalesced_count) TextView okHttpCoalescedCountView;
+  @BindView(R.id.debug_circuit_breakers) TextView circuitBreakersView;
+  @BindView(R.id.debug_timeouts) TextView timeoutsView;
+  @BindView(R.id.debug_hedged_count) TextView hedgedCountView;
+  @BindView(R.id.debug_dns) TextView dnsView;
   @Inject Lazy<OkHttpClient> client;
+  @Inject CoalescingInterceptor coalescingInterceptor;
+  @Inject Set<CircuitBreaker> circuitBreakers;
+  @Inject AdaptiveTimeouts adaptiveTimeouts;
+  @Inject RequestHedger requestHedger;
+  @Inject CachingDns dns;
   @Inject LumberYard lumberYard;
   @Inject Application app;
   boolean isMockMode = P.debugMockModeEnabled.get();
@@ -338,6 +354,65 @@ public final class DebugView extends FrameLayout {
     okHttpCacheRequestCountView.setText(String.valueOf(cache.requestCount()));
     okHttpCacheNetworkCountView.setText(String.valueOf(cache.networkCount()));
     okHttpCacheHitCountView.setText(String.valueOf(cache.hitCount()));
+    okHttpCoalescedCountView.setText(coalescingInterceptor.coalescedCount()
+        + " / "
+        + coalescingInterceptor.requestCount());
+    StringBuilder circuits = new StringBuilder();
+    for (CircuitBreaker breaker : circuitBreakers) {
+      if (circuits.length() > 0) {
+        circuits.append('\n');
+      }
+      circuits.append(breaker.name())
+          .append(": ")
+          .append(breaker.state());
+      if (breaker.consecutiveFailures() > 0) {
+        circuits.append(" (")
+            .append(breaker.consecutiveFailures())
+            .append(" failed");
+        long retryInMs = breaker.retryInMs();
+        if (retryInMs > 0) {
+          circuits.append(", retry in ")
+              .append(MILLISECONDS.toSeconds(retryInMs))
+              .append("s");
+        }
+        circuits.append(")");
+      }
+    }
+    circuitBreakersView.setText(circuits);
+    StringBuilder timeouts = new StringBuilder();
+    for (String host : adaptiveTimeouts.hosts()) {
+      if (timeouts.length() > 0) {
+        timeouts.append('\n');
+      }
+      timeouts.append(host)
+          .append(": p99 ")
+          .append(adaptiveTimeouts.percentileMs(host, 0.99))
+          .append("ms, ")
+          .append(adaptiveTimeouts.timeoutMs(host))
+          .append("ms (")
+          .append(adaptiveTimeouts.sampleCount(host))
+          .append(")");
+    }
+    timeoutsView.setText(timeouts);
+    hedgedCountView.setText(requestHedger.winCount()
+        + " won / "
+        + requestHedger.hedgeCount()
+        + " / "
+        + requestHedger.callCount());
+    StringBuilder lookups = new StringBuilder().append(dns.hitCount())
+        .append(" hit / ")
+        .append(dns.staleCount())
+        .append(" stale / ")
+        .append(dns.missCount())
+        .append(" miss");
+    for (String host : dns.hosts()) {
+      lookups.append('\n')
+          .append(host)
+          .append(": ")
+          .append(dns.lookupTimeMs(host))
+          .append("ms");
+    }
+    dnsView.setText(lookups);
   }
 
   private void applyAnimationSpeed(int multiplier) {
@@ -20,10 +20,16 @@ import java.io.IOException;
 import java.lang.reflect.Type;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
 
-/** Converts collection types to JSON arrays containing their converted contents. */
+/**
+ * Converts collection types to JSON arrays containing their converted contents.
+ *
+ * <p>Sets are read into an {@link ArraySet}, which is compact but inserts in linear time. Once a
+ * set grows past {@link #MAX_ARRAY_SIZE} elements it is moved to a {@link LinkedHashSet} instead.
+ */
 public abstract class ArrayCollectionJsonAdapter<C extends Collection<T>, T> extends JsonAdapter<C> {
   public static final JsonAdapter.Factory FACTORY = (type, annotations, moshi) -> {
     Class<?> rawType = Types.getRawType(type);
@@ -36,6 +42,9 @@ public abstract class ArrayCollectionJsonAdapter<C extends Collection<T>, T> ext
     return null;
   };
 
+  /** See {@link ArrayMapJsonAdapter#MAX_ARRAY_SIZE}. */
+  static final int MAX_ARRAY_SIZE = ArrayMapJsonAdapter.MAX_ARRAY_SIZE;
+
   private final JsonAdapter<T> elementAdapter;
 
   private ArrayCollectionJsonAdapter(JsonAdapter<T> elementAdapter) {
@@ -53,22 +62,42 @@ public abstract class ArrayCollectionJsonAdapter<C extends Collection<T>, T> ext
   }
 
   static <T> JsonAdapter<Set<T>> newSetAdapter(Type type, Moshi moshi) {
+    return newSetAdapter(type, moshi, MAX_ARRAY_SIZE);
+  }
+
+  static <T> JsonAdapter<Set<T>> newSetAdapter(Type type, Moshi moshi, int maxArraySize) {
     Type elementType = Types.collectionElementType(type, Collection.class);
     JsonAdapter<T> elementAdapter = moshi.adapter(elementType);
     return new ArrayCollectionJsonAdapter<Set<T>, T>(elementAdapter) {
       @Override Set<T> newCollection() {
         return new ArraySet<>();
       }
+
+      @Override Set<T> resize(Set<T> set) {
+        return set.size() == maxArraySize + 1 && set instanceof ArraySet
+            ? new LinkedHashSet<>(set)
+            : set;
+      }
     };
   }
 
   abstract C newCollection();
 
+  /**
+   * Called after each element is added to {@code collection}.
+   *
+   * @return the collection to keep reading into, which may be a new one.
+   */
+  C resize(C collection) {
+    return collection;
+  }
+
   @Override public C fromJson(JsonReader reader) throws IOException {
     C result = newCollection();
     reader.beginArray();
     while (reader.hasNext()) {
       result.add(elementAdapter.fromJson(reader));
+      result = resize(result);
     }
     reader.endArray();
     return result;
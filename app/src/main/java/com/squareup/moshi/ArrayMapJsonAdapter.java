@@ -19,10 +19,14 @@ import android.support.v4.util.ArrayMap;
 
 import java.io.IOException;
 import java.lang.reflect.Type;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 /**
  * Converts maps with string keys to JSON objects.
+ *
+ * <p>Maps are read into an {@link ArrayMap}, which is compact but inserts in linear time. Once a
+ * map grows past {@link #MAX_ARRAY_SIZE} entries it is moved to a {@link LinkedHashMap} instead.
  */
 public final class ArrayMapJsonAdapter<K, V> extends JsonAdapter<Map<K, V>> {
   public static final Factory FACTORY = (type, annotations, moshi) -> {
@@ -33,12 +37,26 @@ public final class ArrayMapJsonAdapter<K, V> extends JsonAdapter<Map<K, V>> {
     return new ArrayMapJsonAdapter<>(moshi, keyAndValue[0], keyAndValue[1]).nullSafe();
   };
 
+  /**
+   * Maps larger than this switch to a hash map. The cut-off is a round number rather than a
+   * measured crossover: it comfortably covers every map the services send (Product Hunt's image
+   * URL maps are the largest), and {@code ArrayMapJsonAdapterTest#hashingWinsForLargeMaps} is an
+   * opt-in benchmark showing that hashing wins well past it.
+   */
+  static final int MAX_ARRAY_SIZE = 32;
+
   private final JsonAdapter<K> keyAdapter;
   private final JsonAdapter<V> valueAdapter;
+  private final int maxArraySize;
 
   public ArrayMapJsonAdapter(Moshi moshi, Type keyType, Type valueType) {
+    this(moshi, keyType, valueType, MAX_ARRAY_SIZE);
+  }
+
+  ArrayMapJsonAdapter(Moshi moshi, Type keyType, Type valueType, int maxArraySize) {
     this.keyAdapter = moshi.adapter(keyType);
     this.valueAdapter = moshi.adapter(valueType);
+    this.maxArraySize = maxArraySize;
   }
 
   @Override public void toJson(JsonWriter writer, Map<K, V> map) throws IOException {
@@ -55,7 +73,8 @@ public final class ArrayMapJsonAdapter<K, V> extends JsonAdapter<Map<K, V>> {
   }
 
   @Override public Map<K, V> fromJson(JsonReader reader) throws IOException {
-    ArrayMap<K, V> result = new ArrayMap<>();
+    Map<K, V> result = new ArrayMap<>();
+    boolean hashed = false;
     reader.beginObject();
     while (reader.hasNext()) {
       reader.promoteNameToValue();
@@ -66,6 +85,10 @@ public final class ArrayMapJsonAdapter<K, V> extends JsonAdapter<Map<K, V>> {
         throw new JsonDataException("Map key '" + name + "' has multiple values at path "
             + reader.getPath());
       }
+      if (!hashed && result.size() > maxArraySize) {
+        result = new LinkedHashMap<>(result);
+        hashed = true;
+      }
     }
     reader.endObject();
     return result;
@@ -18,22 +18,51 @@ package io.sweers.catchup.app;
 
 import android.app.Application;
 import android.content.Context;
+import com.bluelinelabs.conductor.Controller;
 import com.google.firebase.remoteconfig.FirebaseRemoteConfig;
 import dagger.BindsInstance;
 import dagger.Component;
 import dagger.android.AndroidInjectionModule;
+import dagger.android.DispatchingAndroidInjector;
+import io.sweers.catchup.data.AdaptiveTimeouts;
+import io.sweers.catchup.data.CachingDns;
+import io.sweers.catchup.data.CircuitBreaker;
+import io.sweers.catchup.data.CoalescingInterceptor;
 import io.sweers.catchup.data.DataModule;
 import io.sweers.catchup.data.LumberYard;
+import io.sweers.catchup.data.RequestHedger;
 import io.sweers.catchup.data.VariantDataModule;
 import io.sweers.catchup.data.smmry.SmmryModule;
 import io.sweers.catchup.injection.ConductorInjectionModule;
 import io.sweers.catchup.injection.qualifiers.ApplicationContext;
+import io.sweers.catchup.injection.qualifiers.ServiceClient;
+import io.sweers.catchup.injection.scopes.PerApplication;
 import io.sweers.catchup.ui.activity.ActivityModule;
+import io.sweers.catchup.ui.controllers.DesignerNewsController;
+import io.sweers.catchup.ui.controllers.DribbbleController;
+import io.sweers.catchup.ui.controllers.GitHubController;
+import io.sweers.catchup.ui.controllers.HackerNewsController;
+import io.sweers.catchup.ui.controllers.MediumController;
+import io.sweers.catchup.ui.controllers.ProductHuntController;
+import io.sweers.catchup.ui.controllers.RedditController;
+import io.sweers.catchup.ui.controllers.SlashdotController;
+import java.util.Set;
 import okhttp3.OkHttpClient;
 
+@PerApplication
 @Component(modules = {
     ActivityModule.class, AndroidInjectionModule.class, ApplicationModule.class,
-    ConductorInjectionModule.class, DataModule.class, SmmryModule.class, VariantDataModule.class
+    ConductorInjectionModule.class, DataModule.class, SmmryModule.class, VariantDataModule.class,
+    // Service modules live here rather than in ActivityComponent so their network stacks are
+    // application scoped.
+    HackerNewsController.Module.class,
+    RedditController.Module.class,
+    MediumController.Module.class,
+    ProductHuntController.Module.class,
+    SlashdotController.Module.class,
+    DesignerNewsController.Module.class,
+    DribbbleController.Module.class,
+    GitHubController.Module.class
 })
 public interface ApplicationComponent {
 
@@ -45,6 +74,20 @@ public interface ApplicationComponent {
 
   OkHttpClient okHttpClient();
 
+  @ServiceClient Set<OkHttpClient> serviceClients();
+
+  CoalescingInterceptor coalescingInterceptor();
+
+  Set<CircuitBreaker> circuitBreakers();
+
+  AdaptiveTimeouts adaptiveTimeouts();
+
+  RequestHedger requestHedger();
+
+  CachingDns cachingDns();
+
+  DispatchingAndroidInjector<Controller> controllerInjector();
+
   @ApplicationContext Context applicationContext();
 
   FirebaseRemoteConfig remoteConfig();
@@ -18,8 +18,13 @@ package io.sweers.catchup.app;
 
 import android.app.Activity;
 import android.app.Application;
+import android.content.BroadcastReceiver;
 import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
 import android.content.SharedPreferences;
+import android.net.ConnectivityManager;
 import android.support.v7.app.AppCompatDelegate;
 import com.bumptech.glide.Glide;
 import com.google.firebase.remoteconfig.FirebaseRemoteConfig;
@@ -30,10 +35,18 @@ import dagger.android.DispatchingAndroidInjector;
 import dagger.android.HasActivityInjector;
 import io.sweers.catchup.P;
 import io.sweers.catchup.R;
+import io.sweers.catchup.data.CachingDns;
 import io.sweers.catchup.data.LumberYard;
+import io.sweers.catchup.data.smmry.SmmryService;
+import io.sweers.catchup.ui.controllers.PagerController;
+import java.util.ArrayList;
+import java.util.List;
 import javax.inject.Inject;
+import okhttp3.HttpUrl;
 import timber.log.Timber;
 
+import static io.sweers.catchup.data.RemoteConfigKeys.SMMRY_ENABLED;
+
 public class CatchUpApplication extends Application implements HasActivityInjector {
 
   protected static RefWatcher refWatcher;
@@ -42,6 +55,7 @@ public class CatchUpApplication extends Application implements HasActivityInject
   @Inject protected SharedPreferences sharedPreferences;
   @Inject protected LumberYard lumberYard;
   @Inject protected FirebaseRemoteConfig remoteConfig;
+  @Inject protected CachingDns dns;
 
   public static ApplicationComponent component() {
     return component;
@@ -74,6 +88,23 @@ public class CatchUpApplication extends Application implements HasActivityInject
     }
     AppCompatDelegate.setDefaultNightMode(nightMode);
     initVariant();
+    // Resolve every service's host ahead of its first request. Hacker News goes through Firebase
+    // rather than OkHttp, but still benefits from the system resolver having seen it.
+    List<String> hosts = new ArrayList<>(PagerController.PAGE_HOSTS);
+    if (remoteConfig.getBoolean(SMMRY_ENABLED)) {
+      hosts.add(HttpUrl.parse(SmmryService.ENDPOINT)
+          .host());
+    }
+    dns.prefetch(hosts);
+    registerReceiver(new BroadcastReceiver() {
+      @Override public void onReceive(Context context, Intent intent) {
+        if (!isInitialStickyBroadcast()) {
+          // Addresses resolved on the last network may not be reachable from this one.
+          dns.evictAll();
+          dns.prefetch(hosts);
+        }
+      }
+    }, new IntentFilter(ConnectivityManager.CONNECTIVITY_ACTION));
     remoteConfig.fetch(getResources().getInteger(R.integer.remote_config_cache_duration))
         .addOnCompleteListener(task -> {
           if (task.isSuccessful()) {
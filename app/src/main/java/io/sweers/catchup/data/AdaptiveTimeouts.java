@@ -0,0 +1,215 @@
+/*
+ * Copyright (c) 2017 Zac Sweers
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.sweers.catchup.data;
+
+import android.content.SharedPreferences;
+import android.support.annotation.Nullable;
+import android.support.v4.util.ArrayMap;
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import okhttp3.Connection;
+import okhttp3.Interceptor;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * A network {@link Interceptor} that tracks how long each host takes to respond and tightens the
+ * read timeout to match, so a stalled call fails in a few seconds rather than sitting out the
+ * client's 30.
+ *
+ * <p>Time to response headers is recorded per host into a {@link LatencyHistogram}. Once a host
+ * has {@code minSamples}, its timeout is its p99 times {@code multiplier}, clamped between a floor
+ * and the client's own read timeout. Calls that time out are recorded too, so a timeout that's too
+ * tight for the current network loosens itself.
+ *
+ * <p>OkHttp only takes timeouts per client, so the timeout is applied to the socket of HTTP/1.x
+ * connections for the duration of the call. HTTP/2 connections multiplex calls over one socket
+ * and are only measured.
+ *
+ * <p>Histograms are persisted to the given {@link SharedPreferences}, so they carry over between
+ * launches.
+ */
+public final class AdaptiveTimeouts implements Interceptor {
+
+  private static final int MIN_SAMPLES = 20;
+  private static final int MAX_SAMPLES = 1000;
+  private static final int SAVE_INTERVAL = 10;
+  private static final double PERCENTILE = 0.99;
+  private static final int MULTIPLIER = 3;
+  private static final long FLOOR_MS = TimeUnit.SECONDS.toMillis(3);
+
+  @Nullable private final SharedPreferences preferences;
+  private final long floorMs;
+  private final long ceilingMs;
+  private final int minSamples;
+  private final Map<String, LatencyHistogram> histograms = new ArrayMap<>();
+  private final Map<String, Integer> unsaved = new ArrayMap<>();
+  private boolean loaded;
+
+  /**
+   * @param preferences where histograms are kept between launches. This should be a dedicated
+   * file, as every key in it is read as a host.
+   * @param ceilingMs the client's read timeout, which is never exceeded.
+   */
+  public AdaptiveTimeouts(SharedPreferences preferences, long ceilingMs) {
+    this(preferences, FLOOR_MS, ceilingMs, MIN_SAMPLES);
+  }
+
+  AdaptiveTimeouts(@Nullable SharedPreferences preferences,
+      long floorMs,
+      long ceilingMs,
+      int minSamples) {
+    this.preferences = preferences;
+    this.floorMs = floorMs;
+    this.ceilingMs = ceilingMs;
+    this.minSamples = minSamples;
+  }
+
+  @Override public Response intercept(Chain chain) throws IOException {
+    Request request = chain.request();
+    String host = request.url()
+        .host();
+    Connection connection = chain.connection();
+    if (connection != null) {
+      Protocol protocol = connection.protocol();
+      if (protocol == Protocol.HTTP_1_1 || protocol == Protocol.HTTP_1_0) {
+        long timeoutMs = timeoutMs(host);
+        if (timeoutMs < ceilingMs) {
+          // Reset to the client's timeout when the connection's next stream is opened.
+          connection.socket()
+              .setSoTimeout((int) timeoutMs);
+        }
+      }
+    }
+    long start = System.nanoTime();
+    Response response;
+    try {
+      response = chain.proceed(request);
+    } catch (SocketTimeoutException e) {
+      recordUnlessCanceled(request, start);
+      throw e;
+    }
+    recordUnlessCanceled(request, start);
+    return response;
+  }
+
+  /**
+   * Records a call started at {@code startNs}, unless it was canceled, such as a hedge that lost.
+   * Its timing then says more about the call that beat it than about the host.
+   */
+  private void recordUnlessCanceled(Request request, long startNs) {
+    if (!CallTag.isCanceled(request)) {
+      record(request.url()
+          .host(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNs));
+    }
+  }
+
+  /**
+   * @return the read timeout calls to {@code host} get.
+   */
+  public synchronized long timeoutMs(String host) {
+    LatencyHistogram histogram = histogram(host);
+    if (histogram.count() < minSamples) {
+      return ceilingMs;
+    }
+    long percentileMs = histogram.percentileMs(PERCENTILE);
+    if (percentileMs > ceilingMs / MULTIPLIER) {
+      return ceilingMs;
+    }
+    return Math.max(floorMs, percentileMs * MULTIPLIER);
+  }
+
+  /**
+   * @param percentile in the range (0, 1].
+   * @return the observed latency of {@code host} at {@code percentile}, or -1 if it hasn't been
+   * seen.
+   */
+  public synchronized long percentileMs(String host, double percentile) {
+    return histogram(host).percentileMs(percentile);
+  }
+
+  public synchronized int sampleCount(String host) {
+    return histogram(host).count();
+  }
+
+  /**
+   * @return every host with recorded latencies, sorted.
+   */
+  public synchronized List<String> hosts() {
+    load();
+    List<String> hosts = new ArrayList<>(histograms.size());
+    for (Map.Entry<String, LatencyHistogram> entry : histograms.entrySet()) {
+      if (entry.getValue()
+          .count() > 0) {
+        hosts.add(entry.getKey());
+      }
+    }
+    Collections.sort(hosts);
+    return hosts;
+  }
+
+  synchronized void record(String host, long latencyMs) {
+    LatencyHistogram histogram = histogram(host);
+    histogram.record(latencyMs);
+    if (preferences == null) {
+      return;
+    }
+    Integer pending = unsaved.get(host);
+    int count = pending == null ? 1 : pending + 1;
+    if (count < SAVE_INTERVAL) {
+      unsaved.put(host, count);
+    } else {
+      unsaved.remove(host);
+      preferences.edit()
+          .putString(host, histogram.encode())
+          .apply();
+    }
+  }
+
+  private LatencyHistogram histogram(String host) {
+    load();
+    LatencyHistogram histogram = histograms.get(host);
+    if (histogram == null) {
+      histogram = new LatencyHistogram(MAX_SAMPLES);
+      histograms.put(host, histogram);
+    }
+    return histogram;
+  }
+
+  private void load() {
+    if (loaded) {
+      return;
+    }
+    loaded = true;
+    if (preferences == null) {
+      return;
+    }
+    for (Map.Entry<String, ?> entry : preferences.getAll()
+        .entrySet()) {
+      if (entry.getValue() instanceof String) {
+        histograms.put(entry.getKey(),
+            LatencyHistogram.decode((String) entry.getValue(), MAX_SAMPLES));
+      }
+    }
+  }
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright (c) 2017 Zac Sweers
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.sweers.catchup.data;
+
+import com.google.auto.value.AutoValue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * How long a service's responses may be served from the HTTP cache. See
+ * {@link StaleWhileRevalidate}.
+ */
+@AutoValue
+public abstract class CachePolicy {
+
+  /**
+   * @param maxAge how long a response is served from the cache as-is.
+   * @param staleWhileRevalidate how long past {@code maxAge} a response may still be served from
+   * the cache while it's revalidated in the background.
+   * @param unit the unit of both durations.
+   */
+  public static CachePolicy create(long maxAge, long staleWhileRevalidate, TimeUnit unit) {
+    return new AutoValue_CachePolicy(unit.toSeconds(maxAge), unit.toSeconds(staleWhileRevalidate));
+  }
+
+  public abstract long maxAgeSeconds();
+
+  public abstract long staleWhileRevalidateSeconds();
+}
@@ -0,0 +1,229 @@
+/*
+ * Copyright (c) 2017 Zac Sweers
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.sweers.catchup.data;
+
+import android.support.annotation.Nullable;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import okhttp3.Dns;
+import org.threeten.bp.Clock;
+
+/**
+ * A {@link Dns} that keeps lookups in memory, so that the first call to each service doesn't
+ * start with a blocking lookup.
+ *
+ * <p>Hosts passed to {@link #prefetch(Collection)} are resolved in parallel ahead of time.
+ * Lookups are fresh for {@code ttlMs}. After that they're still served for up to {@code maxStaleMs}
+ * while a refresh runs in the background, and are also what's served if that refresh fails.
+ * Concurrent lookups of the same host share one resolution. {@link #evictAll()} drops everything
+ * when the network changes, since addresses resolved on the old one may not apply.
+ */
+public final class CachingDns implements Dns {
+
+  private static final long TTL_MS = TimeUnit.MINUTES.toMillis(5);
+  private static final long MAX_STALE_MS = TimeUnit.HOURS.toMillis(1);
+
+  private final Dns delegate;
+  private final Executor executor;
+  private final long ttlMs;
+  private final long maxStaleMs;
+  private final Clock clock;
+  private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<>();
+  private final ConcurrentMap<String, Lookup> inFlight = new ConcurrentHashMap<>();
+  private final ConcurrentMap<String, Long> lookupTimesMs = new ConcurrentHashMap<>();
+  /** Bumped by {@link #evictAll()}, so that lookups started before it aren't cached. */
+  private final AtomicInteger generation = new AtomicInteger();
+  private final AtomicLong hitCount = new AtomicLong();
+  private final AtomicLong staleCount = new AtomicLong();
+  private final AtomicLong missCount = new AtomicLong();
+
+  /**
+   * @param delegate does the actual lookups.
+   * @param executor runs prefetches and background refreshes.
+   */
+  public CachingDns(Dns delegate, Executor executor) {
+    this(delegate, executor, TTL_MS, MAX_STALE_MS, Clock.systemUTC());
+  }
+
+  CachingDns(Dns delegate, Executor executor, long ttlMs, long maxStaleMs, Clock clock) {
+    this.delegate = delegate;
+    this.executor = executor;
+    this.ttlMs = ttlMs;
+    this.maxStaleMs = maxStaleMs;
+    this.clock = clock;
+  }
+
+  @Override public List<InetAddress> lookup(String hostname) throws UnknownHostException {
+    Entry entry = entries.get(hostname);
+    if (entry != null) {
+      long ageMs = clock.millis() - entry.resolvedAtMs;
+      if (ageMs < ttlMs) {
+        hitCount.incrementAndGet();
+        return entry.addresses;
+      }
+      if (ageMs < ttlMs + maxStaleMs) {
+        staleCount.incrementAndGet();
+        refresh(hostname);
+        return entry.addresses;
+      }
+    }
+    missCount.incrementAndGet();
+    Lookup lookup = new Lookup(hostname);
+    Lookup existing = inFlight.putIfAbsent(hostname, lookup);
+    if (existing == null) {
+      lookup.run();
+    } else {
+      // Most likely a prefetch that hasn't landed yet.
+      lookup = existing;
+    }
+    return lookup.await();
+  }
+
+  /**
+   * Resolves each of {@code hostnames} in the background, in parallel.
+   */
+  public void prefetch(Collection<String> hostnames) {
+    for (String hostname : hostnames) {
+      refresh(hostname);
+    }
+  }
+
+  /**
+   * Drops every cached lookup. Lookups already running still answer whoever is waiting on them,
+   * but aren't cached.
+   */
+  public void evictAll() {
+    generation.incrementAndGet();
+    inFlight.clear();
+    entries.clear();
+  }
+
+  /**
+   * @return the cached hosts, sorted.
+   */
+  public List<String> hosts() {
+    List<String> hosts = new ArrayList<>(entries.keySet());
+    Collections.sort(hosts);
+    return hosts;
+  }
+
+  /**
+   * @return how long the last lookup of {@code hostname} took, or -1 if it hasn't been looked up.
+   */
+  public long lookupTimeMs(String hostname) {
+    Long timeMs = lookupTimesMs.get(hostname);
+    return timeMs == null ? -1 : timeMs;
+  }
+
+  /**
+   * @return how many lookups were answered from a fresh entry.
+   */
+  public long hitCount() {
+    return hitCount.get();
+  }
+
+  /**
+   * @return how many lookups were answered from a stale entry while it refreshed.
+   */
+  public long staleCount() {
+    return staleCount.get();
+  }
+
+  /**
+   * @return how many lookups had to wait on a resolution.
+   */
+  public long missCount() {
+    return missCount.get();
+  }
+
+  private void refresh(String hostname) {
+    Lookup lookup = new Lookup(hostname);
+    if (inFlight.putIfAbsent(hostname, lookup) == null) {
+      executor.execute(lookup);
+    }
+  }
+
+  private static final class Entry {
+    final List<InetAddress> addresses;
+    final long resolvedAtMs;
+
+    Entry(List<InetAddress> addresses, long resolvedAtMs) {
+      this.addresses = addresses;
+      this.resolvedAtMs = resolvedAtMs;
+    }
+  }
+
+  /** A single resolution of a host, which anyone looking it up in the meantime waits on. */
+  private final class Lookup extends FutureTask<List<InetAddress>> {
+    private final String hostname;
+
+    Lookup(String hostname) {
+      this(hostname, generation.get());
+    }
+
+    private Lookup(String hostname, int startGeneration) {
+      super(() -> {
+        long start = System.nanoTime();
+        List<InetAddress> addresses = Collections.unmodifiableList(delegate.lookup(hostname));
+        lookupTimesMs.put(hostname, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        if (generation.get() == startGeneration) {
+          entries.put(hostname, new Entry(addresses, clock.millis()));
+        }
+        return addresses;
+      });
+      this.hostname = hostname;
+    }
+
+    @Override protected void done() {
+      inFlight.remove(hostname, this);
+    }
+
+    List<InetAddress> await() throws UnknownHostException {
+      try {
+        return get();
+      } catch (InterruptedException e) {
+        Thread.currentThread()
+            .interrupt();
+        throw unknownHost(e);
+      } catch (ExecutionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof UnknownHostException) {
+          throw (UnknownHostException) cause;
+        }
+        throw unknownHost(cause);
+      }
+    }
+
+    private UnknownHostException unknownHost(@Nullable Throwable cause) {
+      UnknownHostException exception = new UnknownHostException(hostname);
+      exception.initCause(cause);
+      return exception;
+    }
+  }
+}
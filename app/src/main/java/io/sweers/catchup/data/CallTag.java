@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2017 Zac Sweers
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.sweers.catchup.data;
+
+import android.support.annotation.Nullable;
+import okhttp3.Request;
+
+/**
+ * Per-call state for interceptors, carried as a request's {@link Request#tag() tag}. OkHttp copies
+ * tags to the requests that interceptors derive from it, so this follows a call all the way down.
+ * Untagged requests are plain calls.
+ */
+final class CallTag {
+
+  /** The {@link StaleWhileRevalidate} session the call was made in, if any. */
+  @Nullable final Object session;
+  /** Whether the call is a {@link RequestHedger hedge} of another. */
+  final boolean hedge;
+  private volatile boolean canceled;
+
+  CallTag(@Nullable Object session, boolean hedge) {
+    this.session = session;
+    this.hedge = hedge;
+  }
+
+  /**
+   * @return the tag of {@code request}, or {@code null} if it's a plain call.
+   */
+  @Nullable static CallTag of(Request request) {
+    Object tag = request.tag();
+    return tag instanceof CallTag ? (CallTag) tag : null;
+  }
+
+  /**
+   * @return {@code true} if {@code request}'s call was {@link #cancel() canceled}, in which case
+   * its failure says nothing about the service.
+   */
+  static boolean isCanceled(Request request) {
+    CallTag tag = of(request);
+    return tag != null && tag.canceled;
+  }
+
+  /**
+   * Marks the call as canceled. This has to happen before OkHttp's cancel, so that interceptors
+   * see it when the call fails.
+   */
+  void cancel() {
+    canceled = true;
+  }
+
+  /**
+   * @return a tag for a hedge of this call.
+   */
+  CallTag forHedge() {
+    return new CallTag(session, true);
+  }
+}
@@ -17,59 +17,96 @@
 package io.sweers.catchup.data;
 
 import android.support.annotation.Nullable;
-import android.support.v4.util.Pair;
 import com.google.auto.value.AutoValue;
+import io.sweers.catchup.ui.base.HasStableId;
+import io.sweers.catchup.util.NumberUtil;
+import io.sweers.catchup.util.Strings;
 import org.threeten.bp.Instant;
 
+/**
+ * Display-ready bind model for a single news item. Service models are mapped to these off the main
+ * thread so that binding a row is nothing more than assigning preformatted values to views.
+ */
 @AutoValue
-public abstract class CatchUpItem {
+public abstract class CatchUpItem implements HasStableId {
+
+  public abstract long id();
 
-  public abstract CharSequence title();
+  public abstract String title();
 
-  @Nullable public abstract Pair<String, Integer> score();
+  /**
+   * @return the preformatted score, such as "+ 1.2k", or {@code null} if it should be hidden.
+   */
+  @Nullable public abstract String score();
 
   public abstract Instant timestamp();
 
   @Nullable public abstract String tag();
 
-  public abstract CharSequence author();
+  @Nullable public abstract String author();
 
-  public abstract CharSequence source();
+  @Nullable public abstract String source();
 
-  public abstract int commentCount();
+  /**
+   * @return the preformatted comment count, or {@code null} if comments should be hidden.
+   */
+  @Nullable public abstract String commentCount();
 
-  public abstract boolean hideComments();
+  @Nullable public abstract String itemClickUrl();
 
-  public abstract String itemClickUrl();
+  @Nullable public abstract String itemCommentClickUrl();
 
-  public abstract String itemCommentClickUrl();
+  @Override public long stableId() {
+    return id();
+  }
 
   public static Builder builder() {
     return new AutoValue_CatchUpItem.Builder();
   }
 
   @AutoValue.Builder
-  public interface Builder {
-    Builder title(CharSequence title);
+  public abstract static class Builder {
+    public abstract Builder id(long id);
+
+    public abstract Builder title(String title);
+
+    public abstract Builder score(@Nullable String score);
+
+    public abstract Builder timestamp(Instant timestamp);
+
+    public abstract Builder tag(@Nullable String tag);
 
-    Builder score(@Nullable Pair<String, Integer> score);
+    public abstract Builder author(@Nullable String author);
 
-    Builder timestamp(Instant timestamp);
+    public abstract Builder source(@Nullable String source);
 
-    Builder tag(@Nullable String tag);
+    public abstract Builder commentCount(@Nullable String commentCount);
 
-    Builder author(CharSequence author);
+    public abstract Builder itemClickUrl(@Nullable String itemClickUrl);
 
-    Builder source(CharSequence source);
+    public abstract Builder itemCommentClickUrl(@Nullable String itemCommentClickUrl);
 
-    Builder commentCount(int commentCount);
+    /**
+     * Formats the score as the {@code prefix} followed by the shortened {@code score}.
+     */
+    public Builder score(String prefix, long score) {
+      return score(prefix + " " + NumberUtil.format(score));
+    }
 
-    Builder hideComments(boolean hideComments);
+    public Builder commentCount(long commentCount) {
+      return commentCount(NumberUtil.format(commentCount));
+    }
 
-    Builder itemClickUrl(String itemClickUrl);
+    @Nullable abstract String tag();
 
-    Builder itemCommentClickUrl(String itemCommentClickUrl);
+    abstract CatchUpItem autoBuild();
 
-    CatchUpItem build();
+    public CatchUpItem build() {
+      String tag = tag();
+      if (tag != null) {
+        tag(Strings.capitalize(tag));
+      }
+      return autoBuild();
+    }
   }
 }
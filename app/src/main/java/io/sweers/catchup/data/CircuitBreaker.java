@@ -0,0 +1,220 @@
+/*
+ * Copyright (c) 2017 Zac Sweers
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.sweers.catchup.data;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import okhttp3.CacheControl;
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.threeten.bp.Clock;
+
+/**
+ * An {@link Interceptor} that stops calling a service that's down rather than have every request
+ * sit out the full timeout.
+ *
+ * <p>After {@code failureThreshold} consecutive failures (I/O errors or 5xx responses from the
+ * network) the circuit opens, and calls fail immediately with an {@link OpenException} until a
+ * backoff passes. The first call after that is let through as a probe while the rest keep failing.
+ * If the probe succeeds the circuit closes again, otherwise it reopens with double the backoff.
+ *
+ * <p>Only the network is gated. While the circuit is open, calls are still answered from the
+ * cache if they can be, and only those that would need the network fail fast.
+ *
+ * <p>Add one per service, ahead of any caching, so that its background revalidations are covered
+ * too. Calls are only told apart from failures when they're canceled if they were made through
+ * {@link RequestHedger#wrap}, as OkHttp doesn't expose that to interceptors.
+ */
+public final class CircuitBreaker implements Interceptor {
+
+  public enum State {
+    /** Calls go through. */
+    CLOSED,
+    /** Calls fail fast until the backoff passes. */
+    OPEN,
+    /** A probe is in flight, and other calls fail fast until it lands. */
+    HALF_OPEN
+  }
+
+  /** Thrown in place of calls that weren't made because the circuit is open. */
+  public static final class OpenException extends IOException {
+    OpenException(String name, long retryInMs) {
+      super(name + " is unavailable, retrying in " + retryInMs + "ms");
+    }
+  }
+
+  private static final int FAILURE_THRESHOLD = 3;
+  private static final long MIN_BACKOFF_MS = TimeUnit.SECONDS.toMillis(5);
+  private static final long MAX_BACKOFF_MS = TimeUnit.MINUTES.toMillis(5);
+
+  private final String name;
+  private final int failureThreshold;
+  private final long minBackoffMs;
+  private final long maxBackoffMs;
+  private final Clock clock;
+
+  private State state = State.CLOSED;
+  private int consecutiveFailures;
+  private long backoffMs;
+  private long openUntilMs;
+
+  /**
+   * @param name the service's name, for errors and debugging.
+   */
+  public CircuitBreaker(String name) {
+    this(name, FAILURE_THRESHOLD, MIN_BACKOFF_MS, MAX_BACKOFF_MS, Clock.systemUTC());
+  }
+
+  CircuitBreaker(String name,
+      int failureThreshold,
+      long minBackoffMs,
+      long maxBackoffMs,
+      Clock clock) {
+    this.name = name;
+    this.failureThreshold = failureThreshold;
+    this.minBackoffMs = minBackoffMs;
+    this.maxBackoffMs = maxBackoffMs;
+    this.clock = clock;
+    this.backoffMs = minBackoffMs;
+  }
+
+  public String name() {
+    return name;
+  }
+
+  public synchronized State state() {
+    return state;
+  }
+
+  public synchronized int consecutiveFailures() {
+    return consecutiveFailures;
+  }
+
+  /**
+   * @return how long until the next probe is let through, or 0 if the circuit isn't open.
+   */
+  public synchronized long retryInMs() {
+    return state == State.OPEN ? Math.max(0, openUntilMs - clock.millis()) : 0;
+  }
+
+  @Override public Response intercept(Chain chain) throws IOException {
+    Request request = chain.request();
+    if (request.cacheControl()
+        .onlyIfCached()) {
+      // Can't reach the network, so there's nothing to protect.
+      return chain.proceed(request);
+    }
+    boolean probe;
+    try {
+      probe = acquire();
+    } catch (OpenException e) {
+      return fromCache(chain, e);
+    }
+    Response response;
+    try {
+      response = chain.proceed(request);
+    } catch (IOException e) {
+      if (CallTag.isCanceled(request)) {
+        abandon(probe);
+      } else {
+        onFailure();
+      }
+      throw e;
+    } catch (RuntimeException e) {
+      abandon(probe);
+      throw e;
+    }
+    if (response.networkResponse() == null) {
+      // Served from the cache, which says nothing about the service.
+      abandon(probe);
+    } else if (response.code() >= 500) {
+      onFailure();
+    } else {
+      onSuccess();
+    }
+    return response;
+  }
+
+  /**
+   * Answers a call that the circuit won't let through with a fresh cached response, or fails it
+   * with {@code e} if there isn't one.
+   */
+  private static Response fromCache(Chain chain, OpenException e) throws IOException {
+    Response cached = chain.proceed(chain.request()
+        .newBuilder()
+        .cacheControl(new CacheControl.Builder().onlyIfCached()
+            .build())
+        .build());
+    if (cached.cacheResponse() == null) {
+      cached.close();
+      throw e;
+    }
+    return cached;
+  }
+
+  /**
+   * @return {@code true} if this call is the probe.
+   * @throws OpenException if the call shouldn't be made.
+   */
+  private synchronized boolean acquire() throws OpenException {
+    switch (state) {
+      case CLOSED:
+        return false;
+      case OPEN:
+        long now = clock.millis();
+        if (now >= openUntilMs) {
+          state = State.HALF_OPEN;
+          return true;
+        }
+        throw new OpenException(name, openUntilMs - now);
+      default:
+        throw new OpenException(name, 0);
+    }
+  }
+
+  private synchronized void onSuccess() {
+    state = State.CLOSED;
+    consecutiveFailures = 0;
+    backoffMs = minBackoffMs;
+  }
+
+  private synchronized void onFailure() {
+    consecutiveFailures++;
+    if (state == State.HALF_OPEN) {
+      backoffMs = Math.min(backoffMs * 2, maxBackoffMs);
+      open();
+    } else if (state == State.CLOSED && consecutiveFailures >= failureThreshold) {
+      open();
+    }
+  }
+
+  /**
+   * Gives up a probe that didn't reach the service, so that the next call can try instead.
+   */
+  private synchronized void abandon(boolean probe) {
+    if (probe && state == State.HALF_OPEN) {
+      state = State.OPEN;
+      openUntilMs = clock.millis();
+    }
+  }
+
+  private void open() {
+    state = State.OPEN;
+    openUntilMs = clock.millis() + backoffMs;
+  }
+}
@@ -0,0 +1,207 @@
+/*
+ * Copyright (c) 2017 Zac Sweers
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.sweers.catchup.data;
+
+import android.support.annotation.Nullable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+/**
+ * An application {@link Interceptor} that joins identical in-flight GET and HEAD requests into a
+ * single network call.
+ *
+ * <p>The first caller for a given method, URL and header set proceeds as normal. Callers that
+ * arrive while it is still in flight wait for it instead, and each gets its own copy of the
+ * buffered response. Responses with no waiting callers are passed through untouched, so
+ * uncontended requests still stream. If the first caller's request fails or is canceled, waiting
+ * callers fall back to making their own. A waiting caller whose own call is canceled through its
+ * {@link CallTag} stops waiting.
+ */
+public final class CoalescingInterceptor implements Interceptor {
+
+  /** How often waiting callers check whether their own call was canceled. */
+  private static final long CANCEL_CHECK_MS = 100;
+
+  private final ConcurrentMap<String, InFlight> inFlight = new ConcurrentHashMap<>();
+  private final AtomicLong requestCount = new AtomicLong();
+  private final AtomicLong coalescedCount = new AtomicLong();
+
+  @Override public Response intercept(Chain chain) throws IOException {
+    Request request = chain.request();
+    String method = request.method();
+    if (!"GET".equals(method) && !"HEAD".equals(method)) {
+      return chain.proceed(request);
+    }
+    if (RequestHedger.isHedge(request)) {
+      // Joining the call it's meant to race would defeat the point.
+      return chain.proceed(request);
+    }
+    requestCount.incrementAndGet();
+    String key = method + ' ' + request.url() + '\n' + request.headers();
+    InFlight call = new InFlight();
+    while (true) {
+      InFlight existing = inFlight.putIfAbsent(key, call);
+      if (existing == null) {
+        return lead(chain, key, call);
+      }
+      if (existing.join()) {
+        Response response = existing.await(request);
+        if (response == null) {
+          // The leader's call failed or was canceled, which isn't necessarily true of ours.
+          return chain.proceed(request);
+        }
+        coalescedCount.incrementAndGet();
+        return response;
+      }
+      // The leader stopped taking followers between our lookup and join. Go again.
+    }
+  }
+
+  /**
+   * @return how many GET and HEAD requests have gone through this interceptor.
+   */
+  public long requestCount() {
+    return requestCount.get();
+  }
+
+  /**
+   * @return how many of {@link #requestCount()} were served by another caller's network call.
+   */
+  public long coalescedCount() {
+    return coalescedCount.get();
+  }
+
+  private Response lead(Chain chain, String key, InFlight call) throws IOException {
+    Response response;
+    try {
+      response = chain.proceed(chain.request());
+    } catch (IOException | RuntimeException e) {
+      inFlight.remove(key, call);
+      call.close();
+      call.fail();
+      throw e;
+    }
+    inFlight.remove(key, call);
+    if (call.close() == 0) {
+      return response;
+    }
+    ResponseBody body = response.body();
+    MediaType contentType = null;
+    byte[] bytes = null;
+    if (body != null) {
+      contentType = body.contentType();
+      try {
+        // Through the source rather than bytes(), whose length check fails once an interceptor
+        // further down has consumed some of the body.
+        bytes = body.source()
+            .readByteArray();
+      } catch (IOException e) {
+        call.fail();
+        throw e;
+      } finally {
+        body.close();
+      }
+    }
+    call.complete(response, contentType, bytes);
+    return InFlight.copy(response, response.request(), contentType, bytes);
+  }
+
+  /** A leader's network call, and the callers waiting on it. */
+  private static final class InFlight {
+    private final CountDownLatch done = new CountDownLatch(1);
+    private int followers;
+    private boolean closed;
+    private Response response;
+    @Nullable private MediaType contentType;
+    @Nullable private byte[] bytes;
+    private boolean failed;
+
+    static Response copy(Response response,
+        Request request,
+        @Nullable MediaType contentType,
+        @Nullable byte[] bytes) {
+      return response.newBuilder()
+          .request(request)
+          .body(bytes == null ? null : ResponseBody.create(contentType, bytes))
+          .build();
+    }
+
+    /**
+     * @return {@code false} if the leader has already stopped taking followers.
+     */
+    synchronized boolean join() {
+      if (closed) {
+        return false;
+      }
+      followers++;
+      return true;
+    }
+
+    /**
+     * Stops taking followers.
+     *
+     * @return the number of followers that joined.
+     */
+    synchronized int close() {
+      closed = true;
+      return followers;
+    }
+
+    void complete(Response response, @Nullable MediaType contentType, @Nullable byte[] bytes) {
+      this.response = response;
+      this.contentType = contentType;
+      this.bytes = bytes;
+      done.countDown();
+    }
+
+    void fail() {
+      failed = true;
+      done.countDown();
+    }
+
+    /**
+     * @return a copy of the leader's response for {@code request}, or {@code null} if it failed.
+     */
+    @Nullable Response await(Request request) throws IOException {
+      try {
+        while (!done.await(CANCEL_CHECK_MS, TimeUnit.MILLISECONDS)) {
+          if (CallTag.isCanceled(request)) {
+            throw new IOException("Canceled");
+          }
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread()
+            .interrupt();
+        throw new InterruptedIOException("Interrupted waiting on a coalesced request");
+      }
+      if (failed) {
+        return null;
+      }
+      return copy(response, request, contentType, bytes);
+    }
+  }
+}
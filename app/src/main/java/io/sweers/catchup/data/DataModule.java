@@ -29,9 +29,12 @@ import io.reactivex.schedulers.Schedulers;
 import io.sweers.catchup.data.adapters.UnescapeJsonAdapter;
 import io.sweers.catchup.injection.qualifiers.ApplicationContext;
 import io.sweers.catchup.injection.qualifiers.NetworkInterceptor;
+import io.sweers.catchup.injection.qualifiers.Synchronous;
+import io.sweers.catchup.injection.scopes.PerApplication;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
 import okhttp3.Cache;
+import okhttp3.Dns;
 import okhttp3.Interceptor;
 import okhttp3.OkHttpClient;
 import retrofit2.adapter.rxjava2.RxJava2CallAdapterFactory;
@@ -42,8 +45,14 @@ public abstract class DataModule {
   private static final Interceptor NOOP_INTERCEPTOR = chain -> chain.proceed(chain.request());
   private static final long HTTP_RESPONSE_CACHE = 10 * 1024 * 1024;
   private static final int HTTP_TIMEOUT_S = 30;
+  private static final int MAX_REQUESTS = 8;
+  private static final int MAX_REQUESTS_PER_HOST = 4;
 
-  @Provides static Cache provideCache(@ApplicationContext Context context) {
+  /**
+   * There must only ever be one of these per cache directory; two {@link Cache} instances would
+   * contend over the same journal.
+   */
+  @Provides @PerApplication static Cache provideCache(@ApplicationContext Context context) {
     // Temporary pending https://github.com/apollographql/apollo-android/pull/421
     //if (Looper.myLooper() == Looper.getMainLooper()) {
     //  throw new IllegalStateException("Cache initialized on main thread.");
@@ -51,7 +60,38 @@ public abstract class DataModule {
     return new Cache(context.getCacheDir(), HTTP_RESPONSE_CACHE);
   }
 
-  @Provides static OkHttpClient provideOkHttpClient(Cache cache,
+  @Provides @PerApplication static CoalescingInterceptor provideCoalescingInterceptor() {
+    return new CoalescingInterceptor();
+  }
+
+  @Provides @PerApplication
+  static AdaptiveTimeouts provideAdaptiveTimeouts(@ApplicationContext Context context) {
+    return new AdaptiveTimeouts(context.getSharedPreferences("latency", Context.MODE_PRIVATE),
+        TimeUnit.SECONDS.toMillis(HTTP_TIMEOUT_S));
+  }
+
+  @Provides @PerApplication
+  static RequestHedger provideRequestHedger(AdaptiveTimeouts adaptiveTimeouts) {
+    return new RequestHedger(adaptiveTimeouts);
+  }
+
+  @Provides @PerApplication static CachingDns provideCachingDns() {
+    return new CachingDns(Dns.SYSTEM, Schedulers.io()::scheduleDirect);
+  }
+
+  @Provides @PerApplication static RequestScheduler provideRequestScheduler() {
+    return new RequestScheduler(MAX_REQUESTS, MAX_REQUESTS_PER_HOST);
+  }
+
+  /**
+   * The root client. Services should derive from this via {@link OkHttpClient#newBuilder()} so
+   * they share its connection pool, dispatcher and cache.
+   */
+  @Provides @PerApplication static OkHttpClient provideOkHttpClient(Cache cache,
+      CachingDns dns,
+      CoalescingInterceptor coalescingInterceptor,
+      RequestScheduler requestScheduler,
+      AdaptiveTimeouts adaptiveTimeouts,
       Set<Interceptor> interceptors,
       @NetworkInterceptor Set<Interceptor> networkInterceptors) {
     // Temporary pending https://github.com/apollographql/apollo-android/pull/421
@@ -63,17 +103,25 @@ public abstract class DataModule {
         new OkHttpClient.Builder().connectTimeout(HTTP_TIMEOUT_S, TimeUnit.SECONDS)
             .readTimeout(HTTP_TIMEOUT_S, TimeUnit.SECONDS)
             .writeTimeout(HTTP_TIMEOUT_S, TimeUnit.SECONDS)
+            .dns(dns)
             .cache(cache);
 
     builder.networkInterceptors()
         .addAll(networkInterceptors);
+    // Last, so that it times the server rather than the other interceptors.
+    builder.addNetworkInterceptor(adaptiveTimeouts);
+    // First, so that it sits outside of every service's own interceptors. Only
+    // StaleWhileRevalidate's cache policy goes ahead of it.
+    builder.addInterceptor(coalescingInterceptor);
+    // Inside the coalescer, so that callers waiting on someone else's call don't take a slot.
+    builder.addInterceptor(requestScheduler);
     builder.interceptors()
         .addAll(interceptors);
 
     return builder.build();
   }
 
-  @Provides static Moshi provideMoshi() {
+  @Provides @PerApplication static Moshi provideMoshi() {
     return new Moshi.Builder().add(AutoValueMoshiAdapterFactory.create())
         .add(UnescapeJsonAdapter.FACTORY)
         .add(ArrayMapJsonAdapter.FACTORY)
@@ -81,10 +129,23 @@ public abstract class DataModule {
         .build();
   }
 
-  @Provides static RxJava2CallAdapterFactory provideRxJavaCallAdapterFactory() {
+  @Provides @PerApplication static ItemStore provideItemStore(@ApplicationContext Context context) {
+    return new ItemStore(context);
+  }
+
+  @Provides @PerApplication static RxJava2CallAdapterFactory provideRxJavaCallAdapterFactory() {
     return RxJava2CallAdapterFactory.createWithScheduler(Schedulers.io());
   }
 
+  /**
+   * For services whose calls go through {@link StaleWhileRevalidate#cacheThenRevalidate}, which
+   * needs them made on the thread it subscribes on.
+   */
+  @Provides @Synchronous @PerApplication
+  static RxJava2CallAdapterFactory provideSynchronousRxJavaCallAdapterFactory() {
+    return RxJava2CallAdapterFactory.create();
+  }
+
   @Provides
   public static SharedPreferences provideSharedPreferences(@ApplicationContext Context context) {
     return context.getSharedPreferences("catchup", Context.MODE_PRIVATE);
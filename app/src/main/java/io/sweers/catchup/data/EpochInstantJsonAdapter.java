@@ -41,13 +41,12 @@ public final class EpochInstantJsonAdapter extends JsonAdapter<Instant> {
     this.timeUnit = timeUnit;
   }
 
-  @Override public synchronized Instant fromJson(JsonReader reader) throws IOException {
+  @Override public Instant fromJson(JsonReader reader) throws IOException {
     long l = reader.nextLong();
     return Instant.ofEpochMilli(TimeUnit.MILLISECONDS.convert(l, timeUnit));
   }
 
-  @Override public synchronized void toJson(JsonWriter writer, Instant value) throws IOException {
-    long longTime = value.toEpochMilli();
-    writer.value(TimeUnit.MILLISECONDS.convert(longTime, timeUnit));
+  @Override public void toJson(JsonWriter writer, Instant value) throws IOException {
+    writer.value(timeUnit.convert(value.toEpochMilli(), TimeUnit.MILLISECONDS));
   }
 }
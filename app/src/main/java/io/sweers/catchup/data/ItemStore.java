@@ -0,0 +1,200 @@
+/*
+ * Copyright (c) 2017 Zac Sweers
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.sweers.catchup.data;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
+import android.support.annotation.Nullable;
+import android.support.annotation.WorkerThread;
+import io.reactivex.Completable;
+import io.reactivex.Maybe;
+import io.reactivex.schedulers.Schedulers;
+import io.sweers.catchup.BuildConfig;
+import java.util.ArrayList;
+import java.util.List;
+import org.threeten.bp.Instant;
+import timber.log.Timber;
+
+/**
+ * On-device store of the last known first page of each service, so tabs can show something before
+ * any network I/O and when there's no network at all. Items are stored as display-ready
+ * {@link CatchUpItem}s keyed by service and stable ID.
+ *
+ * <p>This is a cache, so the database is simply dropped when the app version changes rather than
+ * migrated.
+ */
+public final class ItemStore {
+
+  private static final String DATABASE_NAME = "items.db";
+  private static final String TABLE = "items";
+  private static final String SERVICE = "service";
+  private static final String ID = "id";
+  private static final String POSITION = "position";
+  private static final String TITLE = "title";
+  private static final String SCORE = "score";
+  private static final String TIMESTAMP = "timestamp";
+  private static final String TAG = "tag";
+  private static final String AUTHOR = "author";
+  private static final String SOURCE = "source";
+  private static final String COMMENT_COUNT = "comment_count";
+  private static final String ITEM_CLICK_URL = "item_click_url";
+  private static final String ITEM_COMMENT_CLICK_URL = "item_comment_click_url";
+
+  private static final String CREATE_TABLE = "CREATE TABLE " + TABLE + " ("
+      + SERVICE + " TEXT NOT NULL, "
+      + ID + " INTEGER NOT NULL, "
+      + POSITION + " INTEGER NOT NULL, "
+      + TITLE + " TEXT NOT NULL, "
+      + SCORE + " TEXT, "
+      + TIMESTAMP + " INTEGER NOT NULL, "
+      + TAG + " TEXT, "
+      + AUTHOR + " TEXT, "
+      + SOURCE + " TEXT, "
+      + COMMENT_COUNT + " TEXT, "
+      + ITEM_CLICK_URL + " TEXT, "
+      + ITEM_COMMENT_CLICK_URL + " TEXT, "
+      + "PRIMARY KEY (" + SERVICE + ", " + ID + "))";
+  private static final String INSERT = "INSERT OR IGNORE INTO " + TABLE + " ("
+      + SERVICE + ", " + ID + ", " + POSITION + ", " + TITLE + ", " + SCORE + ", " + TIMESTAMP
+      + ", " + TAG + ", " + AUTHOR + ", " + SOURCE + ", " + COMMENT_COUNT + ", " + ITEM_CLICK_URL
+      + ", " + ITEM_COMMENT_CLICK_URL + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+  private static final String QUERY = "SELECT " + ID + ", " + TITLE + ", " + SCORE + ", "
+      + TIMESTAMP + ", " + TAG + ", " + AUTHOR + ", " + SOURCE + ", " + COMMENT_COUNT + ", "
+      + ITEM_CLICK_URL + ", " + ITEM_COMMENT_CLICK_URL + " FROM " + TABLE + " WHERE " + SERVICE
+      + " = ? ORDER BY " + POSITION;
+
+  private final SQLiteOpenHelper helper;
+
+  public ItemStore(Context context) {
+    helper = new SQLiteOpenHelper(context, DATABASE_NAME, null, BuildConfig.VERSION_CODE) {
+      @Override public void onCreate(SQLiteDatabase db) {
+        db.execSQL(CREATE_TABLE);
+      }
+
+      @Override public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        recreate(db);
+      }
+
+      @Override public void onDowngrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        recreate(db);
+      }
+
+      private void recreate(SQLiteDatabase db) {
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE);
+        onCreate(db);
+      }
+    };
+  }
+
+  /**
+   * Reads the stored items for {@code service} on the IO scheduler, completing empty if there
+   * aren't any.
+   */
+  public Maybe<List<CatchUpItem>> read(String service) {
+    return Maybe.fromCallable(() -> query(service))
+        .filter(items -> !items.isEmpty())
+        .subscribeOn(Schedulers.io());
+  }
+
+  /**
+   * Writes {@code items} for {@code service} in a single transaction. Writes are applied in the
+   * order they're made, off the calling thread.
+   *
+   * @param replace whether {@code items} replace what's stored for {@code service} rather than
+   * follow it. Items whose stable ID is already stored are skipped.
+   */
+  public void write(String service, List<CatchUpItem> items, boolean replace) {
+    Completable.fromAction(() -> insert(service, items, replace))
+        .subscribeOn(Schedulers.single())
+        .subscribe(() -> {}, e -> Timber.e(e, "Failed to store items for %s", service));
+  }
+
+  @WorkerThread private List<CatchUpItem> query(String service) {
+    try (Cursor cursor = helper.getReadableDatabase()
+        .rawQuery(QUERY, new String[] { service })) {
+      List<CatchUpItem> items = new ArrayList<>(cursor.getCount());
+      while (cursor.moveToNext()) {
+        items.add(CatchUpItem.builder()
+            .id(cursor.getLong(0))
+            .title(cursor.getString(1))
+            .score(getNullableString(cursor, 2))
+            .timestamp(Instant.ofEpochMilli(cursor.getLong(3)))
+            .tag(getNullableString(cursor, 4))
+            .author(getNullableString(cursor, 5))
+            .source(getNullableString(cursor, 6))
+            .commentCount(getNullableString(cursor, 7))
+            .itemClickUrl(getNullableString(cursor, 8))
+            .itemCommentClickUrl(getNullableString(cursor, 9))
+            .build());
+      }
+      return items;
+    }
+  }
+
+  @WorkerThread private void insert(String service, List<CatchUpItem> items, boolean replace) {
+    SQLiteDatabase db = helper.getWritableDatabase();
+    db.beginTransaction();
+    try {
+      String[] selectionArgs = { service };
+      long position = 0;
+      if (replace) {
+        db.delete(TABLE, SERVICE + " = ?", selectionArgs);
+      } else {
+        position = DatabaseUtils.queryNumEntries(db, TABLE, SERVICE + " = ?", selectionArgs);
+      }
+      try (SQLiteStatement insert = db.compileStatement(INSERT)) {
+        for (CatchUpItem item : items) {
+          insert.clearBindings();
+          insert.bindString(1, service);
+          insert.bindLong(2, item.id());
+          insert.bindLong(3, position++);
+          insert.bindString(4, item.title());
+          bindNullableString(insert, 5, item.score());
+          insert.bindLong(6, item.timestamp()
+              .toEpochMilli());
+          bindNullableString(insert, 7, item.tag());
+          bindNullableString(insert, 8, item.author());
+          bindNullableString(insert, 9, item.source());
+          bindNullableString(insert, 10, item.commentCount());
+          bindNullableString(insert, 11, item.itemClickUrl());
+          bindNullableString(insert, 12, item.itemCommentClickUrl());
+          insert.executeInsert();
+        }
+      }
+      db.setTransactionSuccessful();
+    } finally {
+      db.endTransaction();
+    }
+  }
+
+  @Nullable private static String getNullableString(Cursor cursor, int index) {
+    return cursor.isNull(index) ? null : cursor.getString(index);
+  }
+
+  private static void bindNullableString(SQLiteStatement statement,
+      int index,
+      @Nullable String value) {
+    if (value == null) {
+      statement.bindNull(index);
+    } else {
+      statement.bindString(index, value);
+    }
+  }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2017 Zac Sweers
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.sweers.catchup.data;
+
+import android.support.annotation.Nullable;
+import java.util.Arrays;
+
+/**
+ * A log-scaled histogram of latencies in milliseconds. Buckets grow by a quarter power of two, so
+ * any percentile read back is within ~19% of the true value while the whole thing stays a few
+ * hundred bytes regardless of how many samples it has seen.
+ *
+ * <p>Once {@code maxCount} samples have been recorded every bucket is halved, so that old samples
+ * fade out and the histogram follows changes in the network. Not thread safe.
+ */
+final class LatencyHistogram {
+
+  /** Upper bound of each bucket, from 1ms to a little over two minutes. */
+  private static final long[] BOUNDS = new long[69];
+
+  static {
+    for (int i = 0; i < BOUNDS.length; i++) {
+      BOUNDS[i] = (long) Math.ceil(Math.pow(2, i / 4d));
+    }
+  }
+
+  private final int[] counts = new int[BOUNDS.length + 1];
+  private final int maxCount;
+  private int count;
+
+  LatencyHistogram(int maxCount) {
+    this.maxCount = maxCount;
+  }
+
+  void record(long latencyMs) {
+    int index = Arrays.binarySearch(BOUNDS, latencyMs);
+    counts[index < 0 ? -index - 1 : index]++;
+    if (++count >= maxCount) {
+      decay();
+    }
+  }
+
+  int count() {
+    return count;
+  }
+
+  /**
+   * @param percentile in the range (0, 1].
+   * @return the upper bound of the bucket holding {@code percentile}, or -1 if nothing's been
+   * recorded. Samples past the last bucket read back as {@link Long#MAX_VALUE}.
+   */
+  long percentileMs(double percentile) {
+    if (count == 0) {
+      return -1;
+    }
+    long rank = (long) Math.ceil(percentile * count);
+    long seen = 0;
+    for (int i = 0; i < BOUNDS.length; i++) {
+      seen += counts[i];
+      if (seen >= rank) {
+        return BOUNDS[i];
+      }
+    }
+    return Long.MAX_VALUE;
+  }
+
+  /**
+   * @return the counts as a comma separated string, for {@link #decode(String, int)}.
+   */
+  String encode() {
+    int last = counts.length - 1;
+    while (last > 0 && counts[last] == 0) {
+      last--;
+    }
+    StringBuilder builder = new StringBuilder(last * 2 + 1);
+    for (int i = 0; i <= last; i++) {
+      if (i > 0) {
+        builder.append(',');
+      }
+      builder.append(counts[i]);
+    }
+    return builder.toString();
+  }
+
+  /**
+   * @return the histogram that {@code encoded} was written from, or an empty one if it can't be
+   * read.
+   */
+  static LatencyHistogram decode(@Nullable String encoded, int maxCount) {
+    LatencyHistogram histogram = new LatencyHistogram(maxCount);
+    if (encoded == null || encoded.isEmpty()) {
+      return histogram;
+    }
+    String[] parts = encoded.split(",");
+    if (parts.length > histogram.counts.length) {
+      return histogram;
+    }
+    try {
+      int count = 0;
+      for (int i = 0; i < parts.length; i++) {
+        int value = Integer.parseInt(parts[i]);
+        if (value < 0) {
+          return new LatencyHistogram(maxCount);
+        }
+        histogram.counts[i] = value;
+        count += value;
+      }
+      histogram.count = count;
+    } catch (NumberFormatException e) {
+      return new LatencyHistogram(maxCount);
+    }
+    while (histogram.count >= maxCount) {
+      histogram.decay();
+    }
+    return histogram;
+  }
+
+  private void decay() {
+    count = 0;
+    for (int i = 0; i < counts.length; i++) {
+      counts[i] >>>= 1;
+      count += counts[i];
+    }
+  }
+}
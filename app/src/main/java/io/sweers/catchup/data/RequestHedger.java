@@ -0,0 +1,314 @@
+/*
+ * Copyright (c) 2017 Zac Sweers
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.sweers.catchup.data;
+
+import android.support.annotation.Nullable;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.schedulers.Schedulers;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.ConnectionPool;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import timber.log.Timber;
+
+/**
+ * Hedges GET requests against a slow connection. If a call has no response headers after the
+ * host's p95 latency (from {@link AdaptiveTimeouts}), a second attempt is started on a connection
+ * of its own. Whichever responds first is returned and the other is canceled. The primary runs on
+ * the calling thread; only hedges go through the dispatcher.
+ *
+ * <p>Losers are canceled through their {@link CallTag}, so that {@link CircuitBreaker} and
+ * {@link AdaptiveTimeouts} don't take them for failures or latency samples.
+ *
+ * <p>Services opt in by making their calls through {@link #wrap(OkHttpClient)}. Until a host has
+ * {@code minSamples} its calls aren't hedged, as there's nothing to base the delay on.
+ */
+public final class RequestHedger {
+
+  private static final int MIN_SAMPLES = 20;
+  private static final double PERCENTILE = 0.95;
+  private static final long MIN_DELAY_MS = 50;
+
+  private final AdaptiveTimeouts timeouts;
+  private final int minSamples;
+  private final long minDelayMs;
+  // Kept apart from the main pool so that hedges never queue behind a stalled HTTP/2 connection.
+  private final ConnectionPool connectionPool = new ConnectionPool();
+  private final AtomicLong callCount = new AtomicLong();
+  private final AtomicLong hedgeCount = new AtomicLong();
+  private final AtomicLong winCount = new AtomicLong();
+
+  public RequestHedger(AdaptiveTimeouts timeouts) {
+    this(timeouts, MIN_SAMPLES, MIN_DELAY_MS);
+  }
+
+  RequestHedger(AdaptiveTimeouts timeouts, int minSamples, long minDelayMs) {
+    this.timeouts = timeouts;
+    this.minSamples = minSamples;
+    this.minDelayMs = minDelayMs;
+  }
+
+  /**
+   * @return a {@link Call.Factory} for {@code client} whose GETs are hedged.
+   */
+  public Call.Factory wrap(OkHttpClient client) {
+    OkHttpClient hedgeClient = client.newBuilder()
+        .connectionPool(connectionPool)
+        .build();
+    return request -> new HedgedCall(client, hedgeClient, request);
+  }
+
+  /**
+   * @return how many calls were eligible for hedging.
+   */
+  public long callCount() {
+    return callCount.get();
+  }
+
+  /**
+   * @return how many of {@link #callCount()} started a hedge.
+   */
+  public long hedgeCount() {
+    return hedgeCount.get();
+  }
+
+  /**
+   * @return how many of {@link #hedgeCount()} were answered by the hedge first.
+   */
+  public long winCount() {
+    return winCount.get();
+  }
+
+  /**
+   * @return how long to wait on {@code host} before hedging, or -1 to not hedge. Never more than
+   * the host's read timeout, which also covers a p95 past the histogram's last bucket.
+   */
+  long delayMs(String host) {
+    if (timeouts.sampleCount(host) < minSamples) {
+      return -1;
+    }
+    long delayMs = Math.min(timeouts.percentileMs(host, PERCENTILE), timeouts.timeoutMs(host));
+    return Math.max(minDelayMs, delayMs);
+  }
+
+  /**
+   * @return {@code true} if {@code request} is a hedge, which mustn't be joined to the call it's
+   * hedging.
+   */
+  static boolean isHedge(Request request) {
+    CallTag tag = CallTag.of(request);
+    return tag != null && tag.hedge;
+  }
+
+  private final class HedgedCall implements Call {
+    private final OkHttpClient client;
+    private final OkHttpClient hedgeClient;
+    private final Call primary;
+    @Nullable private Call hedge;
+    private boolean executed;
+    private boolean canceled;
+    private boolean primaryDone;
+    private boolean hedgeDone;
+    @Nullable private Response winner;
+
+    HedgedCall(OkHttpClient client, OkHttpClient hedgeClient, Request request) {
+      this.client = client;
+      this.hedgeClient = hedgeClient;
+      if (CallTag.of(request) == null) {
+        // Tagged so that a cancel can be told apart from a failure.
+        request = request.newBuilder()
+            .tag(new CallTag(null, false))
+            .build();
+      }
+      this.primary = client.newCall(request);
+    }
+
+    @Override public Request request() {
+      return primary.request();
+    }
+
+    @Override public Response execute() throws IOException {
+      markExecuted();
+      return race();
+    }
+
+    @Override public void enqueue(Callback callback) {
+      markExecuted();
+      client.dispatcher()
+          .executorService()
+          .execute(() -> {
+            Response response;
+            try {
+              response = race();
+            } catch (IOException e) {
+              callback.onFailure(this, e);
+              return;
+            }
+            try {
+              callback.onResponse(this, response);
+            } catch (IOException e) {
+              Timber.w(e, "Callback failure for %s", request().url());
+            }
+          });
+    }
+
+    @Override public synchronized void cancel() {
+      canceled = true;
+      cancel(primary);
+      if (hedge != null) {
+        cancel(hedge);
+      }
+      notifyAll();
+    }
+
+    @Override public synchronized boolean isExecuted() {
+      return executed;
+    }
+
+    @Override public synchronized boolean isCanceled() {
+      return canceled;
+    }
+
+    private void cancel(Call call) {
+      CallTag tag = CallTag.of(call.request());
+      if (tag != null) {
+        tag.cancel();
+      }
+      call.cancel();
+    }
+
+    @SuppressWarnings("CloneDoesntCallSuperClone") @Override public Call clone() {
+      // With a tag of its own, so that canceling one doesn't mark the other.
+      CallTag tag = CallTag.of(request());
+      return new HedgedCall(client, hedgeClient, request().newBuilder()
+          .tag(tag != null ? new CallTag(tag.session, false) : null)
+          .build());
+    }
+
+    private synchronized void markExecuted() {
+      if (executed) {
+        throw new IllegalStateException("Already Executed");
+      }
+      executed = true;
+    }
+
+    /**
+     * Runs the primary on the calling thread, with the hedge enqueued alongside it if the primary
+     * is still going after the delay.
+     */
+    private Response race() throws IOException {
+      long delayMs = "GET".equals(request().method()) ? delayMs(request().url()
+          .host()) : -1;
+      if (delayMs < 0) {
+        return primary.execute();
+      }
+      callCount.incrementAndGet();
+      Disposable timer =
+          Schedulers.computation().scheduleDirect(this::startHedge, delayMs, TimeUnit.MILLISECONDS);
+      Response response;
+      try {
+        response = primary.execute();
+      } catch (IOException e) {
+        timer.dispose();
+        return awaitHedge(e);
+      }
+      timer.dispose();
+      Response hedgeResponse;
+      synchronized (this) {
+        primaryDone = true;
+        if (winner == null && !canceled) {
+          winner = response;
+          if (hedge != null) {
+            cancel(hedge);
+          }
+          return response;
+        }
+        hedgeResponse = winner;
+      }
+      // The hedge got there first, or the call was canceled.
+      response.close();
+      if (hedgeResponse == null) {
+        throw new IOException("Canceled");
+      }
+      return hedgeResponse;
+    }
+
+    private synchronized void startHedge() {
+      if (primaryDone || canceled) {
+        return;
+      }
+      hedgeCount.incrementAndGet();
+      CallTag tag = CallTag.of(request());
+      hedge = hedgeClient.newCall(request().newBuilder()
+          .tag(tag != null ? tag.forHedge() : new CallTag(null, true))
+          .build());
+      hedge.enqueue(new HedgeCallback());
+    }
+
+    /**
+     * Waits for the hedge, if there is one, once the primary has failed with {@code e}. That is
+     * also how the primary ends when the hedge wins, as it's canceled.
+     */
+    private synchronized Response awaitHedge(IOException e) throws IOException {
+      primaryDone = true;
+      try {
+        while (winner == null && hedge != null && !hedgeDone && !canceled) {
+          wait();
+        }
+      } catch (InterruptedException interrupted) {
+        cancel();
+        Thread.currentThread()
+            .interrupt();
+        throw new InterruptedIOException("Interrupted waiting on a hedged request");
+      }
+      if (winner != null) {
+        return winner;
+      }
+      throw e;
+    }
+
+    private final class HedgeCallback implements Callback {
+      @Override public void onResponse(Call call, Response response) {
+        synchronized (HedgedCall.this) {
+          hedgeDone = true;
+          if (winner == null && !canceled) {
+            winner = response;
+            winCount.incrementAndGet();
+            cancel(primary);
+            HedgedCall.this.notifyAll();
+            return;
+          }
+        }
+        // Lost the race.
+        response.close();
+      }
+
+      @Override public void onFailure(Call call, IOException e) {
+        synchronized (HedgedCall.this) {
+          hedgeDone = true;
+          HedgedCall.this.notifyAll();
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,249 @@
+/*
+ * Copyright (c) 2017 Zac Sweers
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.sweers.catchup.data;
+
+import android.support.annotation.Nullable;
+import android.support.v4.util.ArrayMap;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import okhttp3.HttpUrl;
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * An application {@link Interceptor} that decides which calls go out first when there are more of
+ * them than it allows at once. Calls are classed by host into {@link Priority priorities}, based
+ * on which pages were last passed to {@link #prioritize(Collection, Collection)}. A call waits
+ * while its host is at {@code maxRequestsPerHost} or the client is at {@code maxRequests}, and
+ * when a slot frees up it goes to the waiting call with the best priority as of that moment. So
+ * calls already queued for a page are promoted as soon as it's selected.
+ *
+ * <p>Calls other than {@link Priority#VISIBLE} can't take the last {@link #RESERVED_FOR_VISIBLE}
+ * slots, so the page on screen never queues behind prefetching.
+ *
+ * <p>A slot is held until the call's response headers arrive. Calls that can only be answered from
+ * the cache, like {@link StaleWhileRevalidate}'s probes, don't take one.
+ */
+public final class RequestScheduler implements Interceptor {
+
+  public enum Priority {
+    /** The page on screen. */
+    VISIBLE,
+    /** A page one swipe away. */
+    ADJACENT,
+    /** Images from hosts that aren't any page's. */
+    IMAGE,
+    /** Everything else. */
+    PREFETCH
+  }
+
+  static final int RESERVED_FOR_VISIBLE = 2;
+
+  private final int maxRequests;
+  private final int maxRequestsPerHost;
+  private final List<Waiter> waiters = new ArrayList<>();
+  private final Map<String, Integer> inFlightPerHost = new ArrayMap<>();
+  private int inFlight;
+  @Nullable private Set<String> visibleHosts;
+  private Set<String> adjacentHosts = Collections.emptySet();
+
+  /**
+   * @param maxRequests the most calls to run at once, across all hosts.
+   * @param maxRequestsPerHost the most calls to run at once to any one host.
+   */
+  public RequestScheduler(int maxRequests, int maxRequestsPerHost) {
+    if (maxRequests <= RESERVED_FOR_VISIBLE) {
+      throw new IllegalArgumentException("maxRequests must be more than " + RESERVED_FOR_VISIBLE);
+    }
+    if (maxRequestsPerHost <= 0) {
+      throw new IllegalArgumentException("maxRequestsPerHost <= 0: " + maxRequestsPerHost);
+    }
+    this.maxRequests = maxRequests;
+    this.maxRequestsPerHost = maxRequestsPerHost;
+  }
+
+  /**
+   * Sets which hosts the visible and adjacent pages load from, and hands any free slots to the
+   * calls that now come first. Until this is first called, every call is treated as
+   * {@link Priority#VISIBLE}.
+   */
+  public synchronized void prioritize(Collection<String> visibleHosts,
+      Collection<String> adjacentHosts) {
+    this.visibleHosts = new HashSet<>(visibleHosts);
+    this.adjacentHosts = new HashSet<>(adjacentHosts);
+    dispatch();
+  }
+
+  /**
+   * @return the priority {@code request} would be scheduled with right now.
+   */
+  public synchronized Priority priorityOf(Request request) {
+    return priorityOf(request.url());
+  }
+
+  /**
+   * @return how many calls are waiting for a slot.
+   */
+  public synchronized int queuedCount() {
+    return waiters.size();
+  }
+
+  @Override public Response intercept(Chain chain) throws IOException {
+    Request request = chain.request();
+    if (request.cacheControl()
+        .onlyIfCached()) {
+      return chain.proceed(request);
+    }
+    String host = request.url()
+        .host();
+    acquire(request.url(), host);
+    try {
+      return chain.proceed(request);
+    } finally {
+      release(host);
+    }
+  }
+
+  private synchronized void acquire(HttpUrl url, String host) throws InterruptedIOException {
+    if (waiters.isEmpty() && canStart(priorityOf(url), host)) {
+      start(host);
+      return;
+    }
+    Waiter waiter = new Waiter(url, host);
+    waiters.add(waiter);
+    // Whatever's already waiting may be held up by its own host's limit, so this might not be.
+    dispatch();
+    try {
+      while (!waiter.started) {
+        wait();
+      }
+    } catch (InterruptedException e) {
+      if (waiter.started) {
+        // Lost the race with a dispatch, so give the slot to someone else.
+        release(host);
+      } else {
+        waiters.remove(waiter);
+      }
+      Thread.currentThread()
+          .interrupt();
+      throw new InterruptedIOException("Interrupted waiting to be scheduled");
+    }
+  }
+
+  private synchronized void release(String host) {
+    inFlight--;
+    int remaining = inFlightPerHost.get(host) - 1;
+    if (remaining == 0) {
+      inFlightPerHost.remove(host);
+    } else {
+      inFlightPerHost.put(host, remaining);
+    }
+    dispatch();
+  }
+
+  /** Starts as many waiting calls as there are slots for, best priority first. */
+  private void dispatch() {
+    if (waiters.isEmpty()) {
+      return;
+    }
+    boolean started = false;
+    for (Priority priority : Priority.values()) {
+      for (int i = 0; i < waiters.size(); i++) {
+        Waiter waiter = waiters.get(i);
+        // Waiters are in arrival order, so this is first come first served within a priority.
+        if (priorityOf(waiter.url) == priority && canStart(priority, waiter.host)) {
+          waiters.remove(i--);
+          start(waiter.host);
+          waiter.started = true;
+          started = true;
+        }
+      }
+    }
+    if (started) {
+      notifyAll();
+    }
+  }
+
+  private boolean canStart(Priority priority, String host) {
+    int limit = priority == Priority.VISIBLE ? maxRequests : maxRequests - RESERVED_FOR_VISIBLE;
+    if (inFlight >= limit) {
+      return false;
+    }
+    Integer hostCount = inFlightPerHost.get(host);
+    return hostCount == null || hostCount < maxRequestsPerHost;
+  }
+
+  private void start(String host) {
+    inFlight++;
+    Integer hostCount = inFlightPerHost.get(host);
+    inFlightPerHost.put(host, hostCount == null ? 1 : hostCount + 1);
+  }
+
+  private Priority priorityOf(HttpUrl url) {
+    Set<String> visibleHosts = this.visibleHosts;
+    if (visibleHosts == null) {
+      return Priority.VISIBLE;
+    }
+    String host = url.host();
+    if (visibleHosts.contains(host)) {
+      return Priority.VISIBLE;
+    } else if (adjacentHosts.contains(host)) {
+      return Priority.ADJACENT;
+    } else if (isImage(url.encodedPath())) {
+      return Priority.IMAGE;
+    }
+    return Priority.PREFETCH;
+  }
+
+  private static boolean isImage(String path) {
+    int dot = path.lastIndexOf('.');
+    if (dot == -1) {
+      return false;
+    }
+    switch (path.substring(dot + 1)
+        .toLowerCase(Locale.US)) {
+      case "png":
+      case "jpg":
+      case "jpeg":
+      case "gif":
+      case "webp":
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  private static final class Waiter {
+    final HttpUrl url;
+    final String host;
+    boolean started;
+
+    Waiter(HttpUrl url, String host) {
+      this.url = url;
+      this.host = host;
+    }
+  }
+}
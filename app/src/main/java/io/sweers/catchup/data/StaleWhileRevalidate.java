@@ -0,0 +1,254 @@
+/*
+ * Copyright (c) 2017 Zac Sweers
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.sweers.catchup.data;
+
+import android.support.annotation.Nullable;
+import io.reactivex.Observable;
+import io.reactivex.Single;
+import io.reactivex.schedulers.Schedulers;
+import io.reactivex.subjects.SingleSubject;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import okhttp3.CacheControl;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.Interceptor;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import timber.log.Timber;
+
+import static java.net.HttpURLConnection.HTTP_NOT_MODIFIED;
+
+/**
+ * Stale-while-revalidate caching for a service's {@link OkHttpClient}.
+ *
+ * <p>Responses are stored with the {@link CachePolicy#maxAgeSeconds() max age} of the given
+ * {@link CachePolicy}, regardless of what the server sends. GET requests made through
+ * {@link #client()} are served straight from the cache when possible, including responses that
+ * are stale by up to {@link CachePolicy#staleWhileRevalidateSeconds()}. A stale hit also kicks off
+ * a background revalidation that refreshes the cache. This is decided before any of the client's
+ * other interceptors run, so they see the request with its cache policy already applied.
+ *
+ * <p>Wrap a request in {@link #cacheThenRevalidate(Single, boolean)} to get the revalidated result
+ * as a second emission once it lands. Its calls have to be made through
+ * {@link #callFactory(Call.Factory)}, which ties them to the wrapping session, and from the
+ * thread it subscribes on or through {@link #inParallel(Single)}.
+ */
+public final class StaleWhileRevalidate {
+
+  private final CachePolicy policy;
+  private final OkHttpClient revalidationClient;
+  private final OkHttpClient client;
+  private final ThreadLocal<Session> currentSession = new ThreadLocal<>();
+
+  /**
+   * @param client the service's client. This should already have any service interceptors, as
+   * background revalidations go through them too.
+   * @param policy the service's {@link CachePolicy}.
+   */
+  public StaleWhileRevalidate(OkHttpClient client, CachePolicy policy) {
+    this.policy = policy;
+    this.revalidationClient = client.newBuilder()
+        .addNetworkInterceptor(this::applyMaxAge)
+        .build();
+    OkHttpClient.Builder builder = revalidationClient.newBuilder();
+    // Ahead of the shared client's interceptors too, so that a stale hit doesn't wait for a
+    // RequestScheduler slot, and a forced refresh carries its no-cache into the
+    // CoalescingInterceptor's key rather than joining a call that may be served stale.
+    builder.interceptors()
+        .add(0, this::serveStale);
+    this.client = builder.build();
+  }
+
+  /**
+   * @return the client to make service requests with.
+   */
+  public OkHttpClient client() {
+    return client;
+  }
+
+  /**
+   * @return a {@link Call.Factory} that tags calls made from within
+   * {@link #cacheThenRevalidate(Single, boolean)} with their session, before handing them to
+   * {@code delegate}. That should make its calls through {@link #client()}.
+   */
+  public Call.Factory callFactory(Call.Factory delegate) {
+    return request -> {
+      Session session = currentSession.get();
+      if (session != null) {
+        request = request.newBuilder()
+            .tag(new CallTag(session, false))
+            .build();
+      }
+      return delegate.newCall(request);
+    };
+  }
+
+  /**
+   * Emits the result of {@code source}. If any of the requests it made were served stale, this
+   * waits for them to be revalidated and, if any of them changed, subscribes to {@code source}
+   * again to emit the fresh result.
+   *
+   * <p>{@code source} is subscribed to on the IO scheduler, and has to make its calls
+   * synchronously through {@link #callFactory(Call.Factory)} when it is. That is what ties them to
+   * this session, so that {@code forceNetwork} and revalidations only apply to its own calls.
+   *
+   * @param source a request through {@link #client()}, deferred until subscription.
+   * @param forceNetwork whether to skip the cache for this request, such as on a user refresh.
+   */
+  public <T> Observable<T> cacheThenRevalidate(Single<T> source, boolean forceNetwork) {
+    return Observable.defer(() -> {
+      Session session = new Session(forceNetwork);
+      return inSession(source, session).subscribeOn(Schedulers.io())
+          .toObservable()
+          .concatWith(Single.defer(session::anyChanged)
+              .flatMapObservable(changed -> changed
+                  ? source.subscribeOn(Schedulers.io())
+                  .toObservable()
+                  : Observable.empty()));
+    });
+  }
+
+  /**
+   * Subscribes to {@code source} on the IO scheduler, in the session of the thread that subscribes
+   * to the returned single. This is how a {@link #cacheThenRevalidate(Single, boolean) source} can
+   * make several calls in parallel without them leaving its session.
+   */
+  public <T> Single<T> inParallel(Single<T> source) {
+    return Single.defer(() -> {
+      Session session = currentSession.get();
+      return (session != null ? inSession(source, session) : source).subscribeOn(Schedulers.io());
+    });
+  }
+
+  private <T> Single<T> inSession(Single<T> source, Session session) {
+    return Single.wrap(observer -> {
+      currentSession.set(session);
+      try {
+        source.subscribe(observer);
+      } finally {
+        currentSession.remove();
+      }
+    });
+  }
+
+  private Response applyMaxAge(Interceptor.Chain chain) throws IOException {
+    return chain.proceed(chain.request())
+        .newBuilder()
+        .header("Cache-Control", "public, max-age=" + policy.maxAgeSeconds())
+        .build();
+  }
+
+  private Response serveStale(Interceptor.Chain chain) throws IOException {
+    Request request = chain.request();
+    if (!"GET".equals(request.method())) {
+      return chain.proceed(request);
+    }
+    Session session = sessionOf(request);
+    // Only-if-cached requests never go to the network, so aren't forced onto it.
+    if (session != null && session.forceNetwork && !request.cacheControl()
+        .onlyIfCached()) {
+      return chain.proceed(request.newBuilder()
+          .cacheControl(CacheControl.FORCE_NETWORK)
+          .build());
+    }
+    Response cached = chain.proceed(request.newBuilder()
+        .cacheControl(new CacheControl.Builder().onlyIfCached()
+            .maxStale((int) policy.staleWhileRevalidateSeconds(), TimeUnit.SECONDS)
+            .build())
+        .build());
+    if (cached.cacheResponse() == null) {
+      // Not cached or too stale to serve, go to the network as normal.
+      cached.close();
+      return chain.proceed(request);
+    }
+    if (isStale(cached)) {
+      revalidate(request, session);
+    }
+    return cached;
+  }
+
+  @Nullable private static Session sessionOf(Request request) {
+    CallTag tag = CallTag.of(request);
+    return tag != null && tag.session instanceof Session ? (Session) tag.session : null;
+  }
+
+  private void revalidate(Request request, @Nullable Session session) {
+    SingleSubject<Boolean> changed = SingleSubject.create();
+    if (session != null) {
+      session.revalidations.add(changed);
+    }
+    // A max-age of 0 makes the cache send a conditional request if it has validators.
+    revalidationClient.newCall(request.newBuilder()
+        .cacheControl(new CacheControl.Builder().maxAge(0, TimeUnit.SECONDS)
+            .build())
+        .tag(null)
+        .build())
+        .enqueue(new Callback() {
+          @Override public void onFailure(Call call, IOException e) {
+            Timber.d(e, "Revalidating %s failed", call.request().url());
+            changed.onSuccess(false);
+          }
+
+          @Override public void onResponse(Call call, Response response) {
+            try {
+              // The body has to be read in full for the cache to commit it. This goes through the
+              // source, as service interceptors may already have consumed some of it.
+              response.body()
+                  .source()
+                  .readByteString();
+              Response networkResponse = response.networkResponse();
+              changed.onSuccess(networkResponse != null
+                  && networkResponse.code() != HTTP_NOT_MODIFIED
+                  && response.isSuccessful());
+            } catch (IOException e) {
+              onFailure(call, e);
+            } finally {
+              response.close();
+            }
+          }
+        });
+  }
+
+  /**
+   * OkHttp flags cache hits past their max age with a {@code 110} warning.
+   */
+  private static boolean isStale(Response response) {
+    for (String warning : response.headers("Warning")) {
+      if (warning.startsWith("110")) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static final class Session {
+    final boolean forceNetwork;
+    final List<Single<Boolean>> revalidations = new CopyOnWriteArrayList<>();
+
+    Session(boolean forceNetwork) {
+      this.forceNetwork = forceNetwork;
+    }
+
+    Single<Boolean> anyChanged() {
+      return Single.merge(revalidations)
+          .any(changed -> changed);
+    }
+  }
+}
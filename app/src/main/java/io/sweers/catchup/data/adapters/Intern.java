@@ -14,27 +14,21 @@
  * limitations under the License.
  */
 
-package io.sweers.catchup.data.medium.model;
-
-import android.support.annotation.NonNull;
-
-import com.google.auto.value.AutoValue;
-import com.squareup.moshi.JsonAdapter;
-import com.squareup.moshi.Moshi;
-
-import java.util.List;
-
-@AutoValue
-public abstract class BodyModel {
-  public static JsonAdapter<BodyModel> jsonAdapter(@NonNull Moshi moshi) {
-    return new AutoValue_BodyModel.MoshiJsonAdapter(moshi);
-  }
-
-  public abstract boolean isFullContent();
-
-  public abstract List<Paragraph> paragraphs();
-
-  public Paragraph getTitle() {
-    return paragraphs().get(0);
-  }
-}
+package io.sweers.catchup.data.adapters;
+
+import com.squareup.moshi.JsonQualifier;
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a string whose values repeat often enough across items to be worth pooling. See
+ * {@link InternJsonAdapter}.
+ */
+@Documented
+@JsonQualifier
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ ElementType.FIELD, ElementType.METHOD, ElementType.PARAMETER})
+public @interface Intern { }
@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2017 Zac Sweers
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.sweers.catchup.data.adapters;
+
+import android.support.annotation.Nullable;
+import com.squareup.moshi.JsonAdapter;
+import com.squareup.moshi.JsonReader;
+import com.squareup.moshi.JsonWriter;
+import com.squareup.moshi.Types;
+import io.sweers.catchup.util.StringPool;
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+
+import static io.sweers.catchup.data.adapters.Util.findAnnotation;
+
+/**
+ * {@linkplain JsonAdapter} that runs strings denoted via {@link Intern} through a
+ * {@link StringPool}, so repeated values share one instance.
+ */
+public final class InternJsonAdapter extends JsonAdapter<String> {
+
+  /**
+   * @param pool the pool to intern into. Usually one per service, since values rarely repeat
+   * across them.
+   */
+  public static Factory newFactory(StringPool pool) {
+    return (type, annotations, moshi) -> {
+      Annotation annotation = findAnnotation(annotations, Intern.class);
+      if (annotation == null || annotations.size() > 1) {
+        return null;
+      }
+
+      return new InternJsonAdapter(moshi.adapter(type,
+          Types.nextAnnotations(annotations, Intern.class)), pool);
+    };
+  }
+
+  private final JsonAdapter<String> delegate;
+  private final StringPool pool;
+
+  InternJsonAdapter(JsonAdapter<String> delegate, StringPool pool) {
+    this.delegate = delegate;
+    this.pool = pool;
+  }
+
+  @Nullable @Override public String fromJson(JsonReader reader) throws IOException {
+    return pool.intern(delegate.fromJson(reader));
+  }
+
+  @Override public void toJson(JsonWriter writer, String value) throws IOException {
+    delegate.toJson(writer, value);
+  }
+
+  @Override public String toString() {
+    return delegate.toString() + ".interning()";
+  }
+}
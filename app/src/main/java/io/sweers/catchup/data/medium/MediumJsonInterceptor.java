@@ -0,0 +1,47 @@
+/*
+ * Copyright (c) 2017 Zac Sweers
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.sweers.catchup.data.medium;
+
+import java.io.IOException;
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+import okio.BufferedSource;
+
+/**
+ * Asks Medium for JSON and strips the anti-hijacking prefix it puts in front of it.
+ *
+ * <p>The query parameter is set rather than added, as this runs again for background
+ * revalidations of requests it has already seen. Adding it would change the URL, and with it the
+ * cache key that the revalidated response is stored under.
+ */
+public final class MediumJsonInterceptor implements Interceptor {
+
+  @Override public Response intercept(Chain chain) throws IOException {
+    Request request = chain.request();
+    request = request.newBuilder()
+        .url(request.url()
+            .newBuilder()
+            .setQueryParameter("format", "json")
+            .build())
+        .build();
+    Response response = chain.proceed(request);
+    BufferedSource source = response.body()
+        .source();
+    source.skip(source.indexOf((byte) '{'));
+    return response;
+  }
+}
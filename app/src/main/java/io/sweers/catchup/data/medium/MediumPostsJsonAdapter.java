@@ -0,0 +1,195 @@
+/*
+ * Copyright (c) 2017 Zac Sweers
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.sweers.catchup.data.medium;
+
+import android.support.annotation.Nullable;
+import android.support.v4.util.ArrayMap;
+import com.squareup.moshi.JsonAdapter;
+import com.squareup.moshi.JsonReader;
+import com.squareup.moshi.JsonWriter;
+import com.squareup.moshi.Moshi;
+import com.squareup.moshi.Types;
+import io.sweers.catchup.data.medium.model.Collection;
+import io.sweers.catchup.data.medium.model.MediumPost;
+import io.sweers.catchup.data.medium.model.Post;
+import io.sweers.catchup.data.medium.model.User;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads Medium's {@code references} object straight into a list of {@link MediumPost}s, joining
+ * each {@link Post} to its creator and home {@link Collection} as it goes.
+ *
+ * <p>Only users and collections are kept around for the join. Posts are built as soon as the
+ * references they need have been read, and are otherwise held until the end of the object, so the
+ * sections can come in any order. Posts whose creator never shows up are dropped. Fields that the
+ * model classes don't declare are skipped by their adapters without being decoded.
+ */
+public final class MediumPostsJsonAdapter extends JsonAdapter<List<MediumPost>> {
+  private static final Type TYPE = Types.newParameterizedType(List.class, MediumPost.class);
+  private static final JsonReader.Options SECTIONS =
+      JsonReader.Options.of("User", "Collection", "Post");
+
+  public static final Factory FACTORY = (type, annotations, moshi) -> {
+    if (!annotations.isEmpty() || !Types.equals(type, TYPE)) {
+      return null;
+    }
+    return new MediumPostsJsonAdapter(moshi);
+  };
+
+  private final JsonAdapter<User> userAdapter;
+  private final JsonAdapter<Collection> collectionAdapter;
+  private final JsonAdapter<Post> postAdapter;
+
+  MediumPostsJsonAdapter(Moshi moshi) {
+    userAdapter = moshi.adapter(User.class);
+    collectionAdapter = moshi.adapter(Collection.class);
+    postAdapter = moshi.adapter(Post.class);
+  }
+
+  @Override public List<MediumPost> fromJson(JsonReader reader) throws IOException {
+    Map<String, User> users = null;
+    Map<String, Collection> collections = null;
+    List<MediumPost> posts = new ArrayList<>();
+    // Posts that came before the references they need, and the slots in posts they fill.
+    List<Post> pending = new ArrayList<>();
+    List<Integer> pendingIndices = new ArrayList<>();
+    reader.beginObject();
+    while (reader.hasNext()) {
+      switch (reader.selectName(SECTIONS)) {
+        case 0:
+          users = readSection(reader, userAdapter);
+          break;
+        case 1:
+          collections = readSection(reader, collectionAdapter);
+          break;
+        case 2:
+          reader.beginObject();
+          while (reader.hasNext()) {
+            reader.nextName(); // The post's ID, which it has anyway.
+            Post post = postAdapter.fromJson(reader);
+            if (users == null || (collections == null && hasHomeCollection(post))) {
+              pending.add(post);
+              pendingIndices.add(posts.size());
+              posts.add(null);
+            } else {
+              posts.add(join(post, users, collections));
+            }
+          }
+          reader.endObject();
+          break;
+        default:
+          reader.nextName();
+          reader.skipValue();
+      }
+    }
+    reader.endObject();
+
+    for (int i = 0; i < pending.size(); i++) {
+      posts.set(pendingIndices.get(i), join(pending.get(i), users, collections));
+    }
+    // Drop anything we couldn't find a creator for.
+    for (int i = posts.size() - 1; i >= 0; i--) {
+      if (posts.get(i) == null) {
+        posts.remove(i);
+      }
+    }
+    return posts;
+  }
+
+  private static <T> Map<String, T> readSection(JsonReader reader, JsonAdapter<T> adapter)
+      throws IOException {
+    Map<String, T> section = new ArrayMap<>();
+    reader.beginObject();
+    while (reader.hasNext()) {
+      section.put(reader.nextName(), adapter.fromJson(reader));
+    }
+    reader.endObject();
+    return section;
+  }
+
+  private static boolean hasHomeCollection(Post post) {
+    String homeCollectionId = post.homeCollectionId();
+    return homeCollectionId != null && !homeCollectionId.isEmpty();
+  }
+
+  @Nullable private static MediumPost join(Post post,
+      @Nullable Map<String, User> users,
+      @Nullable Map<String, Collection> collections) {
+    User user = users == null ? null : users.get(post.creatorId());
+    if (user == null) {
+      return null;
+    }
+    return MediumPost.builder()
+        .post(post)
+        .user(user)
+        .collection(collections == null || !hasHomeCollection(post)
+            ? null
+            : collections.get(post.homeCollectionId()))
+        .build();
+  }
+
+  /**
+   * Writes {@code value} back out as a {@code references} object. Users and collections shared by
+   * several posts are written once, and come before the posts so they can be joined on reading.
+   */
+  @Override public void toJson(JsonWriter writer, List<MediumPost> value) throws IOException {
+    Map<String, User> users = new LinkedHashMap<>();
+    Map<String, Collection> collections = new LinkedHashMap<>();
+    for (MediumPost post : value) {
+      users.put(post.user()
+          .userId(), post.user());
+      Collection collection = post.collection();
+      if (collection != null) {
+        collections.put(collection.id(), collection);
+      }
+    }
+    writer.beginObject();
+    writer.name("User");
+    writeSection(writer, users, userAdapter);
+    writer.name("Collection");
+    writeSection(writer, collections, collectionAdapter);
+    writer.name("Post");
+    writer.beginObject();
+    for (MediumPost post : value) {
+      writer.name(post.post()
+          .id());
+      postAdapter.toJson(writer, post.post());
+    }
+    writer.endObject();
+    writer.endObject();
+  }
+
+  private static <T> void writeSection(JsonWriter writer,
+      Map<String, T> section,
+      JsonAdapter<T> adapter) throws IOException {
+    writer.beginObject();
+    for (Map.Entry<String, T> entry : section.entrySet()) {
+      writer.name(entry.getKey());
+      adapter.toJson(writer, entry.getValue());
+    }
+    writer.endObject();
+  }
+
+  @Override public String toString() {
+    return "JsonAdapter(MediumPost references)";
+  }
+}
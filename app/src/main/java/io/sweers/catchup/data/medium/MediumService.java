@@ -18,7 +18,9 @@ package io.sweers.catchup.data.medium;
 
 import com.serjltt.moshi.adapters.Wrapped;
 import io.reactivex.Observable;
-import io.sweers.catchup.data.medium.model.References;
+import io.reactivex.Single;
+import io.sweers.catchup.data.medium.model.MediumPost;
+import java.util.List;
 import okhttp3.ResponseBody;
 import retrofit2.http.GET;
 
@@ -27,7 +29,11 @@ public interface MediumService {
   String HOST = "medium.com";
   String ENDPOINT = "https://" + HOST;
 
-  @GET("/browse/top") @Wrapped(path = { "payload", "references" }) Observable<References> top();
+  /**
+   * @return the top posts, joined by {@link MediumPostsJsonAdapter}.
+   */
+  @GET("/browse/top") @Wrapped(path = { "payload", "references" })
+  Single<List<MediumPost>> top();
 
   @GET("/browse/top") Observable<ResponseBody> topRaw();
 }
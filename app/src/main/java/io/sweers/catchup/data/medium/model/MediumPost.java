@@ -24,6 +24,7 @@ import com.squareup.moshi.JsonAdapter;
 import com.squareup.moshi.Moshi;
 
 import io.sweers.catchup.ui.base.HasStableId;
+import io.sweers.catchup.util.Hashing;
 
 @AutoValue
 public abstract class MediumPost implements HasStableId {
@@ -54,7 +55,7 @@ public abstract class MediumPost implements HasStableId {
 
   @Override
   public long stableId() {
-    return post().id().hashCode();
+    return Hashing.hash64(post().id());
   }
 
   @AutoValue.Builder
@@ -17,6 +17,7 @@
 package io.sweers.catchup.data.medium.model;
 
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 
 import com.google.auto.value.AutoValue;
 import com.squareup.moshi.JsonAdapter;
@@ -34,6 +35,8 @@ public abstract class Post {
 
   public abstract String creatorId();
 
+  /** Empty, null or missing for posts that aren't in a publication. */
+  @Nullable
   public abstract String homeCollectionId();
 
   public abstract String id();
@@ -23,13 +23,12 @@ import com.squareup.moshi.JsonAdapter;
 import com.squareup.moshi.Moshi;
 import io.sweers.catchup.ui.base.HasStableId;
 import java.util.List;
-import java.util.Map;
 import okhttp3.HttpUrl;
 import org.threeten.bp.Instant;
-import timber.log.Timber;
 
 /**
- * Models a post on Product Hunt.
+ * Models a post on Product Hunt, trimmed to what the list needs. Makers, screenshots and the
+ * tagline aren't declared, so they're skipped rather than decoded.
  */
 @AutoValue
 public abstract class Post implements HasStableId {
@@ -51,18 +50,12 @@ public abstract class Post implements HasStableId {
 
   public abstract long id();
 
-  public abstract List<User> makers();
-
   public abstract boolean maker_inside();
 
   public abstract String name();
 
   public abstract String redirect_url();
 
-  public abstract Map<String, String> screenshot_url();
-
-  public abstract String tagline();
-
   public abstract List<Topic> topics();
 
   public abstract User user();
@@ -87,25 +80,6 @@ public abstract class Post implements HasStableId {
     return null;
   }
 
-  @Nullable
-  public String getScreenshotUrl(int width) {
-    String url = null;
-    for (String widthStr : screenshot_url().keySet()) {
-      url = screenshot_url().get(widthStr);
-      try {
-        int screenshotWidth = Integer.parseInt(widthStr.substring(0, widthStr.length() -
-            2));
-        if (screenshotWidth > width) {
-          break;
-        }
-      } catch (NumberFormatException nfe) {
-        Timber.e(nfe, "FailedGetScreenshotUrl");
-      }
-    }
-
-    return url;
-  }
-
   @Override
   public long stableId() {
     return id();
@@ -122,18 +96,12 @@ public abstract class Post implements HasStableId {
 
     public abstract Builder id(long id);
 
-    public abstract Builder makers(List<User> makers);
-
     public abstract Builder maker_inside(boolean makerInside);
 
     public abstract Builder name(String name);
 
     public abstract Builder redirect_url(String url);
 
-    public abstract Builder screenshot_url(Map<String, String> url);
-
-    public abstract Builder tagline(String tagline);
-
     public abstract Builder topics(List<Topic> topics);
 
     public abstract Builder user(User user);
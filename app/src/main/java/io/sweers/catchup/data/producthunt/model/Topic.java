@@ -21,6 +21,7 @@ import android.support.annotation.NonNull;
 import com.google.auto.value.AutoValue;
 import com.squareup.moshi.JsonAdapter;
 import com.squareup.moshi.Moshi;
+import io.sweers.catchup.data.adapters.Intern;
 
 @AutoValue
 public abstract class Topic {
@@ -35,7 +36,7 @@ public abstract class Topic {
 
   public abstract long id();
 
-  public abstract String name();
+  @Intern public abstract String name();
 
   public abstract String slug();
 
@@ -24,20 +24,24 @@ import retrofit2.http.GET;
 import retrofit2.http.Path;
 import retrofit2.http.Query;
 
+/**
+ * Reddit's JSON API. Every path has the {@code .json} suffix in the path itself, rather than
+ * added by an interceptor, so that the URL requested is the one responses are cached under.
+ */
 public interface RedditService {
   String HOST = "www.reddit.com";
   String ENDPOINT = "https://" + HOST;
 
-  @GET("/r/{subreddit}/comments/{id}") Single<List<RedditResponse>> comments(
+  @GET("/r/{subreddit}/comments/{id}.json") Single<List<RedditResponse>> comments(
       @Path("subreddit") String subreddit, @Path("id") String id);
 
-  @GET("/") Single<RedditResponse> frontPage(@Query("limit") int limit,
+  @GET("/.json") Single<RedditResponse> frontPage(@Query("limit") int limit,
       @Query("after") @Nullable String after);
 
-  @GET("/r/{subreddit}") Single<RedditResponse> subreddit(@Path("subreddit") String subreddit,
+  @GET("/r/{subreddit}.json") Single<RedditResponse> subreddit(@Path("subreddit") String subreddit,
       @Query("after") String after,
       @Query("limit") int limit);
 
-  @GET("/top") Single<RedditResponse> top(@Query("after") String after,
+  @GET("/top.json") Single<RedditResponse> top(@Query("after") String after,
       @Query("limit") int limit);
 }
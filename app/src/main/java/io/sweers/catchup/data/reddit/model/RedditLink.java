@@ -22,7 +22,12 @@ import com.google.auto.value.AutoValue;
 import com.squareup.moshi.Json;
 import com.squareup.moshi.JsonAdapter;
 import com.squareup.moshi.Moshi;
+import io.sweers.catchup.data.adapters.Intern;
 
+/**
+ * A link submission. Heavy fields the list never shows, like self text and its HTML, are left out
+ * so that the generated adapter skips over them.
+ */
 @AutoValue
 public abstract class RedditLink extends RedditSubmission {
   public static JsonAdapter<RedditLink> jsonAdapter(@NonNull Moshi moshi) {
@@ -31,7 +36,13 @@ public abstract class RedditLink extends RedditSubmission {
 
   public abstract boolean clicked();
 
-  public abstract String domain();
+  @Intern public abstract String domain();
+
+  /**
+   * Redeclared to pool it, since the generated adapter only looks for qualifiers on methods this
+   * class declares itself.
+   */
+  @Intern @Override public abstract String subreddit();
 
   public abstract boolean hidden();
 
@@ -41,16 +52,8 @@ public abstract class RedditLink extends RedditSubmission {
 
   @Json(name = "num_comments") public abstract int commentsCount();
 
-  public abstract String permalink();
-
-  @Nullable public abstract String selftext();
-
-  @Nullable @Json(name = "selftext_html") public abstract String selftextHtml();
-
   public abstract boolean stickied();
 
-  public abstract String thumbnail();
-
   public abstract String title();
 
   public abstract String url();
@@ -17,6 +17,7 @@
 package io.sweers.catchup.data.reddit.model;
 
 import android.support.annotation.Nullable;
+import com.squareup.moshi.Json;
 import com.squareup.moshi.JsonAdapter;
 import com.squareup.moshi.JsonDataException;
 import com.squareup.moshi.JsonReader;
@@ -27,9 +28,18 @@ import java.io.IOException;
 import java.lang.annotation.Annotation;
 import java.lang.ref.WeakReference;
 import java.lang.reflect.Type;
-import java.util.Map;
+import java.util.Locale;
 import java.util.Set;
 
+/**
+ * Decodes {@link RedditObject}s, which Reddit wraps as {@code {"kind": "t3", "data": {...}}}.
+ *
+ * <p>This is a single streaming pass. {@code kind} is matched against the {@link RedditType}
+ * names and {@code data} is handed straight to that type's adapter, which is only looked up once
+ * per type. Reddit always sends {@code kind} first, but if it doesn't then {@code data} is buffered
+ * until it's known. Encoding writes the same envelope, with the kind taken from the value's runtime
+ * type.
+ */
 public final class RedditObjectFactory implements JsonAdapter.Factory {
   private static WeakReference<RedditObjectFactory> instance;
 
@@ -49,29 +59,125 @@ public final class RedditObjectFactory implements JsonAdapter.Factory {
       // Not one of our oddball polymorphic types, ignore it.
       return null;
     }
-    return new JsonAdapter<Object>() {
-      @Override public Object fromJson(JsonReader reader) throws IOException {
-        Object jsonValue = reader.readJsonValue();
-        if (jsonValue instanceof String) {
-          // There are no replies.
-          return jsonValue; // Or null, or something interesting to you.
+    return new RedditObjectJsonAdapter(moshi);
+  }
+
+  private static final class RedditObjectJsonAdapter extends JsonAdapter<Object> {
+    private static final JsonReader.Options NAMES = JsonReader.Options.of("kind", "data");
+    private static final RedditType[] TYPES = RedditType.values();
+    /** The {@code kind} Reddit sends for each type, indexed by ordinal. */
+    private static final String[] KIND_NAMES = kindNames();
+    private static final JsonReader.Options KINDS = JsonReader.Options.of(KIND_NAMES);
+
+    private final Moshi moshi;
+    private final JsonAdapter<?>[] delegates = new JsonAdapter<?>[TYPES.length];
+
+    RedditObjectJsonAdapter(Moshi moshi) {
+      this.moshi = moshi;
+    }
+
+    /** Reads each type's {@link Json} name, the same way Moshi's own enum adapter does. */
+    private static String[] kindNames() {
+      String[] kinds = new String[TYPES.length];
+      for (int i = 0; i < TYPES.length; i++) {
+        try {
+          Json json = RedditType.class.getField(TYPES[i].name())
+              .getAnnotation(Json.class);
+          kinds[i] = json != null ? json.name() : TYPES[i].name();
+        } catch (NoSuchFieldException e) {
+          throw new AssertionError("Missing field in " + RedditType.class.getName(), e);
         }
-        // noinspection unchecked
-        Map<String, Object> value = (Map<String, Object>) jsonValue;
-        RedditType type = RedditType.valueOf(((String) value.get("kind")).toUpperCase());
-        Object redditObject = value.get("data");
-        JsonAdapter<?> adapter = moshi.adapter(type.getDerivedClass());
-        if (adapter == null) {
-          throw new JsonDataException();
-        } else {
-          return adapter.fromJsonValue(redditObject);
+      }
+      return kinds;
+    }
+
+    @Override public Object fromJson(JsonReader reader) throws IOException {
+      if (reader.peek() == JsonReader.Token.STRING) {
+        // There are no replies.
+        return reader.nextString(); // Or null, or something interesting to you.
+      }
+      RedditType type = null;
+      Object result = null;
+      Object bufferedData = null;
+      reader.beginObject();
+      while (reader.hasNext()) {
+        switch (reader.selectName(NAMES)) {
+          case 0:
+            type = readKind(reader);
+            break;
+          case 1:
+            if (type != null) {
+              result = delegate(type).fromJson(reader);
+            } else {
+              bufferedData = reader.readJsonValue();
+            }
+            break;
+          default:
+            reader.nextName();
+            reader.skipValue();
         }
       }
+      reader.endObject();
+      if (type == null) {
+        throw new JsonDataException("Missing kind at " + reader.getPath());
+      }
+      if (bufferedData != null) {
+        result = delegate(type).fromJsonValue(bufferedData);
+      }
+      return result;
+    }
+
+    private static RedditType readKind(JsonReader reader) throws IOException {
+      int index = reader.selectString(KINDS);
+      if (index != -1) {
+        return TYPES[index];
+      }
+      String kind = reader.nextString();
+      try {
+        return RedditType.valueOf(kind.toUpperCase(Locale.US));
+      } catch (IllegalArgumentException e) {
+        throw new JsonDataException("Unknown kind " + kind + " at " + reader.getPath());
+      }
+    }
+
+    private JsonAdapter<?> delegate(RedditType type) {
+      // Racing threads will just both look it up, and Moshi hands back the same adapter anyway.
+      JsonAdapter<?> adapter = delegates[type.ordinal()];
+      if (adapter == null) {
+        adapter = moshi.adapter(type.getDerivedClass());
+        delegates[type.ordinal()] = adapter;
+      }
+      return adapter;
+    }
 
-      @Override public void toJson(JsonWriter writer, Object value) throws IOException {
-        throw new UnsupportedOperationException("TODO");
-        // Check the runtime type of value and delegate.
+    @SuppressWarnings("unchecked") @Override
+    public void toJson(JsonWriter writer, Object value) throws IOException {
+      if (value == null) {
+        writer.nullValue();
+        return;
+      }
+      if (value instanceof String) {
+        // There are no replies.
+        writer.value((String) value);
+        return;
       }
-    };
+      RedditType type = typeOf(value);
+      writer.beginObject();
+      writer.name("kind")
+          .value(KIND_NAMES[type.ordinal()]);
+      writer.name("data");
+      ((JsonAdapter<Object>) delegate(type)).toJson(writer, value);
+      writer.endObject();
+    }
+
+    private static RedditType typeOf(Object value) {
+      for (RedditType type : TYPES) {
+        if (type.getDerivedClass()
+            .isInstance(value)) {
+          return type;
+        }
+      }
+      throw new IllegalArgumentException("Not a RedditObject: " + value.getClass());
+    }
   }
 }
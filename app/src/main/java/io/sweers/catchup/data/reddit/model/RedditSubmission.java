@@ -19,6 +19,7 @@ package io.sweers.catchup.data.reddit.model;
 import android.support.annotation.Nullable;
 import com.squareup.moshi.Json;
 import io.sweers.catchup.ui.base.HasStableId;
+import io.sweers.catchup.util.Hashing;
 import org.threeten.bp.Instant;
 
 public abstract class RedditSubmission extends RedditObject implements HasStableId {
@@ -48,6 +49,6 @@ public abstract class RedditSubmission extends RedditObject implements HasStable
   public abstract int ups();
 
   @Override public long stableId() {
-    return id().hashCode();
+    return Hashing.hash64(id());
   }
 }
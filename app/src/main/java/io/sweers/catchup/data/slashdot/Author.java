@@ -16,15 +16,8 @@
 
 package io.sweers.catchup.data.slashdot;
 
-import android.support.annotation.Keep;
-import org.simpleframework.xml.Element;
-import org.simpleframework.xml.Root;
-
-@Keep
-@Root(strict = false)
 public class Author {
 
-  @Element(name = "name", required = true)
   public String name;
 
 }
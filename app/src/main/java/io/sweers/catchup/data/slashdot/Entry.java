@@ -16,49 +16,31 @@
 
 package io.sweers.catchup.data.slashdot;
 
-import android.support.annotation.Keep;
-import org.simpleframework.xml.Element;
-import org.simpleframework.xml.Namespace;
-import org.simpleframework.xml.NamespaceList;
-import org.simpleframework.xml.Root;
-
 import io.sweers.catchup.ui.base.HasStableId;
+import io.sweers.catchup.util.Hashing;
+import org.threeten.bp.Instant;
 
-@Keep
-@NamespaceList(
-    {
-        @Namespace(reference = "http://purl.org/rss/1.0/modules/slash/", prefix = "slash")
-    }
-)
-@Root(name = "entry", strict = false)
 public class Entry implements HasStableId {
 
-  @Element(name = "title", required = false)
+  /** Already unescaped. */
   public String title;
 
-  @Element(name = "id")
   public String id;
 
-  @Element(name = "link", required = false)
   public String link;
 
-  @Element(name = "updated", required = false)
-  public String updated;
+  public Instant updated;
 
-  @Element(name = "section", required = false)
   public String section;
 
-  @Element(name = "comments", required = false)
   public int comments;
 
-  @Element(name = "author", required = false)
   public Author author;
 
-  @Element(name = "department", required = false)
   public String department;
 
   @Override
   public long stableId() {
-    return id.hashCode();
+    return Hashing.hash64(id);
   }
 }
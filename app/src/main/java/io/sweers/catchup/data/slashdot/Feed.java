@@ -16,31 +16,17 @@
 
 package io.sweers.catchup.data.slashdot;
 
-import android.support.annotation.Keep;
 import java.util.List;
-import org.simpleframework.xml.Element;
-import org.simpleframework.xml.ElementList;
-import org.simpleframework.xml.Namespace;
-import org.simpleframework.xml.NamespaceList;
-import org.simpleframework.xml.Root;
+import org.threeten.bp.Instant;
 
-@Keep
-@NamespaceList({
-                   @Namespace(reference = "http://www.w3.org/2005/Atom",
-                              prefix = "atom")
-               })
-@Root(strict = false)
+/**
+ * The Slashdot Atom feed, as read by {@link SlashdotFeedConverterFactory}.
+ */
 public class Feed {
 
-  @ElementList(name = "item",
-               inline = true) public List<Entry> itemList;
-
-  @Element(name = "title",
-           required = false) public String title;
+  public List<Entry> itemList;
 
-  @Element(name = "language",
-           required = false) public String language;
+  public String title;
 
-  @Element(name = "updated",
-           required = false) public String updated;
+  public Instant updated;
 }
@@ -0,0 +1,242 @@
+/*
+ * Copyright (c) 2017 Zac Sweers
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.sweers.catchup.data.slashdot;
+
+import android.support.annotation.Nullable;
+import io.sweers.catchup.util.Instants;
+import io.sweers.catchup.util.StringPool;
+import io.sweers.catchup.util.Strings;
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+import okhttp3.ResponseBody;
+import org.threeten.bp.format.DateTimeParseException;
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+import org.xmlpull.v1.XmlPullParserFactory;
+import retrofit2.Converter;
+import retrofit2.Retrofit;
+
+/**
+ * A {@link Converter.Factory} that reads the Slashdot Atom {@link Feed} with a streaming
+ * {@link XmlPullParser}.
+ *
+ * <p>Entries are filled in directly as their elements are read, anything else is skipped, and
+ * parsing stops as soon as {@code maxEntries} entries have been read.
+ */
+public final class SlashdotFeedConverterFactory extends Converter.Factory {
+
+  private static final String ATOM = "http://www.w3.org/2005/Atom";
+  private static final String SLASH = "http://purl.org/rss/1.0/modules/slash/";
+
+  private final XmlPullParserFactory parserFactory;
+  private final int maxEntries;
+  private final StringPool pool;
+
+  private SlashdotFeedConverterFactory(XmlPullParserFactory parserFactory,
+      int maxEntries,
+      StringPool pool) {
+    this.parserFactory = parserFactory;
+    this.maxEntries = maxEntries;
+    this.pool = pool;
+  }
+
+  /**
+   * @param maxEntries the most entries to read from the feed.
+   * @param pool pool for the values that repeat across entries, like sections and author names.
+   */
+  public static SlashdotFeedConverterFactory create(int maxEntries, StringPool pool) {
+    try {
+      XmlPullParserFactory parserFactory = XmlPullParserFactory.newInstance();
+      parserFactory.setNamespaceAware(true);
+      return new SlashdotFeedConverterFactory(parserFactory, maxEntries, pool);
+    } catch (XmlPullParserException e) {
+      throw new IllegalStateException("No XML pull parser available", e);
+    }
+  }
+
+  @Nullable @Override
+  public Converter<ResponseBody, ?> responseBodyConverter(Type type,
+      Annotation[] annotations,
+      Retrofit retrofit) {
+    if (type != Feed.class) {
+      return null;
+    }
+    return body -> {
+      try {
+        XmlPullParser parser = parserFactory.newPullParser();
+        // Let the parser pick the encoding up from the XML declaration.
+        parser.setInput(body.byteStream(), null);
+        return readFeed(parser);
+      } catch (XmlPullParserException | DateTimeParseException | NumberFormatException e) {
+        // Bad dates and escapes in the text are as malformed as bad markup.
+        throw new IOException("Malformed Slashdot feed", e);
+      } finally {
+        body.close();
+      }
+    };
+  }
+
+  private Feed readFeed(XmlPullParser parser) throws IOException, XmlPullParserException {
+    parser.nextTag();
+    parser.require(XmlPullParser.START_TAG, ATOM, "feed");
+    Feed feed = new Feed();
+    feed.itemList = new ArrayList<>();
+    while (nextStartTag(parser)) {
+      if (!ATOM.equals(parser.getNamespace())) {
+        skip(parser);
+        continue;
+      }
+      switch (parser.getName()) {
+        case "entry":
+          feed.itemList.add(readEntry(parser));
+          if (feed.itemList.size() >= maxEntries) {
+            return feed;
+          }
+          break;
+        case "title":
+          feed.title = readText(parser);
+          break;
+        case "updated":
+          feed.updated = Instants.parsePossiblyOffsetInstant(readText(parser));
+          break;
+        default:
+          skip(parser);
+      }
+    }
+    return feed;
+  }
+
+  private Entry readEntry(XmlPullParser parser) throws IOException, XmlPullParserException {
+    Entry entry = new Entry();
+    while (nextStartTag(parser)) {
+      String namespace = parser.getNamespace();
+      String name = parser.getName();
+      if (ATOM.equals(namespace)) {
+        switch (name) {
+          case "id":
+            entry.id = readText(parser);
+            break;
+          case "title":
+            entry.title = Strings.unescapeJavaString(readText(parser));
+            break;
+          case "link":
+            entry.link = parser.getAttributeValue(null, "href");
+            skip(parser);
+            break;
+          case "updated":
+            entry.updated = Instants.parsePossiblyOffsetInstant(readText(parser));
+            break;
+          case "author":
+            entry.author = readAuthor(parser);
+            break;
+          default:
+            skip(parser);
+        }
+      } else if (SLASH.equals(namespace)) {
+        switch (name) {
+          case "section":
+            entry.section = pool.intern(readText(parser));
+            break;
+          case "department":
+            entry.department = readText(parser);
+            break;
+          case "comments":
+            entry.comments = readCount(parser);
+            break;
+          default:
+            skip(parser);
+        }
+      } else {
+        skip(parser);
+      }
+    }
+    if (entry.id == null) {
+      throw new XmlPullParserException("Entry without an id", parser, null);
+    }
+    return entry;
+  }
+
+  private Author readAuthor(XmlPullParser parser) throws IOException, XmlPullParserException {
+    Author author = new Author();
+    while (nextStartTag(parser)) {
+      if (ATOM.equals(parser.getNamespace()) && "name".equals(parser.getName())) {
+        author.name = pool.intern(readText(parser));
+      } else {
+        skip(parser);
+      }
+    }
+    return author;
+  }
+
+  /**
+   * Advances to the next child of the current element.
+   *
+   * @return {@code true} if the parser is now on a child's start tag, or {@code false} if it's on
+   * the current element's end tag.
+   */
+  private static boolean nextStartTag(XmlPullParser parser)
+      throws IOException, XmlPullParserException {
+    while (true) {
+      switch (parser.next()) {
+        case XmlPullParser.START_TAG:
+          return true;
+        case XmlPullParser.END_TAG:
+          return false;
+        case XmlPullParser.END_DOCUMENT:
+          throw new XmlPullParserException("Unexpected end of document", parser, null);
+        default:
+          // Text between elements.
+      }
+    }
+  }
+
+  private static String readText(XmlPullParser parser) throws IOException, XmlPullParserException {
+    return parser.nextText()
+        .trim();
+  }
+
+  /** Comment counts are only shown, so a malformed one reads as 0 rather than failing the feed. */
+  private static int readCount(XmlPullParser parser) throws IOException, XmlPullParserException {
+    try {
+      return Integer.parseInt(readText(parser));
+    } catch (NumberFormatException e) {
+      return 0;
+    }
+  }
+
+  /** Skips the current element and all of its children. */
+  private static void skip(XmlPullParser parser) throws IOException, XmlPullParserException {
+    int depth = 1;
+    while (depth != 0) {
+      switch (parser.next()) {
+        case XmlPullParser.START_TAG:
+          depth++;
+          break;
+        case XmlPullParser.END_TAG:
+          depth--;
+          break;
+        case XmlPullParser.END_DOCUMENT:
+          throw new XmlPullParserException("Unexpected end of document", parser, null);
+        default:
+          // Keep going.
+      }
+    }
+  }
+}
@@ -26,6 +26,7 @@ import dagger.android.AndroidInjector;
 import dagger.multibindings.IntoMap;
 import io.sweers.catchup.BuildConfig;
 import io.sweers.catchup.injection.ControllerKey;
+import io.sweers.catchup.injection.scopes.PerApplication;
 import io.sweers.catchup.ui.controllers.SmmryController;
 import okhttp3.OkHttpClient;
 import retrofit2.Retrofit;
@@ -38,7 +39,7 @@ public abstract class SmmryModule {
   abstract AndroidInjector.Factory<? extends Controller> bindSmmryControllerInjectorFactory(
       SmmryController.Component.Builder builder);
 
-  @Provides static SmmryService provideSmmryService(final Lazy<OkHttpClient> client,
+  @Provides @PerApplication static SmmryService provideSmmryService(final Lazy<OkHttpClient> client,
       Moshi moshi,
       RxJava2CallAdapterFactory rxJavaCallAdapterFactory) {
     return new Retrofit.Builder().baseUrl(SmmryService.ENDPOINT)
@@ -13,23 +13,15 @@
  * See the License for the specific language governing permissions and
  * limitations under the License.
  */
+package io.sweers.catchup.injection.qualifiers;
 
-package io.sweers.catchup.data.medium.model;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import javax.inject.Qualifier;
 
-import android.support.annotation.NonNull;
-
-import com.google.auto.value.AutoValue;
-import com.squareup.moshi.JsonAdapter;
-import com.squareup.moshi.Moshi;
-
-@AutoValue
-public abstract class StreamItem {
-
-  public static JsonAdapter<StreamItem> jsonAdapter(@NonNull Moshi moshi) {
-    return new AutoValue_StreamItem.MoshiJsonAdapter(moshi);
-  }
-
-  public abstract PostPreview bmPostPreview();
-
-  public abstract long createdAt();
-}
+/**
+ * Marks the client a service's calls go out on, derived from the shared one.
+ */
+@Qualifier
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ServiceClient {}
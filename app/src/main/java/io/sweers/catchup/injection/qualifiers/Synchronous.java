@@ -13,23 +13,15 @@
  * See the License for the specific language governing permissions and
  * limitations under the License.
  */
+package io.sweers.catchup.injection.qualifiers;
 
-package io.sweers.catchup.data.medium.model;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import javax.inject.Qualifier;
 
-import android.support.annotation.NonNull;
-
-import com.google.auto.value.AutoValue;
-import com.squareup.moshi.JsonAdapter;
-import com.squareup.moshi.Moshi;
-
-@AutoValue
-public abstract class MediumResponse {
-
-  public static JsonAdapter<MediumResponse> jsonAdapter(@NonNull Moshi moshi) {
-    return new AutoValue_MediumResponse.MoshiJsonAdapter(moshi);
-  }
-
-  public abstract Payload payload();
-
-  public abstract boolean success();
-}
+/**
+ * Marks a call adapter whose calls are made on the subscribing thread.
+ */
+@Qualifier
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Synchronous {}
@@ -14,23 +14,14 @@
  * limitations under the License.
  */
 
-package io.sweers.catchup.data.medium.model;
+package io.sweers.catchup.injection.scopes;
 
-import android.support.annotation.NonNull;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
 
-import com.google.auto.value.AutoValue;
-import com.squareup.moshi.JsonAdapter;
-import com.squareup.moshi.Moshi;
+import javax.inject.Scope;
 
-@AutoValue
-public abstract class Markup {
-  public static JsonAdapter<Markup> jsonAdapter(@NonNull Moshi moshi) {
-    return new AutoValue_Markup.MoshiJsonAdapter(moshi);
-  }
-
-  public abstract int end();
-
-  public abstract int start();
-
-  public abstract int type();
+@Scope
+@Retention(RetentionPolicy.RUNTIME)
+public @interface PerApplication {
 }
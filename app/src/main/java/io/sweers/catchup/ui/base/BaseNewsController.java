@@ -22,9 +22,9 @@ import android.support.annotation.Nullable;
 import android.support.graphics.drawable.AnimatedVectorDrawableCompat;
 import android.support.v4.util.Pair;
 import android.support.v4.widget.SwipeRefreshLayout;
+import android.support.v7.util.DiffUtil;
 import android.support.v7.widget.LinearLayoutManager;
 import android.support.v7.widget.RecyclerView;
-import android.support.v7.widget.RxViewHolder;
 import android.text.format.DateUtils;
 import android.view.LayoutInflater;
 import android.view.View;
@@ -37,25 +37,31 @@ import butterknife.BindView;
 import butterknife.OnClick;
 import butterknife.Unbinder;
 import com.google.auto.value.AutoValue;
-import com.jakewharton.rxbinding2.view.RxView;
-import com.uber.autodispose.SingleScoper;
+import com.uber.autodispose.CompletableScoper;
+import com.uber.autodispose.MaybeScoper;
+import com.uber.autodispose.ObservableScoper;
 import io.reactivex.Observable;
 import io.reactivex.Single;
 import io.reactivex.android.schedulers.AndroidSchedulers;
-import io.reactivex.functions.BiConsumer;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.schedulers.Schedulers;
 import io.sweers.catchup.R;
+import io.sweers.catchup.data.CatchUpItem;
+import io.sweers.catchup.data.ItemStore;
+import io.sweers.catchup.data.LinkManager;
+import io.sweers.catchup.data.LinkManager.UrlMeta;
+import io.sweers.catchup.data.StaleWhileRevalidate;
 import io.sweers.catchup.ui.InfiniteScrollListener;
 import io.sweers.catchup.ui.Scrollable;
-import io.sweers.catchup.util.Iterables;
-import io.sweers.catchup.util.NumberUtil;
-import io.sweers.catchup.util.Strings;
+import io.sweers.catchup.util.collect.ColumnarItems;
 import java.io.IOException;
 import java.security.InvalidParameterException;
-import java.util.LinkedHashSet;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
+import javax.inject.Inject;
 import jp.wasabeef.recyclerview.animators.FadeInUpAnimator;
-import org.threeten.bp.Instant;
 import retrofit2.HttpException;
 import timber.log.Timber;
 
@@ -72,11 +78,15 @@ public abstract class BaseNewsController<T extends HasStableId> extends ServiceC
   @BindView(R.id.progress) ProgressBar progress;
   @BindView(R.id.refresh) SwipeRefreshLayout swipeRefreshLayout;
 
-  private Adapter<T> adapter;
+  @Inject LinkManager linkManager;
+  @Inject ItemStore itemStore;
+
+  private Adapter adapter;
   private int page = 0;
   private boolean fromSaveInstanceState = false;
   private boolean moreDataAvailable = true;
   private boolean isDataLoading = false;
+  private boolean showingStoredItems = false;
 
   public BaseNewsController() {
     super();
@@ -87,15 +97,86 @@ public abstract class BaseNewsController<T extends HasStableId> extends ServiceC
   }
 
   /**
-   * View binding implementation to bind the given datum to the {@code holder}.
+   * Maps a service model to its display-ready {@link CatchUpItem}. This is called off the main
+   * thread, so any parsing or string formatting should happen here rather than at bind time. The
+   * returned item's {@link CatchUpItem#id() id} should be the model's
+   * {@link HasStableId#stableId() stable ID}.
+   *
+   * @param t The datum to map.
+   * @return the {@link CatchUpItem} to bind for {@code t}.
+   */
+  protected abstract CatchUpItem toCatchUpItem(T t);
+
+  /**
+   * Called when an item's row is clicked. Opens its {@link CatchUpItem#itemClickUrl() URL} by
+   * default.
    *
-   * @param t The datum to back the view with.
-   * @param holder The item ViewHolder instance.
+   * @param items The adapter's items.
+   * @param position The clicked item's position in {@code items}.
    */
-  protected abstract void bindItemView(T t, NewsItemViewHolder holder);
+  protected void onItemClick(ColumnarItems items, int position) {
+    openUrl(items.itemClickUrl(position));
+  }
+
+  /**
+   * Called when an item's row is long clicked. Does nothing by default.
+   *
+   * @param items The adapter's items.
+   * @param position The long clicked item's position in {@code items}.
+   * @return {@code true} if the long click was consumed.
+   */
+  protected boolean onItemLongClick(ColumnarItems items, int position) {
+    return false;
+  }
+
+  /**
+   * Called when an item's comment count is clicked. Opens its
+   * {@link CatchUpItem#itemCommentClickUrl() comments URL} by default.
+   *
+   * @param items The adapter's items.
+   * @param position The clicked item's position in {@code items}.
+   */
+  protected void onItemCommentClick(ColumnarItems items, int position) {
+    openUrl(items.itemCommentClickUrl(position));
+  }
+
+  /**
+   * Opens the given {@code url} via the {@link LinkManager}. The {@link UrlMeta} is only built
+   * here, when a click actually happens.
+   */
+  protected final void openUrl(@Nullable String url) {
+    linkManager.openUrl(new UrlMeta(url, getServiceThemeColor(), getActivity()))
+        .to(new CompletableScoper(this))
+        .subscribe();
+  }
 
   protected abstract Single<List<T>> getDataSingle(DataRequest request);
 
+  /**
+   * Streaming variant of {@link #getDataSingle(DataRequest)}. Each emission is an ordered chunk of
+   * the requested page that is appended as soon as it arrives, so services that assemble a page
+   * out of many requests can show the head of it without waiting on the slowest item.
+   *
+   * <p>The default implementation emits the whole {@link #getDataSingle(DataRequest) single} page
+   * as one chunk, which is all services that fetch a page in one request need.
+   *
+   * @param request the data request.
+   * @return an {@link Observable} of ordered chunks of the requested page.
+   */
+  protected Observable<List<T>> getDataObservable(DataRequest request) {
+    return getDataSingle(request).toObservable();
+  }
+
+  /**
+   * @return the {@link StaleWhileRevalidate} this controller's service requests go through, if
+   * any. The first page is then shown from the cache when it can be, and replaced with the
+   * revalidated data once that lands. The service has to make its calls through
+   * {@link StaleWhileRevalidate#callFactory}, synchronously.
+   */
+  @Nullable protected StaleWhileRevalidate staleWhileRevalidate() {
+    return null;
+  }
+
   @Override protected View inflateView(LayoutInflater inflater, ViewGroup container) {
     return inflater.inflate(R.layout.controller_basic_news, container, false);
   }
@@ -117,7 +198,19 @@ public abstract class BaseNewsController<T extends HasStableId> extends ServiceC
         loadData();
       }
     });
-    adapter = new Adapter<>(this::bindItemView);
+    adapter = new Adapter(new ItemClickDispatcher.Callbacks() {
+      @Override public void onItemClick(ColumnarItems items, int position) {
+        BaseNewsController.this.onItemClick(items, position);
+      }
+
+      @Override public boolean onItemLongClick(ColumnarItems items, int position) {
+        return BaseNewsController.this.onItemLongClick(items, position);
+      }
+
+      @Override public void onItemCommentClick(ColumnarItems items, int position) {
+        BaseNewsController.this.onItemCommentClick(items, position);
+      }
+    });
     recyclerView.setAdapter(adapter);
     swipeRefreshLayout.setOnRefreshListener(this);
 
@@ -191,10 +284,33 @@ public abstract class BaseNewsController<T extends HasStableId> extends ServiceC
       recyclerView.post(() -> adapter.dataStartedLoading());
     }
     AtomicLong timer = new AtomicLong();
-    getDataSingle(DataRequest.create(fromRefresh,
-        fromSaveInstanceState && page != 0,
-        pageToRequest)).observeOn(AndroidSchedulers.mainThread())
-        .doOnEvent((result, t) -> {
+    AtomicBoolean receivedData = new AtomicBoolean();
+    DataRequest request =
+        DataRequest.create(fromRefresh, fromSaveInstanceState && page != 0, pageToRequest);
+    StaleWhileRevalidate staleWhileRevalidate = staleWhileRevalidate();
+    // Only the first page is revalidated in place, later pages just use whatever is cached.
+    boolean revalidating = staleWhileRevalidate != null && pageToRequest == 0;
+    // Services with a StaleWhileRevalidate make their calls synchronously, so this has to be off
+    // the main thread. cacheThenRevalidate() takes care of that itself.
+    Observable<List<T>> source = revalidating
+        ? staleWhileRevalidate.cacheThenRevalidate(getDataSingle(request), fromRefresh)
+        : getDataObservable(request).subscribeOn(Schedulers.io());
+    // The first page is stored so it can be shown right away next time. The DB is recreated for
+    // every app version, so class names are stable enough as keys.
+    String storeKey = getClass().getName();
+    if (pageToRequest == 0 && !fromRefresh && adapter.getDataItemCount() == 0) {
+      showStoredItems(storeKey, receivedData);
+    }
+    AtomicBoolean storedData = new AtomicBoolean();
+    source.observeOn(Schedulers.computation())
+        .map(this::toCatchUpItems)
+        .doOnNext(items -> {
+          if (pageToRequest == 0) {
+            itemStore.write(storeKey, items, !storedData.getAndSet(true) || revalidating);
+          }
+        })
+        .observeOn(AndroidSchedulers.mainThread())
+        .doOnEach(notification -> {
           swipeRefreshLayout.setEnabled(true);
           swipeRefreshLayout.setRefreshing(false);
         })
@@ -206,13 +322,19 @@ public abstract class BaseNewsController<T extends HasStableId> extends ServiceC
           isDataLoading = false;
           recyclerView.post(() -> adapter.dataFinishedLoading());
         })
-        .to(new SingleScoper<>(this))
+        .to(new ObservableScoper<>(this))
         .subscribe(data -> {
           progress.setVisibility(GONE);
           errorView.setVisibility(GONE);
           swipeRefreshLayout.setVisibility(VISIBLE);
+          // Only the first chunk of a refresh replaces what's there, the rest of the page appends.
+          // A revalidated first page replaces the cached one it follows, and the first chunk from
+          // the network replaces any stored items.
+          boolean replace =
+              receivedData.getAndSet(true) ? revalidating : fromRefresh || showingStoredItems;
+          showingStoredItems = false;
           recyclerView.post(() -> {
-            if (fromRefresh) {
+            if (replace) {
               adapter.setData(data);
             } else {
               adapter.addData(data);
@@ -220,7 +342,10 @@ public abstract class BaseNewsController<T extends HasStableId> extends ServiceC
           });
         }, e -> {
           Activity activity = getActivity();
-          if (pageToRequest == 0 && activity != null) {
+          if (pageToRequest == 0
+              && !receivedData.get()
+              && !showingStoredItems
+              && activity != null) {
             if (e instanceof IOException) {
               AnimatedVectorDrawableCompat avd =
                   AnimatedVectorDrawableCompat.create(activity, R.drawable.avd_no_connection);
@@ -258,6 +383,34 @@ public abstract class BaseNewsController<T extends HasStableId> extends ServiceC
         });
   }
 
+  /**
+   * Shows the stored items for this service while the first page loads, unless the network beats
+   * the store to it.
+   */
+  private void showStoredItems(String storeKey, AtomicBoolean receivedData) {
+    itemStore.read(storeKey)
+        .observeOn(AndroidSchedulers.mainThread())
+        .to(new MaybeScoper<>(this))
+        .subscribe(items -> {
+          if (receivedData.get()) {
+            return;
+          }
+          showingStoredItems = true;
+          progress.setVisibility(GONE);
+          errorView.setVisibility(GONE);
+          swipeRefreshLayout.setVisibility(VISIBLE);
+          adapter.addData(items);
+        }, e -> Timber.e(e, "Failed to read stored items."));
+  }
+
+  private List<CatchUpItem> toCatchUpItems(List<T> data) {
+    List<CatchUpItem> items = new ArrayList<>(data.size());
+    for (T t : data) {
+      items.add(toCatchUpItem(t));
+    }
+    return items;
+  }
+
   @Override public void onRefresh() {
     loadData(true);
   }
@@ -270,17 +423,18 @@ public abstract class BaseNewsController<T extends HasStableId> extends ServiceC
     }
   }
 
-  private static class Adapter<T extends HasStableId>
-      extends RecyclerView.Adapter<RecyclerView.ViewHolder>
+  private static class Adapter extends RecyclerView.Adapter<RecyclerView.ViewHolder>
       implements DataLoadingSubject.DataLoadingCallbacks {
 
-    private final LinkedHashSet<T> data = new LinkedHashSet<>();
-    private final BiConsumer<T, NewsItemViewHolder> bindDelegate;
+    private final ColumnarItems data = new ColumnarItems();
+    private final ItemClickDispatcher clickDispatcher;
     private boolean showLoadingMore = false;
+    @Nullable private Disposable pendingDiff;
+    @Nullable private List<CatchUpItem> pendingAppends;
 
-    public Adapter(BiConsumer<T, NewsItemViewHolder> bindDelegate) {
+    public Adapter(ItemClickDispatcher.Callbacks clickCallbacks) {
       super();
-      this.bindDelegate = bindDelegate;
+      this.clickDispatcher = new ItemClickDispatcher(data, clickCallbacks);
       setHasStableIds(true);
     }
 
@@ -288,17 +442,19 @@ public abstract class BaseNewsController<T extends HasStableId> extends ServiceC
       if (getItemViewType(position) == TYPE_LOADING_MORE) {
         return RecyclerView.NO_ID;
       }
-      return Iterables.get(data, position)
-          .stableId();
+      return data.id(position);
     }
 
     @Override public RecyclerView.ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
       LayoutInflater layoutInflater = LayoutInflater.from(parent.getContext());
       switch (viewType) {
         case TYPE_ITEM:
-          return new NewsItemViewHolder(layoutInflater.inflate(R.layout.list_item_general,
-              parent,
-              false));
+          NewsItemViewHolder holder =
+              new NewsItemViewHolder(layoutInflater.inflate(R.layout.list_item_general,
+                  parent,
+                  false));
+          holder.setClickDispatcher(clickDispatcher);
+          return holder;
         case TYPE_LOADING_MORE:
           return new LoadingMoreHolder(layoutInflater.inflate(R.layout.infinite_loading,
               parent,
@@ -310,11 +466,7 @@ public abstract class BaseNewsController<T extends HasStableId> extends ServiceC
     @Override public void onBindViewHolder(RecyclerView.ViewHolder holder, int position) {
       switch (getItemViewType(position)) {
         case TYPE_ITEM:
-          try {
-            bindDelegate.accept(Iterables.get(data, position), (NewsItemViewHolder) holder);
-          } catch (Exception e) {
-            Timber.e(e, "Bind delegate failure!");
-          }
+          ((NewsItemViewHolder) holder).bind(data, position);
           break;
         case TYPE_LOADING_MORE:
           ((LoadingMoreHolder) holder).progress.setVisibility(
@@ -359,16 +511,91 @@ public abstract class BaseNewsController<T extends HasStableId> extends ServiceC
       notifyItemRemoved(loadingPos);
     }
 
-    public void addData(List<T> newData) {
+    @Override public void onDetachedFromRecyclerView(RecyclerView recyclerView) {
+      super.onDetachedFromRecyclerView(recyclerView);
+      cancelPendingDiff();
+    }
+
+    public void addData(List<CatchUpItem> newData) {
+      if (pendingAppends != null) {
+        // These follow the data that's still being diffed, so hold them until it lands.
+        pendingAppends.addAll(newData);
+        return;
+      }
       int prevSize = data.size();
       data.addAll(newData);
       notifyItemRangeInserted(prevSize, data.size() - prevSize);
     }
 
-    public void setData(List<T> newData) {
-      data.clear();
-      data.addAll(newData);
-      notifyDataSetChanged();
+    /**
+     * Replaces the current data with {@code newData}. The diff against the current data is keyed
+     * on stable IDs and computed off the main thread, then dispatched as granular notifications so
+     * that only rows that actually moved or changed are touched. Calling this again before a
+     * previous diff has landed cancels it.
+     */
+    public void setData(List<CatchUpItem> newData) {
+      cancelPendingDiff();
+      if (data.isEmpty()) {
+        addData(newData);
+        return;
+      }
+      ColumnarItems oldItems = data.copy();
+      pendingAppends = new ArrayList<>();
+      pendingDiff = Single.fromCallable(() -> diff(oldItems, newData))
+          .subscribeOn(Schedulers.computation())
+          .observeOn(AndroidSchedulers.mainThread())
+          .subscribe(result -> {
+            List<CatchUpItem> appends = pendingAppends;
+            pendingAppends = null;
+            pendingDiff = null;
+            data.clear();
+            data.addAll(result.first);
+            result.second.dispatchUpdatesTo(this);
+            if (!appends.isEmpty()) {
+              addData(appends);
+            }
+          }, e -> {
+            Timber.e(e, "Diffing new data failed.");
+            List<CatchUpItem> appends = pendingAppends;
+            pendingAppends = null;
+            pendingDiff = null;
+            data.clear();
+            data.addAll(newData);
+            data.addAll(appends);
+            notifyDataSetChanged();
+          });
+    }
+
+    private static Pair<ColumnarItems, DiffUtil.DiffResult> diff(ColumnarItems oldItems,
+        List<CatchUpItem> newData) {
+      ColumnarItems newItems = new ColumnarItems(newData.size());
+      newItems.addAll(newData);
+      // Compares columns in place, so that no items are rebuilt to diff them.
+      return Pair.create(newItems, DiffUtil.calculateDiff(new DiffUtil.Callback() {
+        @Override public int getOldListSize() {
+          return oldItems.size();
+        }
+
+        @Override public int getNewListSize() {
+          return newItems.size();
+        }
+
+        @Override public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+          return oldItems.id(oldItemPosition) == newItems.id(newItemPosition);
+        }
+
+        @Override public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+          return oldItems.contentsEqual(oldItemPosition, newItems, newItemPosition);
+        }
+      }));
+    }
+
+    private void cancelPendingDiff() {
+      if (pendingDiff != null) {
+        pendingDiff.dispose();
+        pendingDiff = null;
+      }
+      pendingAppends = null;
     }
   }
 
@@ -386,7 +613,7 @@ public abstract class BaseNewsController<T extends HasStableId> extends ServiceC
     }
   }
 
-  public static class NewsItemViewHolder extends RxViewHolder {
+  public static class NewsItemViewHolder extends RecyclerView.ViewHolder {
 
     @BindView(R.id.container) View container;
     @BindView(R.id.title) TextView title;
@@ -409,58 +636,59 @@ public abstract class BaseNewsController<T extends HasStableId> extends ServiceC
       unbinder = new BaseNewsController$NewsItemViewHolder_ViewBinding(this, itemView);
     }
 
-    public Observable<Object> itemClicks() {
-      return RxView.clicks(container);
+    /**
+     * Attaches click listeners that report this holder's adapter position to the given
+     * {@code dispatcher}. Only needs to be called once, when the holder is created.
+     */
+    void setClickDispatcher(ItemClickDispatcher dispatcher) {
+      container.setOnClickListener(v -> dispatcher.dispatchClick(getAdapterPosition()));
+      container.setOnLongClickListener(v -> dispatcher.dispatchLongClick(getAdapterPosition()));
+      comments.setOnClickListener(v -> dispatcher.dispatchCommentClick(getAdapterPosition()));
     }
 
-    public Observable<Object> itemLongClicks() {
-      return RxView.longClicks(container);
+    /**
+     * Binds the item at {@code position} straight from its columns, without rebuilding it.
+     */
+    public void bind(ColumnarItems items, int position) {
+      title.setText(items.title(position));
+      score(items.score(position));
+      timestamp(items.timestamp(position));
+      author(items.author(position));
+      source(items.source(position));
+      comments(items.commentCount(position));
+      tag(items.tag(position));
     }
 
-    public Observable<Object> itemCommentClicks() {
-      return RxView.clicks(comments);
-    }
-
-    public void title(@Nullable CharSequence titleText) {
-      title.setText(titleText);
-    }
-
-    public void score(@Nullable Pair<String, Integer> scoreValue) {
-      if (scoreValue == null) {
+    private void score(@Nullable String scoreText) {
+      if (scoreText == null) {
         score.setVisibility(GONE);
         scoreDivider.setVisibility(GONE);
       } else {
         scoreDivider.setVisibility(VISIBLE);
         score.setVisibility(VISIBLE);
-        score.setText(String.format("%s %s",
-            scoreValue.first,
-            NumberUtil.format(scoreValue.second)));
+        score.setText(scoreText);
       }
     }
 
-    public void tag(@Nullable String text) {
+    private void tag(@Nullable String text) {
       if (text == null) {
         tag.setVisibility(GONE);
         tagDivider.setVisibility(GONE);
       } else {
         tag.setVisibility(VISIBLE);
         tagDivider.setVisibility(VISIBLE);
-        tag.setText(Strings.capitalize(text));
+        tag.setText(text);
       }
     }
 
-    public void timestamp(Instant instant) {
-      timestamp(instant.toEpochMilli());
-    }
-
-    private void timestamp(long date) {
-      timestamp.setText(DateUtils.getRelativeTimeSpanString(date,
+    private void timestamp(long epochMillis) {
+      timestamp.setText(DateUtils.getRelativeTimeSpanString(epochMillis,
           System.currentTimeMillis(),
           0L,
           DateUtils.FORMAT_ABBREV_ALL));
     }
 
-    public void author(@Nullable CharSequence authorText) {
+    private void author(@Nullable String authorText) {
       if (authorText == null) {
         author.setVisibility(GONE);
         authorDivider.setVisibility(GONE);
@@ -471,7 +699,7 @@ public abstract class BaseNewsController<T extends HasStableId> extends ServiceC
       }
     }
 
-    public void source(@Nullable CharSequence sourceText) {
+    private void source(@Nullable String sourceText) {
       if (sourceText == null) {
         source.setVisibility(GONE);
         authorDivider.setVisibility(GONE);
@@ -484,12 +712,13 @@ public abstract class BaseNewsController<T extends HasStableId> extends ServiceC
       }
     }
 
-    public void comments(int commentsCount) {
-      comments.setText(NumberUtil.format(commentsCount));
-    }
-
-    public void hideComments() {
-      comments.setVisibility(GONE);
+    private void comments(@Nullable String commentsText) {
+      if (commentsText == null) {
+        comments.setVisibility(GONE);
+      } else {
+        comments.setVisibility(VISIBLE);
+        comments.setText(commentsText);
+      }
     }
   }
 }
@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2017 Zac Sweers
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.sweers.catchup.ui.base;
+
+import io.sweers.catchup.util.collect.ColumnarItems;
+
+/**
+ * Routes item clicks for a whole adapter to one set of {@link Callbacks}. View holders attach
+ * listeners once when they're created and report their adapter position on click, and the item is
+ * only looked up at that point. Binding a row therefore does no click wiring at all.
+ *
+ * <p>Callbacks get the position in the adapter's {@link ColumnarItems} rather than an item, so
+ * that they can read the fields they need without one being rebuilt.
+ */
+final class ItemClickDispatcher {
+
+  interface Callbacks {
+    void onItemClick(ColumnarItems items, int position);
+
+    boolean onItemLongClick(ColumnarItems items, int position);
+
+    void onItemCommentClick(ColumnarItems items, int position);
+  }
+
+  private final ColumnarItems data;
+  private final Callbacks callbacks;
+
+  ItemClickDispatcher(ColumnarItems data, Callbacks callbacks) {
+    this.data = data;
+    this.callbacks = callbacks;
+  }
+
+  void dispatchClick(int position) {
+    if (isValid(position)) {
+      callbacks.onItemClick(data, position);
+    }
+  }
+
+  boolean dispatchLongClick(int position) {
+    return isValid(position) && callbacks.onItemLongClick(data, position);
+  }
+
+  void dispatchCommentClick(int position) {
+    if (isValid(position)) {
+      callbacks.onItemCommentClick(data, position);
+    }
+  }
+
+  /**
+   * @return {@code false} if the position is stale or {@code NO_POSITION}, such as when a click
+   * lands while the holder is being removed.
+   */
+  private boolean isValid(int position) {
+    return position >= 0 && position < data.size();
+  }
+}
@@ -19,32 +19,40 @@ package io.sweers.catchup.ui.controllers;
 import android.content.Context;
 import android.os.Bundle;
 import android.support.annotation.NonNull;
-import android.support.v4.util.Pair;
 import android.view.ContextThemeWrapper;
 import com.bluelinelabs.conductor.Controller;
 import com.serjltt.moshi.adapters.Wrapped;
 import com.squareup.moshi.Moshi;
-import com.uber.autodispose.CompletableScoper;
 import dagger.Binds;
 import dagger.Lazy;
 import dagger.Provides;
 import dagger.Subcomponent;
 import dagger.android.AndroidInjector;
 import dagger.multibindings.IntoMap;
+import dagger.multibindings.IntoSet;
 import io.reactivex.Single;
 import io.sweers.catchup.BuildConfig;
 import io.sweers.catchup.R;
+import io.sweers.catchup.data.CachePolicy;
+import io.sweers.catchup.data.CatchUpItem;
+import io.sweers.catchup.data.CircuitBreaker;
 import io.sweers.catchup.data.ISO8601InstantAdapter;
-import io.sweers.catchup.data.LinkManager;
+import io.sweers.catchup.data.RequestHedger;
+import io.sweers.catchup.data.StaleWhileRevalidate;
 import io.sweers.catchup.data.designernews.DesignerNewsService;
 import io.sweers.catchup.data.designernews.model.Story;
 import io.sweers.catchup.data.designernews.model.User;
 import io.sweers.catchup.injection.ControllerKey;
+import io.sweers.catchup.injection.qualifiers.ServiceClient;
+import io.sweers.catchup.injection.qualifiers.Synchronous;
+import io.sweers.catchup.injection.scopes.PerApplication;
 import io.sweers.catchup.ui.base.BaseNewsController;
 import io.sweers.catchup.ui.base.HasStableId;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 import javax.inject.Inject;
 import javax.inject.Qualifier;
+import okhttp3.Call;
 import okhttp3.OkHttpClient;
 import org.threeten.bp.Instant;
 import retrofit2.Retrofit;
@@ -54,7 +62,7 @@ import retrofit2.converter.moshi.MoshiConverterFactory;
 public final class DesignerNewsController extends BaseNewsController<Story> {
 
   @Inject DesignerNewsService service;
-  @Inject LinkManager linkManager;
+  @Inject @Module.InternalApi StaleWhileRevalidate staleWhileRevalidate;
 
   public DesignerNewsController() {
     super();
@@ -68,33 +76,21 @@ public final class DesignerNewsController extends BaseNewsController<Story> {
     return new ContextThemeWrapper(context, R.style.CatchUp_DesignerNews);
   }
 
-  @Override protected void bindItemView(@NonNull Story story, @NonNull NewsItemViewHolder holder) {
-    //Story story = storyMeta.story;
-    //User user = storyMeta.user;
-    holder.title(story.title());
-
-    holder.score(Pair.create("▲", story.voteCount()));
-    holder.timestamp(story.createdAt());
-    //holder.author(user.displayName());
-    holder.author(null);
-
-    holder.source(story.hostname());
-
-    holder.comments(story.commentCount());
-    holder.tag(story.badge());
-
-    holder.itemClicks()
-        .compose(transformUrlToMeta(story.url()))
-        .flatMapCompletable(linkManager)
-        .to(new CompletableScoper(holder))
-        .subscribe();
-    holder.itemCommentClicks()
-        .compose(transformUrlToMeta(story.href()
+  @Override protected CatchUpItem toCatchUpItem(Story story) {
+    return CatchUpItem.builder()
+        .id(story.stableId())
+        .title(story.title())
+        .score("▲", story.voteCount())
+        .timestamp(story.createdAt())
+        //.author(user.displayName())
+        .source(story.hostname())
+        .commentCount(story.commentCount())
+        .tag(story.badge())
+        .itemClickUrl(story.url())
+        .itemCommentClickUrl(story.href()
             .replace("api.", "www.")
-            .replace("api/v2/", "")))
-        .flatMapCompletable(linkManager)
-        .to(new CompletableScoper(holder))
-        .subscribe();
+            .replace("api/v2/", ""))
+        .build();
   }
 
   @NonNull @Override protected Single<List<Story>> getDataSingle(DataRequest request) {
@@ -113,6 +109,10 @@ public final class DesignerNewsController extends BaseNewsController<Story> {
     //        .toList());
   }
 
+  @Override protected StaleWhileRevalidate staleWhileRevalidate() {
+    return staleWhileRevalidate;
+  }
+
   @Subcomponent
   public interface Component extends AndroidInjector<DesignerNewsController> {
 
@@ -126,22 +126,52 @@ public final class DesignerNewsController extends BaseNewsController<Story> {
     @Qualifier
     private @interface InternalApi {}
 
+    @Provides @InternalApi @PerApplication
+    static CircuitBreaker provideDesignerNewsCircuitBreaker() {
+      return new CircuitBreaker("Designer News");
+    }
+
+    @Binds @IntoSet
+    abstract CircuitBreaker bindDesignerNewsCircuitBreaker(
+        @InternalApi CircuitBreaker circuitBreaker);
+
     @Binds @IntoMap @ControllerKey(DesignerNewsController.class)
     abstract AndroidInjector.Factory<? extends Controller> bindDesignerNewsControllerInjectorFactory(
         Component.Builder builder);
 
-    @Provides @InternalApi static Moshi provideDesignerNewsMoshi(Moshi moshi) {
+    @Provides @InternalApi @PerApplication
+    static StaleWhileRevalidate provideDesignerNewsStaleWhileRevalidate(OkHttpClient client,
+        @InternalApi CircuitBreaker circuitBreaker) {
+      return new StaleWhileRevalidate(client.newBuilder()
+          .addInterceptor(circuitBreaker)
+          .build(), CachePolicy.create(10, 2 * 60, TimeUnit.MINUTES));
+    }
+
+    @Provides @IntoSet @ServiceClient static OkHttpClient provideDesignerNewsServiceClient(
+        @InternalApi StaleWhileRevalidate staleWhileRevalidate) {
+      return staleWhileRevalidate.client();
+    }
+
+    @Provides @InternalApi @PerApplication static Moshi provideDesignerNewsMoshi(Moshi moshi) {
       return moshi.newBuilder()
           .add(Instant.class, new ISO8601InstantAdapter())
           .add(Wrapped.ADAPTER_FACTORY)
           .build();
     }
 
-    @Provides static DesignerNewsService provideDesignerNewsService(final Lazy<OkHttpClient> client,
+    @Provides @InternalApi @PerApplication static Call.Factory provideDesignerNewsCallFactory(
+        @InternalApi StaleWhileRevalidate staleWhileRevalidate,
+        RequestHedger requestHedger) {
+      return staleWhileRevalidate.callFactory(requestHedger.wrap(staleWhileRevalidate.client()));
+    }
+
+    @Provides @PerApplication
+    static DesignerNewsService provideDesignerNewsService(
+        @InternalApi final Lazy<Call.Factory> callFactory,
         @InternalApi Moshi moshi,
-        RxJava2CallAdapterFactory rxJavaCallAdapterFactory) {
+        @Synchronous RxJava2CallAdapterFactory rxJavaCallAdapterFactory) {
       Retrofit retrofit = new Retrofit.Builder().baseUrl(DesignerNewsService.ENDPOINT)
-          .callFactory(request -> client.get()
+          .callFactory(request -> callFactory.get()
               .newCall(request))
           .addCallAdapterFactory(rxJavaCallAdapterFactory)
           .addConverterFactory(MoshiConverterFactory.create(moshi))
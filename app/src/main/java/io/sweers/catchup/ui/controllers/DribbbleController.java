@@ -68,31 +68,39 @@ import dagger.Provides;
 import dagger.Subcomponent;
 import dagger.android.AndroidInjector;
 import dagger.multibindings.IntoMap;
+import dagger.multibindings.IntoSet;
 import io.reactivex.android.schedulers.AndroidSchedulers;
 import io.reactivex.schedulers.Schedulers;
 import io.sweers.catchup.BuildConfig;
 import io.sweers.catchup.R;
 import io.sweers.catchup.data.AuthInterceptor;
+import io.sweers.catchup.data.CachePolicy;
+import io.sweers.catchup.data.CircuitBreaker;
 import io.sweers.catchup.data.ISO8601InstantAdapter;
 import io.sweers.catchup.data.LinkManager;
+import io.sweers.catchup.data.RequestHedger;
+import io.sweers.catchup.data.StaleWhileRevalidate;
 import android.support.v7.widget.RxViewHolder;
 import io.sweers.catchup.data.dribbble.DribbbleService;
 import io.sweers.catchup.data.dribbble.model.Shot;
 import io.sweers.catchup.injection.ControllerKey;
+import io.sweers.catchup.injection.qualifiers.ServiceClient;
+import io.sweers.catchup.injection.scopes.PerApplication;
 import io.sweers.catchup.ui.InfiniteScrollListener;
 import io.sweers.catchup.ui.Scrollable;
 import io.sweers.catchup.ui.base.DataLoadingSubject;
 import io.sweers.catchup.ui.base.ServiceController;
 import io.sweers.catchup.ui.widget.BadgedFourThreeImageView;
-import io.sweers.catchup.util.Iterables;
 import io.sweers.catchup.util.ObservableColorMatrix;
 import io.sweers.catchup.util.UiUtil;
 import io.sweers.catchup.util.glide.DribbbleTarget;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 import javax.inject.Inject;
 import javax.inject.Qualifier;
+import okhttp3.Call;
 import okhttp3.OkHttpClient;
 import org.threeten.bp.Instant;
 import retrofit2.HttpException;
@@ -302,7 +310,7 @@ public class DribbbleController extends ServiceController
       if (getItemViewType(position) == TYPE_LOADING_MORE) {
         return RecyclerView.NO_ID;
       }
-      return Iterables.get(shots, position)
+      return shots.get(position)
           .stableId();
     }
 
@@ -507,29 +515,53 @@ public class DribbbleController extends ServiceController
     @Qualifier
     private @interface InternalApi {}
 
+    @Provides @InternalApi @PerApplication static CircuitBreaker provideDribbbleCircuitBreaker() {
+      return new CircuitBreaker("Dribbble");
+    }
+
+    @Binds @IntoSet
+    abstract CircuitBreaker bindDribbbleCircuitBreaker(@InternalApi CircuitBreaker circuitBreaker);
+
     @Binds @IntoMap @ControllerKey(DribbbleController.class)
     abstract AndroidInjector.Factory<? extends Controller> bindDribbbleControllerInjectorFactory(
         Component.Builder builder);
 
-    @Provides @InternalApi static OkHttpClient provideDribbbleOkHttpClient(OkHttpClient client) {
-      return client.newBuilder()
+    @Provides @InternalApi @PerApplication
+    static StaleWhileRevalidate provideDribbbleStaleWhileRevalidate(OkHttpClient client,
+        @InternalApi CircuitBreaker circuitBreaker) {
+      return new StaleWhileRevalidate(client.newBuilder()
+          .addInterceptor(circuitBreaker)
           .addInterceptor(AuthInterceptor.create("Bearer",
               BuildConfig.DRIBBBLE_CLIENT_ACCESS_TOKEN))
-          .build();
+          .build(), CachePolicy.create(10, 60, TimeUnit.MINUTES));
     }
 
-    @Provides @InternalApi static Moshi provideDribbbleMoshi(Moshi moshi) {
+    @Provides @InternalApi @PerApplication static OkHttpClient provideDribbbleOkHttpClient(
+        @InternalApi StaleWhileRevalidate staleWhileRevalidate) {
+      return staleWhileRevalidate.client();
+    }
+
+    @Binds @IntoSet @ServiceClient
+    abstract OkHttpClient bindDribbbleServiceClient(@InternalApi OkHttpClient client);
+
+    @Provides @InternalApi @PerApplication static Moshi provideDribbbleMoshi(Moshi moshi) {
       return moshi.newBuilder()
           .add(Instant.class, new ISO8601InstantAdapter())
           .build();
     }
 
-    @Provides
-    static DribbbleService provideDribbbleService(@InternalApi final Lazy<OkHttpClient> client,
+    @Provides @InternalApi @PerApplication static Call.Factory provideDribbbleCallFactory(
+        @InternalApi OkHttpClient client,
+        RequestHedger requestHedger) {
+      return requestHedger.wrap(client);
+    }
+
+    @Provides @PerApplication
+    static DribbbleService provideDribbbleService(@InternalApi final Lazy<Call.Factory> callFactory,
         @InternalApi Moshi moshi,
         RxJava2CallAdapterFactory rxJavaCallAdapterFactory) {
       return new Retrofit.Builder().baseUrl(DribbbleService.ENDPOINT)
-          .callFactory(request -> client.get()
+          .callFactory(request -> callFactory.get()
               .newCall(request))
           .addCallAdapterFactory(rxJavaCallAdapterFactory)
           .addConverterFactory(MoshiConverterFactory.create(moshi))
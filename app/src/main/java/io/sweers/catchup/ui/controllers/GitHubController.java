@@ -19,7 +19,6 @@ package io.sweers.catchup.ui.controllers;
 import android.content.Context;
 import android.os.Bundle;
 import android.support.annotation.NonNull;
-import android.support.v4.util.Pair;
 import android.view.ContextThemeWrapper;
 import com.apollographql.apollo.ApolloCall;
 import com.apollographql.apollo.ApolloClient;
@@ -36,22 +35,23 @@ import com.apollographql.apollo.cache.normalized.sql.ApolloSqlHelper;
 import com.apollographql.apollo.cache.normalized.sql.SqlNormalizedCacheFactory;
 import com.apollographql.apollo.rx2.Rx2Apollo;
 import com.bluelinelabs.conductor.Controller;
-import com.uber.autodispose.CompletableScoper;
 import dagger.Binds;
 import dagger.Lazy;
 import dagger.Provides;
 import dagger.Subcomponent;
 import dagger.android.AndroidInjector;
 import dagger.multibindings.IntoMap;
+import dagger.multibindings.IntoSet;
 import io.reactivex.Observable;
 import io.reactivex.Single;
 import io.reactivex.schedulers.Schedulers;
 import io.sweers.catchup.BuildConfig;
 import io.sweers.catchup.R;
 import io.sweers.catchup.data.AuthInterceptor;
+import io.sweers.catchup.data.CatchUpItem;
+import io.sweers.catchup.data.CircuitBreaker;
 import io.sweers.catchup.data.HttpUrlApolloAdapter;
 import io.sweers.catchup.data.ISO8601InstantApolloAdapter;
-import io.sweers.catchup.data.LinkManager;
 import io.sweers.catchup.data.github.GitHubSearch;
 import io.sweers.catchup.data.github.GitHubSearch.Data;
 import io.sweers.catchup.data.github.GitHubSearch.Languages;
@@ -67,7 +67,11 @@ import io.sweers.catchup.data.github.type.LanguageOrderField;
 import io.sweers.catchup.data.github.type.OrderDirection;
 import io.sweers.catchup.injection.ControllerKey;
 import io.sweers.catchup.injection.qualifiers.ApplicationContext;
+import io.sweers.catchup.injection.qualifiers.ServiceClient;
+import io.sweers.catchup.injection.scopes.PerApplication;
 import io.sweers.catchup.ui.base.BaseNewsController;
+import io.sweers.catchup.util.Hashing;
+import io.sweers.catchup.util.StringPool;
 import io.sweers.catchup.util.collect.Lists;
 import java.util.List;
 import java.util.Map;
@@ -79,7 +83,9 @@ import okhttp3.OkHttpClient;
 public final class GitHubController extends BaseNewsController<Repository> {
 
   @Inject ApolloClient apolloClient;
-  @Inject LinkManager linkManager;
+
+  /** There are only so many languages, but each result node carries its own copy. */
+  private final StringPool languagePool = new StringPool(64);
 
   public GitHubController() {
     super();
@@ -93,21 +99,17 @@ public final class GitHubController extends BaseNewsController<Repository> {
     return new ContextThemeWrapper(context, R.style.CatchUp_GitHub);
   }
 
-  @Override
-  protected void bindItemView(@NonNull Repository item, @NonNull NewsItemViewHolder holder) {
-    holder.hideComments();
-    holder.title(item.fullName());
-    holder.score(Pair.create("★", item.starsCount()));
-    holder.timestamp(item.createdAt());
-    holder.author(item.owner()
-        .login());
-    holder.source(null);
-    holder.tag(item.language());
-    holder.itemClicks()
-        .compose(transformUrlToMeta(item.htmlUrl()))
-        .flatMapCompletable(linkManager)
-        .to(new CompletableScoper(holder))
-        .subscribe();
+  @Override protected CatchUpItem toCatchUpItem(Repository item) {
+    return CatchUpItem.builder()
+        .id(item.stableId())
+        .title(item.fullName())
+        .score("★", item.starsCount())
+        .timestamp(item.createdAt())
+        .author(item.owner()
+            .login())
+        .tag(item.language())
+        .itemClickUrl(item.htmlUrl())
+        .build();
   }
 
   @NonNull @Override protected Single<List<Repository>> getDataSingle(DataRequest request) {
@@ -139,8 +141,8 @@ public final class GitHubController extends BaseNewsController<Repository> {
               if (langs != null && langs.nodes() != null) {
                 List<Node1> nodes = langs.nodes();
                 if (nodes != null && !nodes.isEmpty()) {
-                  primaryLanguage = nodes.get(0)
-                      .name();
+                  primaryLanguage = languagePool.intern(nodes.get(0)
+                      .name());
                 }
               }
               return Repository.builder()
@@ -148,8 +150,7 @@ public final class GitHubController extends BaseNewsController<Repository> {
                   .fullName(node.name())
                   .htmlUrl(node.url()
                       .toString())
-                  .id(node.id()
-                      .hashCode())
+                  .id(Hashing.hash64(node.id()))
                   .language(primaryLanguage)
                   .name(node.name())
                   .owner(User.create(node.owner()
@@ -172,21 +173,34 @@ public final class GitHubController extends BaseNewsController<Repository> {
   @dagger.Module(subcomponents = Component.class)
   public abstract static class Module {
 
-    private static final String SERVER_URL = "https://api.github.com/graphql";
+    static final String SERVER_URL = "https://api.github.com/graphql";
 
     @Qualifier
     private @interface InternalApi {}
 
+    @Provides @InternalApi @PerApplication static CircuitBreaker provideGitHubCircuitBreaker() {
+      return new CircuitBreaker("GitHub");
+    }
+
+    @Binds @IntoSet
+    abstract CircuitBreaker bindGitHubCircuitBreaker(@InternalApi CircuitBreaker circuitBreaker);
+
     @Binds @IntoMap @ControllerKey(GitHubController.class)
     abstract AndroidInjector.Factory<? extends Controller> bindGitHubControllerInjectorFactory(
         Component.Builder builder);
 
-    @Provides @InternalApi static OkHttpClient provideGitHubOkHttpClient(OkHttpClient client) {
+    @Provides @InternalApi @PerApplication
+    static OkHttpClient provideGitHubOkHttpClient(OkHttpClient client,
+        @InternalApi CircuitBreaker circuitBreaker) {
       return client.newBuilder()
+          .addInterceptor(circuitBreaker)
           .addInterceptor(AuthInterceptor.create("token", BuildConfig.GITHUB_DEVELOPER_TOKEN))
           .build();
     }
 
+    @Binds @IntoSet @ServiceClient
+    abstract OkHttpClient bindGitHubServiceClient(@InternalApi OkHttpClient client);
+
     @Provides static CacheKeyResolver provideCacheKeyResolver() {
       return new CacheKeyResolver() {
         @Nonnull @Override public CacheKey fromFieldRecordSet(@Nonnull Field field,
@@ -212,14 +226,15 @@ public final class GitHubController extends BaseNewsController<Repository> {
       };
     }
 
-    @Provides static NormalizedCacheFactory provideNormalizedCacheFactory(
+    @Provides @PerApplication static NormalizedCacheFactory provideNormalizedCacheFactory(
         @ApplicationContext Context context) {
       ApolloSqlHelper apolloSqlHelper = new ApolloSqlHelper(context, "githubdb");
       return new LruNormalizedCacheFactory(EvictionPolicy.NO_EVICTION,
           new SqlNormalizedCacheFactory(apolloSqlHelper));
     }
 
-    @Provides static ApolloClient provideApolloClient(@InternalApi final Lazy<OkHttpClient> client,
+    @Provides @PerApplication
+    static ApolloClient provideApolloClient(@InternalApi final Lazy<OkHttpClient> client,
         NormalizedCacheFactory cacheFactory,
         CacheKeyResolver resolver) {
       return ApolloClient.builder()
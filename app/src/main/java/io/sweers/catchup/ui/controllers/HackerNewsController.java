@@ -19,7 +19,7 @@ package io.sweers.catchup.ui.controllers;
 import android.content.Context;
 import android.os.Bundle;
 import android.support.annotation.NonNull;
-import android.support.v4.util.Pair;
+import android.support.annotation.Nullable;
 import android.text.TextUtils;
 import android.view.ContextThemeWrapper;
 import com.bluelinelabs.conductor.Controller;
@@ -29,8 +29,6 @@ import com.google.firebase.database.DatabaseReference;
 import com.google.firebase.database.FirebaseDatabase;
 import com.google.firebase.database.ValueEventListener;
 import com.google.firebase.remoteconfig.FirebaseRemoteConfig;
-import com.uber.autodispose.CompletableScoper;
-import com.uber.autodispose.ObservableScoper;
 import dagger.Binds;
 import dagger.Lazy;
 import dagger.Provides;
@@ -42,11 +40,18 @@ import io.reactivex.ObservableOnSubscribe;
 import io.reactivex.Single;
 import io.reactivex.SingleEmitter;
 import io.sweers.catchup.R;
-import io.sweers.catchup.data.LinkManager;
+import io.sweers.catchup.data.CatchUpItem;
 import io.sweers.catchup.data.hackernews.model.HackerNewsStory;
 import io.sweers.catchup.injection.ControllerKey;
+import io.sweers.catchup.injection.scopes.PerApplication;
 import io.sweers.catchup.ui.base.BaseNewsController;
+import io.sweers.catchup.util.StringPool;
+import io.sweers.catchup.util.collect.ColumnarItems;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import javax.inject.Inject;
 import okhttp3.HttpUrl;
 import timber.log.Timber;
@@ -55,10 +60,17 @@ import static io.sweers.catchup.data.RemoteConfigKeys.SMMRY_ENABLED;
 
 public final class HackerNewsController extends BaseNewsController<HackerNewsStory> {
 
-  @Inject LinkManager linkManager;
+  private static final long ITEM_TIMEOUT_MS = 3000;
+  private static final long CHUNK_WINDOW_MS = 100;
+
   @Inject FirebaseRemoteConfig remoteConfig;
   @Inject Lazy<FirebaseDatabase> database;
 
+  @Nullable private volatile long[] topStoryIds;
+
+  /** Authors and hosts recur a lot across pages, and every item is read up separately. */
+  private final StringPool stringPool = new StringPool(256);
+
   public HackerNewsController() {
     super();
   }
@@ -71,52 +83,98 @@ public final class HackerNewsController extends BaseNewsController<HackerNewsSto
     return new ContextThemeWrapper(context, R.style.CatchUp_HackerNews);
   }
 
-  @Override
-  protected void bindItemView(@NonNull HackerNewsStory story, @NonNull NewsItemViewHolder holder) {
-    holder.title(story.title());
-    holder.score(Pair.create("+", story.score()));
-    holder.timestamp(story.time());
-    holder.author(story.by());
-
+  @Override protected CatchUpItem toCatchUpItem(HackerNewsStory story) {
     String url = story.url();
-    if (url == null) {
-      holder.source(null);
-    } else {
-      holder.source(HttpUrl.parse(url)
-          .host());
-    }
-
-    int commentsCount = 0;
     // TODO Adapter to coerce this to Collections.emptyList()?
     List<Long> kids = story.kids();
-    if (kids != null) {
-      commentsCount = kids.size();
-    }
-    holder.comments(commentsCount);
-    holder.tag(null);
+    return CatchUpItem.builder()
+        .id(story.stableId())
+        .title(story.title())
+        .score("+", story.score())
+        .timestamp(story.time())
+        .author(stringPool.intern(story.by()))
+        .source(url == null ? null : stringPool.intern(HttpUrl.parse(url)
+            .host()))
+        .commentCount(kids == null ? 0 : kids.size())
+        .itemClickUrl(url)
+        .itemCommentClickUrl("https://news.ycombinator.com/item?id=" + story.id())
+        .build();
+  }
 
+  @Override protected boolean onItemLongClick(ColumnarItems items, int position) {
+    String url = items.itemClickUrl(position);
     if (remoteConfig.getBoolean(SMMRY_ENABLED) && !TextUtils.isEmpty(url)) {
-      holder.itemLongClicks()
-          .to(new ObservableScoper<>(holder))
-          .subscribe(SmmryController.showFor(this, url, story.title()));
+      SmmryController.show(this, url, items.title(position));
+      return true;
     }
-
-    holder.itemClicks()
-        .compose(transformUrlToMeta(url))
-        .flatMapCompletable(linkManager)
-        .to(new CompletableScoper(holder))
-        .subscribe();
-
-    holder.itemCommentClicks()
-        .compose(transformUrlToMeta("https://news.ycombinator.com/item?id=" + story.id()))
-        .flatMapCompletable(linkManager)
-        .to(new CompletableScoper(holder))
-        .subscribe();
+    return false;
   }
 
   @NonNull @Override
   protected Single<List<HackerNewsStory>> getDataSingle(DataRequest request) {
+    return getDataObservable(request).collectInto(new ArrayList<>(), List::addAll);
+  }
+
+  /**
+   * Items are fetched individually, so stream them out in order as they land rather than holding
+   * the page for the slowest one. Items that don't arrive within {@link #ITEM_TIMEOUT_MS} are
+   * pulled out of line and retried at the end of the page.
+   */
+  @NonNull @Override
+  protected Observable<List<HackerNewsStory>> getDataObservable(DataRequest request) {
     int itemsPerPage = 25; // TODO Pref this
+    int from = request.page() * itemsPerPage;
+    List<Long> stragglers = Collections.synchronizedList(new ArrayList<>());
+    return getTopStoryIds(request.fromRefresh())
+        .flatMapObservable(ids -> Observable.range(from,
+            Math.max(0, Math.min(ids.length, from + itemsPerPage) - from))
+            .map(i -> ids[i]))
+        .concatMapEager(id -> getItem(id).timeout(ITEM_TIMEOUT_MS, TimeUnit.MILLISECONDS)
+            .onErrorResumeNext(e -> {
+              if (e instanceof TimeoutException) {
+                Timber.d("Item %d timed out, retrying at the end of the page", id);
+                stragglers.add(id);
+                return Observable.empty();
+              }
+              return Observable.error(e);
+            }))
+        .concatWith(Observable.defer(() -> Observable.fromIterable(new ArrayList<>(stragglers)))
+            .concatMapEager(this::getItem))
+        .map(HackerNewsStory::create)
+        .buffer(CHUNK_WINDOW_MS, TimeUnit.MILLISECONDS, itemsPerPage)
+        .filter(chunk -> !chunk.isEmpty());
+  }
+
+  private Observable<DataSnapshot> getItem(long id) {
+    return Observable.create((ObservableOnSubscribe<DataSnapshot>) emitter -> {
+      DatabaseReference ref = database.get()
+          .getReference("v0/item/" + id);
+      ValueEventListener listener = new ValueEventListener() {
+        @Override public void onDataChange(DataSnapshot dataSnapshot) {
+          emitter.onNext(dataSnapshot);
+          emitter.onComplete();
+        }
+
+        @Override public void onCancelled(DatabaseError firebaseError) {
+          Timber.d("%d", firebaseError.getCode());
+          emitter.onError(firebaseError.toException());
+        }
+      };
+      emitter.setCancellable(() -> ref.removeEventListener(listener));
+      ref.addValueEventListener(listener);
+    });
+  }
+
+  /**
+   * Returns the top stories ID snapshot, only hitting the network if we don't have one yet or this
+   * is a refresh. Paging through a single snapshot keeps already loaded stories from shifting
+   * around (or being duplicated) as the live ranking changes between pages.
+   */
+  private Single<long[]> getTopStoryIds(boolean refresh) {
+    long[] ids = topStoryIds;
+    if (!refresh && ids != null) {
+      return Single.just(ids);
+    }
     return Single.create((SingleEmitter<DataSnapshot> emitter) -> {
       ValueEventListener listener = new ValueEventListener() {
         @Override public void onDataChange(DataSnapshot dataSnapshot) {
@@ -134,29 +192,15 @@ public final class HackerNewsController extends BaseNewsController<HackerNewsSto
       emitter.setCancellable(() -> ref.removeEventListener(listener));
       ref.addValueEventListener(listener);
     })
-        .flattenAsObservable(DataSnapshot::getChildren)
-        .skip(((request.page() + 1) * itemsPerPage) - itemsPerPage)
-        .take(itemsPerPage)
-        .map(d -> (Long) d.getValue())
-        .concatMapEager(id -> Observable.create((ObservableOnSubscribe<DataSnapshot>) emitter -> {
-          DatabaseReference ref = database.get()
-              .getReference("v0/item/" + id);
-          ValueEventListener listener = new ValueEventListener() {
-            @Override public void onDataChange(DataSnapshot dataSnapshot) {
-              emitter.onNext(dataSnapshot);
-              emitter.onComplete();
-            }
-
-            @Override public void onCancelled(DatabaseError firebaseError) {
-              Timber.d("%d", firebaseError.getCode());
-              emitter.onError(firebaseError.toException());
-            }
-          };
-          emitter.setCancellable(() -> ref.removeEventListener(listener));
-          ref.addValueEventListener(listener);
-        }))
-        .map(HackerNewsStory::create)
-        .toList();
+        .map(dataSnapshot -> {
+          long[] newIds = new long[(int) dataSnapshot.getChildrenCount()];
+          int i = 0;
+          for (DataSnapshot child : dataSnapshot.getChildren()) {
+            newIds[i++] = (Long) child.getValue();
+          }
+          return newIds;
+        })
+        .doOnSuccess(newIds -> topStoryIds = newIds);
   }
 
   @Subcomponent
@@ -169,12 +213,14 @@ public final class HackerNewsController extends BaseNewsController<HackerNewsSto
   @dagger.Module(subcomponents = Component.class)
   public abstract static class Module {
 
+    static final String DATABASE_URL = "https://hacker-news.firebaseio.com/";
+
     @Binds @IntoMap @ControllerKey(HackerNewsController.class)
     abstract AndroidInjector.Factory<? extends Controller> bindHackerNewsControllerInjectorFactory(
         Component.Builder builder);
 
-    @Provides static FirebaseDatabase provideDataBase() {
-      return FirebaseDatabase.getInstance("https://hacker-news.firebaseio.com/");
+    @Provides @PerApplication static FirebaseDatabase provideDataBase() {
+      return FirebaseDatabase.getInstance(DATABASE_URL);
     }
   }
 }
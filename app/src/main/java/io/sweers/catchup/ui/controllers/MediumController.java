@@ -19,39 +19,44 @@ package io.sweers.catchup.ui.controllers;
 import android.content.Context;
 import android.os.Bundle;
 import android.support.annotation.NonNull;
-import android.support.v4.util.Pair;
 import android.view.ContextThemeWrapper;
 import com.bluelinelabs.conductor.Controller;
 import com.google.firebase.remoteconfig.FirebaseRemoteConfig;
 import com.serjltt.moshi.adapters.Wrapped;
 import com.squareup.moshi.Moshi;
-import com.uber.autodispose.CompletableScoper;
-import com.uber.autodispose.ObservableScoper;
 import dagger.Binds;
 import dagger.Lazy;
 import dagger.Provides;
 import dagger.Subcomponent;
 import dagger.android.AndroidInjector;
 import dagger.multibindings.IntoMap;
-import io.reactivex.Observable;
+import dagger.multibindings.IntoSet;
 import io.reactivex.Single;
 import io.sweers.catchup.BuildConfig;
 import io.sweers.catchup.R;
+import io.sweers.catchup.data.CachePolicy;
+import io.sweers.catchup.data.CatchUpItem;
+import io.sweers.catchup.data.CircuitBreaker;
 import io.sweers.catchup.data.EpochInstantJsonAdapter;
-import io.sweers.catchup.data.LinkManager;
+import io.sweers.catchup.data.RequestHedger;
+import io.sweers.catchup.data.StaleWhileRevalidate;
+import io.sweers.catchup.data.medium.MediumJsonInterceptor;
+import io.sweers.catchup.data.medium.MediumPostsJsonAdapter;
 import io.sweers.catchup.data.medium.MediumService;
 import io.sweers.catchup.data.medium.model.Collection;
 import io.sweers.catchup.data.medium.model.MediumPost;
 import io.sweers.catchup.injection.ControllerKey;
+import io.sweers.catchup.injection.qualifiers.ServiceClient;
+import io.sweers.catchup.injection.qualifiers.Synchronous;
+import io.sweers.catchup.injection.scopes.PerApplication;
 import io.sweers.catchup.ui.base.BaseNewsController;
+import io.sweers.catchup.util.collect.ColumnarItems;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
 import javax.inject.Inject;
 import javax.inject.Qualifier;
+import okhttp3.Call;
 import okhttp3.OkHttpClient;
-import okhttp3.Request;
-import okhttp3.Response;
-import okio.BufferedSource;
 import org.threeten.bp.Instant;
 import retrofit2.Retrofit;
 import retrofit2.adapter.rxjava2.RxJava2CallAdapterFactory;
@@ -61,9 +66,9 @@ import static io.sweers.catchup.data.RemoteConfigKeys.SMMRY_ENABLED;
 
 public final class MediumController extends BaseNewsController<MediumPost> {
 
-  @Inject LinkManager linkManager;
   @Inject FirebaseRemoteConfig remoteConfig;
   @Inject MediumService service;
+  @Inject @Module.InternalApi StaleWhileRevalidate staleWhileRevalidate;
 
   public MediumController() {
     super();
@@ -77,69 +82,45 @@ public final class MediumController extends BaseNewsController<MediumPost> {
     return new ContextThemeWrapper(context, R.style.CatchUp_Medium);
   }
 
-  @Override
-  protected void bindItemView(@NonNull MediumPost item, @NonNull NewsItemViewHolder holder) {
-    holder.title(item.post()
-        .title());
-
-    holder.score(Pair.create(
-        "\u2665\uFE0E", // Because lol: https://code.google.com/p/android/issues/detail?id=231068
-        item.post()
-            .virtuals()
-            .recommends()));
-    holder.timestamp(item.post()
-        .createdAt());
-
-    holder.author(item.user()
-        .name());
-
+  @Override protected CatchUpItem toCatchUpItem(MediumPost item) {
     Collection collection = item.collection();
-    if (collection != null) {
-      holder.tag(collection.name());
-    } else {
-      holder.tag(null);
-    }
-
-    holder.comments(item.post()
-        .virtuals()
-        .responsesCreatedCount());
-    holder.source(null);
+    return CatchUpItem.builder()
+        .id(item.stableId())
+        .title(item.post()
+            .title())
+        // Because lol: https://code.google.com/p/android/issues/detail?id=231068
+        .score("\u2665\uFE0E",
+            item.post()
+                .virtuals()
+                .recommends())
+        .timestamp(item.post()
+            .createdAt())
+        .author(item.user()
+            .name())
+        .tag(collection != null ? collection.name() : null)
+        .commentCount(item.post()
+            .virtuals()
+            .responsesCreatedCount())
+        .itemClickUrl(item.constructUrl())
+        .itemCommentClickUrl(item.constructCommentsUrl())
+        .build();
+  }
 
+  @Override protected boolean onItemLongClick(ColumnarItems items, int position) {
     if (remoteConfig.getBoolean(SMMRY_ENABLED)) {
-      holder.itemLongClicks()
-          .to(new ObservableScoper<>(holder))
-          .subscribe(SmmryController.showFor(
-              this,
-              item.constructUrl(),
-              item.post()
-                  .title()));
+      SmmryController.show(this, items.itemClickUrl(position), items.title(position));
+      return true;
     }
-
-    holder.itemClicks()
-        .compose(transformUrlToMeta(item.constructUrl()))
-        .flatMapCompletable(linkManager)
-        .to(new CompletableScoper(holder))
-        .subscribe();
-    holder.itemCommentClicks()
-        .compose(transformUrlToMeta(item.constructCommentsUrl()))
-        .flatMapCompletable(linkManager)
-        .to(new CompletableScoper(holder))
-        .subscribe();
+    return false;
   }
 
   @NonNull @Override protected Single<List<MediumPost>> getDataSingle(DataRequest request) {
     setMoreDataAvailable(false);
-    return service.top()
-        .flatMap(references -> Observable.fromIterable(references.post()
-            .values())
-            .map(post -> MediumPost.builder()
-                .post(post)
-                .user(references.user()
-                    .get(post.creatorId()))
-                .collection(references.collection()
-                    .get(post.homeCollectionId()))
-                .build()))
-        .toList();
+    return service.top();
+  }
+
+  @Override protected StaleWhileRevalidate staleWhileRevalidate() {
+    return staleWhileRevalidate;
   }
 
   @Subcomponent
@@ -155,42 +136,51 @@ public final class MediumController extends BaseNewsController<MediumPost> {
     @Qualifier
     private @interface InternalApi {}
 
+    @Provides @InternalApi @PerApplication static CircuitBreaker provideMediumCircuitBreaker() {
+      return new CircuitBreaker("Medium");
+    }
+
+    @Binds @IntoSet
+    abstract CircuitBreaker bindMediumCircuitBreaker(@InternalApi CircuitBreaker circuitBreaker);
+
     @Binds @IntoMap @ControllerKey(MediumController.class)
     abstract AndroidInjector.Factory<? extends Controller> bindMediumControllerInjectorFactory(
         Component.Builder builder);
 
-    @Provides @InternalApi static OkHttpClient provideMediumOkHttpClient(OkHttpClient client) {
-      return client.newBuilder()
-          .addInterceptor(chain -> {
-            Request request = chain.request();
-            request = request.newBuilder()
-                .url(request.url()
-                    .newBuilder()
-                    .addQueryParameter("format", "json")
-                    .build())
-                .build();
-            Response response = chain.proceed(request);
-            BufferedSource source = response.body()
-                .source();
-            source.skip(source.indexOf((byte) '{'));
-            return response;
-          })
-          .build();
+    @Provides @InternalApi @PerApplication
+    static StaleWhileRevalidate provideMediumStaleWhileRevalidate(OkHttpClient client,
+        @InternalApi CircuitBreaker circuitBreaker) {
+      return new StaleWhileRevalidate(client.newBuilder()
+          .addInterceptor(circuitBreaker)
+          .addInterceptor(new MediumJsonInterceptor())
+          .build(), CachePolicy.create(15, 6 * 60, TimeUnit.MINUTES));
     }
 
-    @Provides @InternalApi static Moshi provideMediumMoshi(Moshi moshi) {
+    @Provides @IntoSet @ServiceClient static OkHttpClient provideMediumServiceClient(
+        @InternalApi StaleWhileRevalidate staleWhileRevalidate) {
+      return staleWhileRevalidate.client();
+    }
+
+    @Provides @InternalApi @PerApplication static Moshi provideMediumMoshi(Moshi moshi) {
       return moshi.newBuilder()
           .add(Instant.class, new EpochInstantJsonAdapter(TimeUnit.MILLISECONDS))
+          .add(MediumPostsJsonAdapter.FACTORY)
           .add(Wrapped.ADAPTER_FACTORY)
           .build();
     }
 
-    @Provides
-    static MediumService provideMediumService(@InternalApi final Lazy<OkHttpClient> client,
+    @Provides @InternalApi @PerApplication static Call.Factory provideMediumCallFactory(
+        @InternalApi StaleWhileRevalidate staleWhileRevalidate,
+        RequestHedger requestHedger) {
+      return staleWhileRevalidate.callFactory(requestHedger.wrap(staleWhileRevalidate.client()));
+    }
+
+    @Provides @PerApplication
+    static MediumService provideMediumService(@InternalApi final Lazy<Call.Factory> callFactory,
         @InternalApi Moshi moshi,
-        RxJava2CallAdapterFactory rxJavaCallAdapterFactory) {
+        @Synchronous RxJava2CallAdapterFactory rxJavaCallAdapterFactory) {
       Retrofit retrofit = new Retrofit.Builder().baseUrl(MediumService.ENDPOINT)
-          .callFactory(request -> client.get()
+          .callFactory(request -> callFactory.get()
               .newCall(request))
           .addCallAdapterFactory(rxJavaCallAdapterFactory)
           .addConverterFactory(MoshiConverterFactory.create(moshi))
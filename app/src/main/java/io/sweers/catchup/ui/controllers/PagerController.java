@@ -55,6 +55,13 @@ import dagger.multibindings.IntoMap;
 import hu.akarnokd.rxjava.interop.RxJavaInterop;
 import io.sweers.catchup.P;
 import io.sweers.catchup.R;
+import io.sweers.catchup.data.RequestScheduler;
+import io.sweers.catchup.data.designernews.DesignerNewsService;
+import io.sweers.catchup.data.dribbble.DribbbleService;
+import io.sweers.catchup.data.medium.MediumService;
+import io.sweers.catchup.data.producthunt.ProductHuntService;
+import io.sweers.catchup.data.reddit.RedditService;
+import io.sweers.catchup.data.slashdot.SlashdotService;
 import io.sweers.catchup.injection.ConductorInjection;
 import io.sweers.catchup.injection.ControllerKey;
 import io.sweers.catchup.injection.qualifiers.preferences.NavBarTheme;
@@ -64,8 +71,12 @@ import io.sweers.catchup.ui.activity.SettingsActivity;
 import io.sweers.catchup.ui.base.ButterKnifeController;
 import io.sweers.catchup.util.ApiUtil;
 import io.sweers.catchup.util.UiUtil;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import javax.inject.Inject;
+import okhttp3.HttpUrl;
 
 import static io.sweers.catchup.util.UiUtil.setLightStatusBar;
 
@@ -91,10 +102,24 @@ public class PagerController extends ButterKnifeController {
       R.drawable.logo_github, R.string.github, R.color.githubAccent
   }
   };
+  /**
+   * The host each page loads from, in {@link #PAGE_DATA} order. The application also resolves
+   * these ahead of time.
+   */
+  public static final List<String> PAGE_HOSTS = Collections.unmodifiableList(Arrays.asList(
+      host(HackerNewsController.Module.DATABASE_URL),
+      host(RedditService.ENDPOINT),
+      host(MediumService.ENDPOINT),
+      host(ProductHuntService.ENDPOINT),
+      host(SlashdotService.ENDPOINT),
+      host(DesignerNewsService.ENDPOINT),
+      host(DribbbleService.ENDPOINT),
+      host(GitHubController.Module.SERVER_URL)));
   private final int[] resolvedColorCache = new int[PAGE_DATA.length];
   private final ArgbEvaluator argbEvaluator = new ArgbEvaluator();
 
   @Inject @NavBarTheme Lazy<Preference<Boolean>> themeNavigationBarPref;
+  @Inject RequestScheduler requestScheduler;
   @BindView(R.id.tab_layout) TabLayout tabLayout;
   @BindView(R.id.view_pager) ViewPager viewPager;
   @BindView(R.id.toolbar) Toolbar toolbar;
@@ -323,12 +348,14 @@ public class PagerController extends ButterKnifeController {
 
       @Override public void onPageSelected(int position) {
         toolbar.setTitle(PAGE_DATA[position][1]);
+        prioritizePage(position);
       }
 
       @Override public void onPageScrollStateChanged(int state) {
         // NO-OP.
       }
     });
+    prioritizePage(viewPager.getCurrentItem());
 
     tabLayout.addOnTabSelectedListener(new TabLayout.OnTabSelectedListener() {
       @Override public void onTabSelected(TabLayout.Tab tab) {
@@ -350,6 +377,26 @@ public class PagerController extends ButterKnifeController {
     });
   }
 
+  /**
+   * Lets requests for the page at {@code position} go ahead of the others, followed by those for
+   * the pages either side of it.
+   */
+  private void prioritizePage(int position) {
+    List<String> adjacentHosts = new ArrayList<>(2);
+    if (position > 0) {
+      adjacentHosts.add(PAGE_HOSTS.get(position - 1));
+    }
+    if (position < PAGE_HOSTS.size() - 1) {
+      adjacentHosts.add(PAGE_HOSTS.get(position + 1));
+    }
+    requestScheduler.prioritize(Collections.singleton(PAGE_HOSTS.get(position)), adjacentHosts);
+  }
+
+  private static String host(String url) {
+    return HttpUrl.parse(url)
+        .host();
+  }
+
   @ColorInt private int getAndSaveColor(int position) {
     if (resolvedColorCache[position] == R.color.no_color) {
       resolvedColorCache[position] = ContextCompat.getColor(getActivity(), PAGE_DATA[position][2]);
@@ -19,33 +19,43 @@ package io.sweers.catchup.ui.controllers;
 import android.content.Context;
 import android.os.Bundle;
 import android.support.annotation.NonNull;
-import android.support.v4.util.Pair;
 import android.view.ContextThemeWrapper;
 import com.bluelinelabs.conductor.Controller;
 import com.serjltt.moshi.adapters.Wrapped;
 import com.squareup.moshi.Moshi;
-import com.uber.autodispose.CompletableScoper;
 import dagger.Binds;
 import dagger.Lazy;
 import dagger.Provides;
 import dagger.Subcomponent;
 import dagger.android.AndroidInjector;
 import dagger.multibindings.IntoMap;
+import dagger.multibindings.IntoSet;
 import io.reactivex.Observable;
 import io.reactivex.Single;
 import io.sweers.catchup.BuildConfig;
 import io.sweers.catchup.R;
 import io.sweers.catchup.data.AuthInterceptor;
+import io.sweers.catchup.data.CachePolicy;
+import io.sweers.catchup.data.CatchUpItem;
+import io.sweers.catchup.data.CircuitBreaker;
 import io.sweers.catchup.data.ISO8601InstantAdapter;
-import io.sweers.catchup.data.LinkManager;
+import io.sweers.catchup.data.RequestHedger;
+import io.sweers.catchup.data.StaleWhileRevalidate;
+import io.sweers.catchup.data.adapters.InternJsonAdapter;
 import io.sweers.catchup.data.producthunt.ProductHuntService;
 import io.sweers.catchup.data.producthunt.model.Post;
 import io.sweers.catchup.injection.ControllerKey;
+import io.sweers.catchup.injection.qualifiers.ServiceClient;
+import io.sweers.catchup.injection.qualifiers.Synchronous;
+import io.sweers.catchup.injection.scopes.PerApplication;
 import io.sweers.catchup.ui.base.BaseNewsController;
+import io.sweers.catchup.util.StringPool;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 import javax.inject.Inject;
 import javax.inject.Qualifier;
+import okhttp3.Call;
 import okhttp3.OkHttpClient;
 import org.threeten.bp.Instant;
 import retrofit2.Retrofit;
@@ -55,7 +65,7 @@ import retrofit2.converter.moshi.MoshiConverterFactory;
 public final class ProductHuntController extends BaseNewsController<Post> {
 
   @Inject ProductHuntService service;
-  @Inject LinkManager linkManager;
+  @Inject @Module.InternalApi StaleWhileRevalidate staleWhileRevalidate;
 
   public ProductHuntController() {
     super();
@@ -69,33 +79,28 @@ public final class ProductHuntController extends BaseNewsController<Post> {
     return new ContextThemeWrapper(context, R.style.CatchUp_ProductHunt);
   }
 
-  @Override protected void bindItemView(@NonNull Post item, @NonNull NewsItemViewHolder holder) {
-    holder.title(item.name());
-    holder.score(Pair.create("▲", item.votes_count()));
-    holder.timestamp(item.created_at());
-    holder.author(item.user()
-        .name());
-    holder.tag(item.getFirstTopic());
-    holder.source(null);
-    holder.comments(item.comments_count());
-
-    holder.itemClicks()
-        .compose(transformUrlToMeta(item.redirect_url()))
-        .flatMapCompletable(linkManager)
-        .to(new CompletableScoper(holder))
-        .subscribe();
-    holder.itemCommentClicks()
-        .compose(transformUrlToMeta(item.discussion_url()))
-        .flatMapCompletable(linkManager)
-        .to(new CompletableScoper(holder))
-        .subscribe();
+  @Override protected CatchUpItem toCatchUpItem(Post item) {
+    return CatchUpItem.builder()
+        .id(item.stableId())
+        .title(item.name())
+        .score("▲", item.votes_count())
+        .timestamp(item.created_at())
+        .author(item.user()
+            .name())
+        .tag(item.getFirstTopic())
+        .commentCount(item.comments_count())
+        .itemClickUrl(item.redirect_url())
+        .itemCommentClickUrl(item.discussion_url())
+        .build();
   }
 
   @NonNull @Override protected Single<List<Post>> getDataSingle(DataRequest request) {
     if (request.multipage()) {
-      // Backfill pages
+      // Backfill pages. The service's calls are synchronous, so each page gets a thread of its own
+      // to load in parallel, and concatMapEager keeps them in order.
       return Observable.range(0, request.page())
-          .flatMapSingle(this::getPage)
+          .concatMapEager(page -> staleWhileRevalidate.inParallel(getPage(page))
+              .toObservable())
           .collectInto(new ArrayList<>(), List::addAll);
     } else if (request.fromRefresh()) {
       return getPage(request.page());
@@ -104,6 +109,10 @@ public final class ProductHuntController extends BaseNewsController<Post> {
     }
   }
 
+  @Override protected StaleWhileRevalidate staleWhileRevalidate() {
+    return staleWhileRevalidate;
+  }
+
   private Single<List<Post>> getPage(int page) {
     return service.getPosts(page);
   }
@@ -118,33 +127,60 @@ public final class ProductHuntController extends BaseNewsController<Post> {
   @dagger.Module(subcomponents = Component.class)
   public abstract static class Module {
 
+    /** Product Hunt only has a few dozen topics in rotation. */
+    private static final int TOPIC_POOL_SIZE = 64;
+
     @Qualifier
     private @interface InternalApi {}
 
+    @Provides @InternalApi @PerApplication
+    static CircuitBreaker provideProductHuntCircuitBreaker() {
+      return new CircuitBreaker("Product Hunt");
+    }
+
+    @Binds @IntoSet
+    abstract CircuitBreaker bindProductHuntCircuitBreaker(
+        @InternalApi CircuitBreaker circuitBreaker);
+
     @Binds @IntoMap @ControllerKey(ProductHuntController.class)
     abstract AndroidInjector.Factory<? extends Controller> bindProductHuntControllerInjectorFactory(
         Component.Builder builder);
 
-    @Provides @InternalApi static OkHttpClient provideProductHuntOkHttpClient(OkHttpClient client) {
-      return client.newBuilder()
+    @Provides @InternalApi @PerApplication
+    static StaleWhileRevalidate provideProductHuntStaleWhileRevalidate(OkHttpClient client,
+        @InternalApi CircuitBreaker circuitBreaker) {
+      return new StaleWhileRevalidate(client.newBuilder()
+          .addInterceptor(circuitBreaker)
           .addInterceptor(AuthInterceptor.create("Bearer",
               BuildConfig.PROCUCT_HUNT_DEVELOPER_TOKEN))
-          .build();
+          .build(), CachePolicy.create(15, 6 * 60, TimeUnit.MINUTES));
+    }
+
+    @Provides @IntoSet @ServiceClient static OkHttpClient provideProductHuntServiceClient(
+        @InternalApi StaleWhileRevalidate staleWhileRevalidate) {
+      return staleWhileRevalidate.client();
     }
 
-    @Provides @InternalApi static Moshi provideProductHuntMoshi(Moshi moshi) {
+    @Provides @InternalApi @PerApplication static Moshi provideProductHuntMoshi(Moshi moshi) {
       return moshi.newBuilder()
           .add(Instant.class, new ISO8601InstantAdapter())
           .add(Wrapped.ADAPTER_FACTORY)
+          .add(InternJsonAdapter.newFactory(new StringPool(TOPIC_POOL_SIZE)))
           .build();
     }
 
-    @Provides static ProductHuntService provideProductHuntService(
-        @InternalApi final Lazy<OkHttpClient> client,
+    @Provides @InternalApi @PerApplication static Call.Factory provideProductHuntCallFactory(
+        @InternalApi StaleWhileRevalidate staleWhileRevalidate,
+        RequestHedger requestHedger) {
+      return staleWhileRevalidate.callFactory(requestHedger.wrap(staleWhileRevalidate.client()));
+    }
+
+    @Provides @PerApplication static ProductHuntService provideProductHuntService(
+        @InternalApi final Lazy<Call.Factory> callFactory,
         @InternalApi Moshi moshi,
-        RxJava2CallAdapterFactory rxJavaCallAdapterFactory) {
+        @Synchronous RxJava2CallAdapterFactory rxJavaCallAdapterFactory) {
       return new Retrofit.Builder().baseUrl(ProductHuntService.ENDPOINT)
-          .callFactory(request -> client.get()
+          .callFactory(request -> callFactory.get()
               .newCall(request))
           .addCallAdapterFactory(rxJavaCallAdapterFactory)
           .addConverterFactory(MoshiConverterFactory.create(moshi))
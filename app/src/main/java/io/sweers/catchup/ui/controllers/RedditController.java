@@ -20,36 +20,43 @@ import android.content.Context;
 import android.os.Bundle;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
-import android.support.v4.util.Pair;
 import android.view.ContextThemeWrapper;
 import com.bluelinelabs.conductor.Controller;
 import com.google.firebase.remoteconfig.FirebaseRemoteConfig;
 import com.squareup.moshi.Moshi;
-import com.uber.autodispose.CompletableScoper;
-import com.uber.autodispose.ObservableScoper;
 import dagger.Binds;
 import dagger.Lazy;
 import dagger.Provides;
 import dagger.Subcomponent;
 import dagger.android.AndroidInjector;
 import dagger.multibindings.IntoMap;
+import dagger.multibindings.IntoSet;
 import io.reactivex.Single;
 import io.sweers.catchup.BuildConfig;
 import io.sweers.catchup.R;
+import io.sweers.catchup.data.CachePolicy;
+import io.sweers.catchup.data.CatchUpItem;
+import io.sweers.catchup.data.CircuitBreaker;
 import io.sweers.catchup.data.EpochInstantJsonAdapter;
-import io.sweers.catchup.data.LinkManager;
+import io.sweers.catchup.data.RequestHedger;
+import io.sweers.catchup.data.StaleWhileRevalidate;
+import io.sweers.catchup.data.adapters.InternJsonAdapter;
 import io.sweers.catchup.data.reddit.RedditService;
 import io.sweers.catchup.data.reddit.model.RedditLink;
 import io.sweers.catchup.data.reddit.model.RedditObjectFactory;
 import io.sweers.catchup.injection.ControllerKey;
+import io.sweers.catchup.injection.qualifiers.ServiceClient;
+import io.sweers.catchup.injection.qualifiers.Synchronous;
+import io.sweers.catchup.injection.scopes.PerApplication;
 import io.sweers.catchup.ui.base.BaseNewsController;
+import io.sweers.catchup.util.StringPool;
+import io.sweers.catchup.util.collect.ColumnarItems;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
 import javax.inject.Inject;
 import javax.inject.Qualifier;
-import okhttp3.HttpUrl;
+import okhttp3.Call;
 import okhttp3.OkHttpClient;
-import okhttp3.Request;
 import org.threeten.bp.Instant;
 import retrofit2.Retrofit;
 import retrofit2.adapter.rxjava2.RxJava2CallAdapterFactory;
@@ -60,7 +67,7 @@ import static io.sweers.catchup.data.RemoteConfigKeys.SMMRY_ENABLED;
 public final class RedditController extends BaseNewsController<RedditLink> {
 
   @Inject RedditService service;
-  @Inject LinkManager linkManager;
+  @Inject @Module.InternalApi StaleWhileRevalidate staleWhileRevalidate;
   @Inject FirebaseRemoteConfig remoteConfig;
 
   @Nullable private String lastSeen = null;
@@ -77,39 +84,27 @@ public final class RedditController extends BaseNewsController<RedditLink> {
     return new ContextThemeWrapper(context, R.style.CatchUp_Reddit);
   }
 
-  @Override
-  protected void bindItemView(@NonNull RedditLink link, @NonNull NewsItemViewHolder holder) {
-    holder.title(link.title());
-
-    holder.score(Pair.create("+", link.score()));
-    holder.timestamp(link.createdUtc());
-    holder.author("/u/" + link.author());
-
-    if (link.domain() != null) {
-      holder.source(link.domain());
-    } else {
-      holder.source("self");
-    }
-
-    holder.comments(link.commentsCount());
-    holder.tag(link.subreddit());
-
-    holder.itemClicks()
-        .compose(transformUrlToMeta(link.url()))
-        .flatMapCompletable(linkManager)
-        .to(new CompletableScoper(holder))
-        .subscribe();
+  @Override protected CatchUpItem toCatchUpItem(RedditLink link) {
+    return CatchUpItem.builder()
+        .id(link.stableId())
+        .title(link.title())
+        .score("+", link.score())
+        .timestamp(link.createdUtc())
+        .author("/u/" + link.author())
+        .source(link.domain() != null ? link.domain() : "self")
+        .commentCount(link.commentsCount())
+        .tag(link.subreddit())
+        .itemClickUrl(link.url())
+        .itemCommentClickUrl("https://reddit.com/comments/" + link.id())
+        .build();
+  }
 
+  @Override protected boolean onItemLongClick(ColumnarItems items, int position) {
     if (remoteConfig.getBoolean(SMMRY_ENABLED)) {
-      holder.itemLongClicks()
-          .to(new ObservableScoper<>(holder))
-          .subscribe(SmmryController.showFor(this, link.url(), link.title()));
+      SmmryController.show(this, items.itemClickUrl(position), items.title(position));
+      return true;
     }
-    holder.itemCommentClicks()
-        .compose(transformUrlToMeta("https://reddit.com/comments/" + link.id()))
-        .flatMapCompletable(linkManager)
-        .to(new CompletableScoper(holder))
-        .subscribe();
+    return false;
   }
 
   @NonNull @Override protected Single<List<RedditLink>> getDataSingle(DataRequest request) {
@@ -123,6 +118,10 @@ public final class RedditController extends BaseNewsController<RedditLink> {
         });
   }
 
+  @Override protected StaleWhileRevalidate staleWhileRevalidate() {
+    return staleWhileRevalidate;
+  }
+
   @Subcomponent
   public interface Component extends AndroidInjector<RedditController> {
 
@@ -133,42 +132,61 @@ public final class RedditController extends BaseNewsController<RedditLink> {
   @dagger.Module(subcomponents = Component.class)
   public abstract static class Module {
 
+    /** Enough for a few pages' worth of subreddits and domains. */
+    private static final int STRING_POOL_SIZE = 256;
+
     @Qualifier
     private @interface InternalApi {}
 
+    @Provides @InternalApi @PerApplication static CircuitBreaker provideRedditCircuitBreaker() {
+      return new CircuitBreaker("Reddit");
+    }
+
+    @Binds @IntoSet
+    abstract CircuitBreaker bindRedditCircuitBreaker(@InternalApi CircuitBreaker circuitBreaker);
+
     @Binds @IntoMap @ControllerKey(RedditController.class)
     abstract AndroidInjector.Factory<? extends Controller> bindRedditControllerInjectorFactory(
         Component.Builder builder);
 
-    @InternalApi @Provides static Moshi provideMoshi(Moshi upstreamMoshi) {
+    @InternalApi @Provides @PerApplication static Moshi provideMoshi(Moshi upstreamMoshi) {
       return upstreamMoshi.newBuilder()
           .add(RedditObjectFactory.getInstance())
           .add(Instant.class, new EpochInstantJsonAdapter(TimeUnit.SECONDS))
+          .add(InternJsonAdapter.newFactory(new StringPool(STRING_POOL_SIZE)))
           .build();
     }
 
-    @InternalApi @Provides static OkHttpClient provideRedditOkHttpClient(OkHttpClient client) {
-      return client.newBuilder()
-          .addNetworkInterceptor(chain -> {
-            Request request = chain.request();
-            HttpUrl url = request.url();
-            request = request.newBuilder()
-                .header("User-Agent", "CatchUp app by /u/pandanomic")
-                .url(url.newBuilder()
-                    .encodedPath(url.encodedPath() + ".json")
-                    .build())
-                .build();
-            return chain.proceed(request);
-          })
-          .build();
+    @Provides @InternalApi @PerApplication
+    static StaleWhileRevalidate provideRedditStaleWhileRevalidate(OkHttpClient client,
+        @InternalApi CircuitBreaker circuitBreaker) {
+      // The front page moves quickly, so keep this short.
+      return new StaleWhileRevalidate(client.newBuilder()
+          .addInterceptor(circuitBreaker)
+          .addNetworkInterceptor(chain -> chain.proceed(chain.request()
+              .newBuilder()
+              .header("User-Agent", "CatchUp app by /u/pandanomic")
+              .build()))
+          .build(), CachePolicy.create(5, 60, TimeUnit.MINUTES));
+    }
+
+    @Provides @IntoSet @ServiceClient static OkHttpClient provideRedditServiceClient(
+        @InternalApi StaleWhileRevalidate staleWhileRevalidate) {
+      return staleWhileRevalidate.client();
+    }
+
+    @Provides @InternalApi @PerApplication static Call.Factory provideRedditCallFactory(
+        @InternalApi StaleWhileRevalidate staleWhileRevalidate,
+        RequestHedger requestHedger) {
+      return staleWhileRevalidate.callFactory(requestHedger.wrap(staleWhileRevalidate.client()));
     }
 
-    @Provides
-    static RedditService provideRedditService(@InternalApi final Lazy<OkHttpClient> client,
-        RxJava2CallAdapterFactory rxJavaCallAdapterFactory,
+    @Provides @PerApplication
+    static RedditService provideRedditService(@InternalApi final Lazy<Call.Factory> callFactory,
+        @Synchronous RxJava2CallAdapterFactory rxJavaCallAdapterFactory,
         @InternalApi Moshi moshi) {
       Retrofit retrofit = new Retrofit.Builder().baseUrl(RedditService.ENDPOINT)
-          .callFactory(request -> client.get()
+          .callFactory(request -> callFactory.get()
               .newCall(request))
           .addCallAdapterFactory(rxJavaCallAdapterFactory)
           .addConverterFactory(MoshiConverterFactory.create(moshi))
@@ -20,36 +20,43 @@ import android.content.Context;
 import android.os.Bundle;
 import android.view.ContextThemeWrapper;
 import com.bluelinelabs.conductor.Controller;
-import com.uber.autodispose.CompletableScoper;
 import dagger.Binds;
 import dagger.Lazy;
 import dagger.Provides;
 import dagger.Subcomponent;
 import dagger.android.AndroidInjector;
 import dagger.multibindings.IntoMap;
+import dagger.multibindings.IntoSet;
 import io.reactivex.Single;
 import io.sweers.catchup.BuildConfig;
 import io.sweers.catchup.R;
-import io.sweers.catchup.data.LinkManager;
+import io.sweers.catchup.data.CachePolicy;
+import io.sweers.catchup.data.CatchUpItem;
+import io.sweers.catchup.data.CircuitBreaker;
+import io.sweers.catchup.data.RequestHedger;
+import io.sweers.catchup.data.StaleWhileRevalidate;
 import io.sweers.catchup.data.slashdot.Entry;
+import io.sweers.catchup.data.slashdot.SlashdotFeedConverterFactory;
 import io.sweers.catchup.data.slashdot.SlashdotService;
 import io.sweers.catchup.injection.ControllerKey;
+import io.sweers.catchup.injection.qualifiers.ServiceClient;
+import io.sweers.catchup.injection.qualifiers.Synchronous;
+import io.sweers.catchup.injection.scopes.PerApplication;
 import io.sweers.catchup.ui.base.BaseNewsController;
-import io.sweers.catchup.util.Instants;
-import io.sweers.catchup.util.Strings;
+import io.sweers.catchup.util.StringPool;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 import javax.inject.Inject;
 import javax.inject.Qualifier;
+import okhttp3.Call;
 import okhttp3.OkHttpClient;
-import okhttp3.Response;
 import retrofit2.Retrofit;
 import retrofit2.adapter.rxjava2.RxJava2CallAdapterFactory;
-import retrofit2.converter.simplexml.SimpleXmlConverterFactory;
 
 public final class SlashdotController extends BaseNewsController<Entry> {
 
   @Inject SlashdotService service;
-  @Inject LinkManager linkManager;
+  @Inject @Module.InternalApi StaleWhileRevalidate staleWhileRevalidate;
 
   public SlashdotController() {
     super();
@@ -63,28 +70,18 @@ public final class SlashdotController extends BaseNewsController<Entry> {
     return new ContextThemeWrapper(context, R.style.CatchUp_Slashdot);
   }
 
-  @Override protected void bindItemView(Entry entry, NewsItemViewHolder holder) {
-    holder.title(Strings.unescapeJavaString(entry.title));
-
-    holder.score(null);
-    holder.timestamp(Instants.parsePossiblyOffsetInstant(entry.updated));
-    holder.author(entry.author.name);
-
-    holder.source(entry.department);
-
-    holder.comments(entry.comments);
-    holder.tag(entry.section);
-
-    holder.itemClicks()
-        .compose(transformUrlToMeta(entry.id))
-        .flatMapCompletable(linkManager)
-        .to(new CompletableScoper(holder))
-        .subscribe();
-    holder.itemCommentClicks()
-        .compose(transformUrlToMeta(entry.id + "#comments"))
-        .flatMapCompletable(linkManager)
-        .to(new CompletableScoper(holder))
-        .subscribe();
+  @Override protected CatchUpItem toCatchUpItem(Entry entry) {
+    return CatchUpItem.builder()
+        .id(entry.stableId())
+        .title(entry.title)
+        .timestamp(entry.updated)
+        .author(entry.author.name)
+        .source(entry.department)
+        .commentCount(entry.comments)
+        .tag(entry.section)
+        .itemClickUrl(entry.id)
+        .itemCommentClickUrl(entry.id + "#comments")
+        .build();
   }
 
   @Override protected Single<List<Entry>> getDataSingle(DataRequest request) {
@@ -93,6 +90,10 @@ public final class SlashdotController extends BaseNewsController<Entry> {
         .map(channel -> channel.itemList);
   }
 
+  @Override protected StaleWhileRevalidate staleWhileRevalidate() {
+    return staleWhileRevalidate;
+  }
+
   @Subcomponent
   public interface Component extends AndroidInjector<SlashdotController> {
 
@@ -103,35 +104,53 @@ public final class SlashdotController extends BaseNewsController<Entry> {
   @dagger.Module(subcomponents = Component.class)
   public abstract static class Module {
 
+    /** The feed is one page, and never much bigger than this. */
+    private static final int MAX_ENTRIES = 50;
+
     @Qualifier
     private @interface InternalApi {}
 
+    @Provides @InternalApi @PerApplication static CircuitBreaker provideSlashdotCircuitBreaker() {
+      return new CircuitBreaker("Slashdot");
+    }
+
+    @Binds @IntoSet
+    abstract CircuitBreaker bindSlashdotCircuitBreaker(@InternalApi CircuitBreaker circuitBreaker);
+
     @Binds @IntoMap @ControllerKey(SlashdotController.class)
     abstract AndroidInjector.Factory<? extends Controller> bindSlashdotControllerInjectorFactory(
         Component.Builder builder);
 
-    @Provides @InternalApi
-    static OkHttpClient provideSlashdotOkHttpClient(OkHttpClient okHttpClient) {
-      return okHttpClient.newBuilder()
-          .addNetworkInterceptor(chain -> {
-            Response originalResponse = chain.proceed(chain.request());
-            // read from cache for 30 minutes, per slashdot's preferred limit
-            int maxAge = 60 * 30;
-            return originalResponse.newBuilder()
-                .header("Cache-Control", "public, max-age=" + maxAge)
-                .build();
-          })
-          .build();
+    @Provides @InternalApi @PerApplication
+    static StaleWhileRevalidate provideSlashdotStaleWhileRevalidate(OkHttpClient okHttpClient,
+        @InternalApi CircuitBreaker circuitBreaker) {
+      // Read from cache for 30 minutes, per slashdot's preferred limit.
+      return new StaleWhileRevalidate(okHttpClient.newBuilder()
+          .addInterceptor(circuitBreaker)
+          .build(),
+          CachePolicy.create(30, 6 * 60, TimeUnit.MINUTES));
+    }
+
+    @Provides @IntoSet @ServiceClient static OkHttpClient provideSlashdotServiceClient(
+        @InternalApi StaleWhileRevalidate staleWhileRevalidate) {
+      return staleWhileRevalidate.client();
+    }
+
+    @Provides @InternalApi @PerApplication static Call.Factory provideSlashdotCallFactory(
+        @InternalApi StaleWhileRevalidate staleWhileRevalidate,
+        RequestHedger requestHedger) {
+      return staleWhileRevalidate.callFactory(requestHedger.wrap(staleWhileRevalidate.client()));
     }
 
-    @Provides
-    static SlashdotService provideSlashdotService(@InternalApi final Lazy<OkHttpClient> client,
-        RxJava2CallAdapterFactory rxJavaCallAdapterFactory) {
+    @Provides @PerApplication
+    static SlashdotService provideSlashdotService(@InternalApi final Lazy<Call.Factory> callFactory,
+        @Synchronous RxJava2CallAdapterFactory rxJavaCallAdapterFactory) {
       Retrofit retrofit = new Retrofit.Builder().baseUrl(SlashdotService.ENDPOINT)
-          .callFactory(request -> client.get()
+          .callFactory(request -> callFactory.get()
               .newCall(request))
           .addCallAdapterFactory(rxJavaCallAdapterFactory)
-          .addConverterFactory(SimpleXmlConverterFactory.createNonStrict())
+          .addConverterFactory(SlashdotFeedConverterFactory.create(MAX_ENTRIES,
+              new StringPool(MAX_ENTRIES)))
           .validateEagerly(BuildConfig.DEBUG)
           .build();
       return retrofit.create(SlashdotService.class);
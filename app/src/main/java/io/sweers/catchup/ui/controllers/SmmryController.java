@@ -39,7 +39,6 @@ import dagger.Subcomponent;
 import dagger.android.AndroidInjector;
 import io.reactivex.Observable;
 import io.reactivex.android.schedulers.AndroidSchedulers;
-import io.reactivex.functions.Consumer;
 import io.reactivex.schedulers.Schedulers;
 import io.sweers.catchup.R;
 import io.sweers.catchup.data.smmry.SmmryService;
@@ -83,20 +82,16 @@ public class SmmryController extends ButterKnifeController {
     }
   };
 
-  public static <T> Consumer<T> showFor(ServiceController controller,
-      String url,
-      String fallbackTitle) {
-    return t -> {
-      // TODO Optimize this
-      // Exclude images
-      // Summarize reddit selftexts
-      controller.getRouter()
-          .pushController(RouterTransaction.with(new SmmryController(url,
-              controller.getServiceThemeColor(),
-              fallbackTitle))
-              .pushChangeHandler(new VerticalChangeHandler(false))
-              .popChangeHandler(new VerticalChangeHandler()));
-    };
+  public static void show(ServiceController controller, String url, String fallbackTitle) {
+    // TODO Optimize this
+    // Exclude images
+    // Summarize reddit selftexts
+    controller.getRouter()
+        .pushController(RouterTransaction.with(new SmmryController(url,
+            controller.getServiceThemeColor(),
+            fallbackTitle))
+            .pushChangeHandler(new VerticalChangeHandler(false))
+            .popChangeHandler(new VerticalChangeHandler()));
   }
 
   public SmmryController(Bundle args) {
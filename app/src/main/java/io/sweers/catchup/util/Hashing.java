@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2017 Zac Sweers
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.sweers.catchup.util;
+
+/**
+ * Non-cryptographic hashing for deriving stable IDs from string keys. {@link String#hashCode()}
+ * only has 32 bits, so a few thousand URLs or IDs are already likely to contain a collision, and
+ * colliding stable IDs make the adapter drop items and RecyclerView rebind the wrong rows.
+ */
+public final class Hashing {
+  private Hashing() {
+    throw new InstantiationError();
+  }
+
+  private static final long C1 = 0x87c37b91114253d5L;
+  private static final long C2 = 0x4cf5ad432745937fL;
+
+  /**
+   * Hashes the UTF-16 code units of {@code string} to 64 bits, four at a time, with the block and
+   * finalization steps of MurmurHash3. Equal strings always hash equally across processes and
+   * releases, so it's safe to persist the result.
+   */
+  public static long hash64(String string) {
+    int length = string.length();
+    long h = length;
+    int i = 0;
+    for (int end = length & ~3; i < end; i += 4) {
+      long k = string.charAt(i)
+          | (long) string.charAt(i + 1) << 16
+          | (long) string.charAt(i + 2) << 32
+          | (long) string.charAt(i + 3) << 48;
+      h ^= mixK(k);
+      h = Long.rotateLeft(h, 27) * 5 + 0x52dce729;
+    }
+    long k = 0;
+    for (int shift = 0; i < length; i++, shift += 16) {
+      k |= (long) string.charAt(i) << shift;
+    }
+    h ^= mixK(k);
+    return fmix64(h);
+  }
+
+  private static long mixK(long k) {
+    k *= C1;
+    k = Long.rotateLeft(k, 31);
+    return k * C2;
+  }
+
+  private static long fmix64(long h) {
+    h ^= h >>> 33;
+    h *= 0xff51afd7ed558ccdL;
+    h ^= h >>> 33;
+    h *= 0xc4ceb9fe1a85ec53L;
+    return h ^ (h >>> 33);
+  }
+}
@@ -16,6 +16,7 @@
 
 package io.sweers.catchup.util;
 
+import android.support.annotation.Nullable;
 import org.threeten.bp.Instant;
 import org.threeten.bp.OffsetDateTime;
 
@@ -24,6 +25,10 @@ import org.threeten.bp.OffsetDateTime;
  */
 public class Instants {
 
+  private static final int SECONDS_PER_DAY = 24 * 60 * 60;
+  /** Days from 0000-03-01 to 1970-01-01, in the proleptic Gregorian calendar. */
+  private static final int DAYS_0000_TO_1970 = 719468;
+
   private Instants() {
     // No instances
   }
@@ -35,6 +40,10 @@ public class Instants {
    * @return an Instant representation of the time
    */
   public static Instant parsePossiblyOffsetInstant(String time) {
+    Instant instant = parseRfc3339(time);
+    if (instant != null) {
+      return instant;
+    }
     if (!time.endsWith("Z")) {
       return OffsetDateTime.parse(time)
           .toInstant();
@@ -42,4 +51,138 @@ public class Instants {
       return Instant.parse(time);
     }
   }
+
+  /**
+   * Parses the fixed RFC 3339 layout every API we talk to uses, {@code yyyy-MM-ddTHH:mm:ss}
+   * followed by an optional fraction of up to nine digits and then {@code Z}, {@code +hh:mm} or
+   * {@code -hh:mm}, without going through a formatter.
+   *
+   * @return the parsed instant, or {@code null} if {@code time} isn't in that layout or isn't a
+   * valid date. Callers should fall back to ThreeTen, which also knows how to report what's wrong.
+   */
+  @Nullable static Instant parseRfc3339(String time) {
+    int length = time.length();
+    if (length < 20
+        || time.charAt(4) != '-'
+        || time.charAt(7) != '-'
+        || time.charAt(10) != 'T'
+        || time.charAt(13) != ':'
+        || time.charAt(16) != ':') {
+      return null;
+    }
+    int year = digits(time, 0, 4);
+    int month = digits(time, 5, 2);
+    int day = digits(time, 8, 2);
+    int hour = digits(time, 11, 2);
+    int minute = digits(time, 14, 2);
+    int second = digits(time, 17, 2);
+    if (year < 0
+        || month < 1
+        || month > 12
+        || day < 1
+        || day > lengthOfMonth(year, month)
+        || hour < 0
+        || hour > 23
+        || minute < 0
+        || minute > 59
+        || second < 0
+        || second > 59) {
+      return null;
+    }
+
+    int i = 19;
+    int nanos = 0;
+    if (time.charAt(i) == '.') {
+      int start = ++i;
+      while (i < length && i - start < 9) {
+        int digit = time.charAt(i) - '0';
+        if (digit < 0 || digit > 9) {
+          break;
+        }
+        nanos = nanos * 10 + digit;
+        i++;
+      }
+      if (i == start) {
+        return null;
+      }
+      for (int scale = i - start; scale < 9; scale++) {
+        nanos *= 10;
+      }
+    }
+
+    if (i >= length) {
+      return null;
+    }
+    int offsetSeconds;
+    char zone = time.charAt(i);
+    if (zone == 'Z') {
+      if (i + 1 != length) {
+        return null;
+      }
+      offsetSeconds = 0;
+    } else if ((zone == '+' || zone == '-') && i + 6 == length && time.charAt(i + 3) == ':') {
+      int offsetHours = digits(time, i + 1, 2);
+      int offsetMinutes = digits(time, i + 4, 2);
+      if (offsetHours < 0 || offsetHours > 18 || offsetMinutes < 0 || offsetMinutes > 59) {
+        return null;
+      }
+      offsetSeconds = offsetHours * 3600 + offsetMinutes * 60;
+      if (zone == '-') {
+        offsetSeconds = -offsetSeconds;
+      }
+    } else {
+      return null;
+    }
+
+    long epochSecond = epochDay(year, month, day) * SECONDS_PER_DAY
+        + hour * 3600
+        + minute * 60
+        + second
+        - offsetSeconds;
+    return Instant.ofEpochSecond(epochSecond, nanos);
+  }
+
+  /**
+   * @return the non-negative number in {@code count} ASCII digits at {@code start}, or -1 if any
+   * of them isn't a digit.
+   */
+  private static int digits(String s, int start, int count) {
+    int value = 0;
+    for (int i = start; i < start + count; i++) {
+      int digit = s.charAt(i) - '0';
+      if (digit < 0 || digit > 9) {
+        return -1;
+      }
+      value = value * 10 + digit;
+    }
+    return value;
+  }
+
+  private static int lengthOfMonth(int year, int month) {
+    switch (month) {
+      case 2:
+        boolean leap = (year % 4 == 0 && year % 100 != 0) || year % 400 == 0;
+        return leap ? 29 : 28;
+      case 4:
+      case 6:
+      case 9:
+      case 11:
+        return 30;
+      default:
+        return 31;
+    }
+  }
+
+  /**
+   * Days since the epoch for a non-negative proleptic Gregorian date, from Howard Hinnant's
+   * {@code days_from_civil}.
+   */
+  private static long epochDay(int year, int month, int day) {
+    int y = month <= 2 ? year - 1 : year;
+    int era = (y >= 0 ? y : y - 399) / 400;
+    int yearOfEra = y - era * 400;
+    int dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+    int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+    return era * 146097L + dayOfEra - DAYS_0000_TO_1970;
+  }
 }
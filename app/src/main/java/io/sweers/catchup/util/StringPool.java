@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2017 Zac Sweers
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.sweers.catchup.util;
+
+import android.support.annotation.Nullable;
+
+/**
+ * A bounded, lossy string interner. Feeds repeat a handful of values (subreddits, domains,
+ * authors, topics) on nearly every item, and each parse hands back a fresh copy of them that then
+ * lives as long as the item does. Running those through a pool collapses the copies onto one
+ * instance per value.
+ *
+ * <p>The pool is a direct-mapped table: each string has exactly one slot, picked from its hash, and
+ * a miss simply replaces whatever was there. So memory stays fixed at {@code capacity} references
+ * no matter what the feed throws at it, and the worst case is a missed dedupe rather than a leak.
+ * Unlike {@link String#intern()}, pools are cheap to make and to throw away, so each service can
+ * keep its own.
+ *
+ * <p>Slots are read and written without locking. A racing reader sees either the old or the new
+ * string, and both are valid answers.
+ */
+public final class StringPool {
+
+  private final String[] table;
+  private final int mask;
+
+  /**
+   * @param capacity the number of slots, rounded up to a power of two.
+   */
+  public StringPool(int capacity) {
+    if (capacity <= 0 || capacity > 1 << 30) {
+      throw new IllegalArgumentException("Invalid capacity: " + capacity);
+    }
+    int size = Integer.highestOneBit(capacity);
+    if (size < capacity) {
+      size <<= 1;
+    }
+    table = new String[size];
+    mask = size - 1;
+  }
+
+  /**
+   * @return an instance equal to {@code string}, shared with earlier callers if one is pooled.
+   */
+  @Nullable public String intern(@Nullable String string) {
+    if (string == null) {
+      return null;
+    }
+    int h = string.hashCode();
+    // Spread the high bits down, since the mask only looks at the low ones.
+    int index = (h ^ (h >>> 16)) & mask;
+    String pooled = table[index];
+    if (pooled != null && pooled.equals(string)) {
+      return pooled;
+    }
+    table[index] = string;
+    return string;
+  }
+
+  /**
+   * @return the number of slots in this pool.
+   */
+  public int capacity() {
+    return table.length;
+  }
+}
@@ -17,7 +17,6 @@
 package io.sweers.catchup.util;
 
 import android.support.annotation.Nullable;
-import android.text.TextUtils;
 
 public final class Strings {
   private Strings() {
@@ -61,32 +60,39 @@ public final class Strings {
    * From <a href="https://gist.github.com/uklimaschewski/6741769">Here</a>
    *
    * @param st A string optionally containing standard java escape sequences.
-   * @return The translated string.
+   * @return The translated string, or {@code st} itself if it has no escape sequences.
    */
   @Nullable public static String unescapeJavaString(@Nullable String st) {
-    if (TextUtils.isEmpty(st)) {
+    if (st == null) {
+      return null;
+    }
+    int first = st.indexOf('\\');
+    if (first == -1) {
+      // Nothing to unescape, which is most strings.
       return st;
     }
 
-    StringBuilder sb = new StringBuilder(st.length());
+    int length = st.length();
+    StringBuilder sb = new StringBuilder(length);
+    sb.append(st, 0, first);
 
-    for (int i = 0; i < st.length(); i++) {
+    for (int i = first; i < length; i++) {
       char ch = st.charAt(i);
       if (ch == '\\') {
-        char nextChar = (i == st.length() - 1) ? '\\' : st.charAt(i + 1);
+        char nextChar = (i == length - 1) ? '\\' : st.charAt(i + 1);
         // Octal escape?
         if (nextChar >= '0' && nextChar <= '7') {
-          String code = "" + nextChar;
+          int code = nextChar - '0';
           i++;
-          if ((i < st.length() - 1) && st.charAt(i + 1) >= '0' && st.charAt(i + 1) <= '7') {
-            code += st.charAt(i + 1);
+          if ((i < length - 1) && st.charAt(i + 1) >= '0' && st.charAt(i + 1) <= '7') {
+            code = code * 8 + st.charAt(i + 1) - '0';
             i++;
-            if ((i < st.length() - 1) && st.charAt(i + 1) >= '0' && st.charAt(i + 1) <= '7') {
-              code += st.charAt(i + 1);
+            if ((i < length - 1) && st.charAt(i + 1) >= '0' && st.charAt(i + 1) <= '7') {
+              code = code * 8 + st.charAt(i + 1) - '0';
               i++;
             }
           }
-          sb.append((char) Integer.parseInt(code, 8));
+          sb.append((char) code);
           continue;
         }
         switch (nextChar) {
@@ -116,16 +122,14 @@ public final class Strings {
             break;
           // Hex Unicode: u????
           case 'u':
-            if (i >= st.length() - 5) {
+            if (i >= length - 5) {
               ch = 'u';
               break;
             }
-            int code = Integer.parseInt(""
-                + st.charAt(i + 2)
-                + st.charAt(i + 3)
-                + st.charAt(i + 4)
-                + st.charAt(i + 5), 16);
-            sb.append(Character.toChars(code));
+            sb.append((char) (hexDigit(st, i + 2) << 12
+                | hexDigit(st, i + 3) << 8
+                | hexDigit(st, i + 4) << 4
+                | hexDigit(st, i + 5)));
             i += 5;
             continue;
         }
@@ -135,4 +139,12 @@ public final class Strings {
     }
     return sb.toString();
   }
+
+  private static int hexDigit(String s, int index) {
+    int digit = Character.digit(s.charAt(index), 16);
+    if (digit == -1) {
+      throw new NumberFormatException("Invalid unicode escape in " + s);
+    }
+    return digit;
+  }
 }
@@ -0,0 +1,384 @@
+/*
+ * Copyright (c) 2017 Zac Sweers
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.sweers.catchup.util.collect;
+
+import android.support.annotation.Nullable;
+import io.sweers.catchup.data.CatchUpItem;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import org.threeten.bp.Instant;
+
+/**
+ * Insertion-ordered storage for {@link CatchUpItem}s that keeps each display field in its own
+ * column instead of holding on to the items. IDs and timestamps are primitive arrays, and fields
+ * whose values repeat across items (scores, comment counts, tags, authors and sources) are indices
+ * into a string table shared by every page, so a long infinite scroll session holds a handful of
+ * arrays rather than thousands of objects with their own {@link Instant}s and formatted strings.
+ *
+ * <p>Items are deduped on {@link CatchUpItem#stableId()}, and adding one whose ID is already present
+ * is a no-op. Fields are read by position, and {@link #get(int)} rebuilds a full item when one is
+ * needed.
+ */
+public final class ColumnarItems {
+
+  private static final int NO_STRING = -1;
+
+  private int size;
+  private long[] ids;
+  private long[] timestamps;
+  private String[] titles;
+  private String[] itemClickUrls;
+  private String[] itemCommentClickUrls;
+  private int[] scores;
+  private int[] commentCounts;
+  private int[] tags;
+  private int[] authors;
+  private int[] sources;
+
+  private final ArrayList<String> strings;
+  private final HashMap<String, Integer> stringIndices;
+
+  /**
+   * Open addressed index of {@link #ids}. Each slot holds a position plus one, so that zero can
+   * mark an empty slot.
+   */
+  private int[] idSlots;
+
+  public ColumnarItems() {
+    this(16);
+  }
+
+  public ColumnarItems(int initialCapacity) {
+    int capacity = Math.max(initialCapacity, 1);
+    ids = new long[capacity];
+    timestamps = new long[capacity];
+    titles = new String[capacity];
+    itemClickUrls = new String[capacity];
+    itemCommentClickUrls = new String[capacity];
+    scores = new int[capacity];
+    commentCounts = new int[capacity];
+    tags = new int[capacity];
+    authors = new int[capacity];
+    sources = new int[capacity];
+    strings = new ArrayList<>();
+    stringIndices = new HashMap<>();
+    idSlots = new int[slotCount(capacity)];
+  }
+
+  private ColumnarItems(ColumnarItems source) {
+    size = source.size;
+    ids = source.ids.clone();
+    timestamps = source.timestamps.clone();
+    titles = source.titles.clone();
+    itemClickUrls = source.itemClickUrls.clone();
+    itemCommentClickUrls = source.itemCommentClickUrls.clone();
+    scores = source.scores.clone();
+    commentCounts = source.commentCounts.clone();
+    tags = source.tags.clone();
+    authors = source.authors.clone();
+    sources = source.sources.clone();
+    strings = new ArrayList<>(source.strings);
+    stringIndices = new HashMap<>(source.stringIndices);
+    idSlots = source.idSlots.clone();
+  }
+
+  /**
+   * @return a snapshot of this instance that later changes to either one won't show up in.
+   */
+  public ColumnarItems copy() {
+    return new ColumnarItems(this);
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * @return {@code true} if an item with the given {@code stableId} is stored.
+   */
+  public boolean containsId(long stableId) {
+    return idSlots[findSlot(stableId)] != 0;
+  }
+
+  public long id(int position) {
+    checkPosition(position);
+    return ids[position];
+  }
+
+  /**
+   * @return the item's timestamp, in epoch millis.
+   */
+  public long timestamp(int position) {
+    checkPosition(position);
+    return timestamps[position];
+  }
+
+  public String title(int position) {
+    checkPosition(position);
+    return titles[position];
+  }
+
+  @Nullable public String score(int position) {
+    checkPosition(position);
+    return string(scores[position]);
+  }
+
+  @Nullable public String commentCount(int position) {
+    checkPosition(position);
+    return string(commentCounts[position]);
+  }
+
+  @Nullable public String tag(int position) {
+    checkPosition(position);
+    return string(tags[position]);
+  }
+
+  @Nullable public String author(int position) {
+    checkPosition(position);
+    return string(authors[position]);
+  }
+
+  @Nullable public String source(int position) {
+    checkPosition(position);
+    return string(sources[position]);
+  }
+
+  @Nullable public String itemClickUrl(int position) {
+    checkPosition(position);
+    return itemClickUrls[position];
+  }
+
+  @Nullable public String itemCommentClickUrl(int position) {
+    checkPosition(position);
+    return itemCommentClickUrls[position];
+  }
+
+  /**
+   * Rebuilds the item at the specified position. This allocates, so prefer the per-field getters
+   * when binding.
+   *
+   * @throws IndexOutOfBoundsException if {@code position} is out of range
+   */
+  public CatchUpItem get(int position) {
+    checkPosition(position);
+    return CatchUpItem.builder()
+        .id(ids[position])
+        .title(titles[position])
+        .score(string(scores[position]))
+        .timestamp(Instant.ofEpochMilli(timestamps[position]))
+        .tag(string(tags[position]))
+        .author(string(authors[position]))
+        .source(string(sources[position]))
+        .commentCount(string(commentCounts[position]))
+        .itemClickUrl(itemClickUrls[position])
+        .itemCommentClickUrl(itemCommentClickUrls[position])
+        .build();
+  }
+
+  /**
+   * @return {@code true} if the item at {@code position} displays the same as the one at
+   * {@code otherPosition} in {@code other}.
+   */
+  public boolean contentsEqual(int position, ColumnarItems other, int otherPosition) {
+    checkPosition(position);
+    other.checkPosition(otherPosition);
+    return ids[position] == other.ids[otherPosition]
+        && timestamps[position] == other.timestamps[otherPosition]
+        && titles[position].equals(other.titles[otherPosition])
+        && equal(string(scores[position]), other.string(other.scores[otherPosition]))
+        && equal(string(commentCounts[position]), other.string(other.commentCounts[otherPosition]))
+        && equal(string(tags[position]), other.string(other.tags[otherPosition]))
+        && equal(string(authors[position]), other.string(other.authors[otherPosition]))
+        && equal(string(sources[position]), other.string(other.sources[otherPosition]))
+        && equal(itemClickUrls[position], other.itemClickUrls[otherPosition])
+        && equal(itemCommentClickUrls[position], other.itemCommentClickUrls[otherPosition]);
+  }
+
+  /**
+   * Appends {@code item} unless an item with the same ID is already stored.
+   *
+   * @return {@code true} if the item was added.
+   */
+  public boolean add(CatchUpItem item) {
+    long id = item.stableId();
+    int slot = findSlot(id);
+    if (idSlots[slot] != 0) {
+      return false;
+    }
+    ensureCapacity(size + 1);
+    if (idSlots.length < slotCount(size + 1)) {
+      rehash(slotCount(ids.length));
+      slot = findSlot(id);
+    }
+    int position = size++;
+    idSlots[slot] = position + 1;
+    ids[position] = id;
+    timestamps[position] = item.timestamp()
+        .toEpochMilli();
+    titles[position] = item.title();
+    itemClickUrls[position] = item.itemClickUrl();
+    itemCommentClickUrls[position] = item.itemCommentClickUrl();
+    scores[position] = indexOf(item.score());
+    commentCounts[position] = indexOf(item.commentCount());
+    tags[position] = indexOf(item.tag());
+    authors[position] = indexOf(item.author());
+    sources[position] = indexOf(item.source());
+    return true;
+  }
+
+  public boolean addAll(Collection<? extends CatchUpItem> items) {
+    ensureCapacity(size + items.size());
+    boolean modified = false;
+    for (CatchUpItem item : items) {
+      modified |= add(item);
+    }
+    return modified;
+  }
+
+  /**
+   * Appends the items of {@code other} whose IDs aren't already stored, without rebuilding them.
+   */
+  public boolean addAll(ColumnarItems other) {
+    ensureCapacity(size + other.size);
+    boolean modified = false;
+    for (int i = 0; i < other.size; i++) {
+      long id = other.ids[i];
+      int slot = findSlot(id);
+      if (idSlots[slot] != 0) {
+        continue;
+      }
+      if (idSlots.length < slotCount(size + 1)) {
+        rehash(slotCount(ids.length));
+        slot = findSlot(id);
+      }
+      int position = size++;
+      idSlots[slot] = position + 1;
+      ids[position] = id;
+      timestamps[position] = other.timestamps[i];
+      titles[position] = other.titles[i];
+      itemClickUrls[position] = other.itemClickUrls[i];
+      itemCommentClickUrls[position] = other.itemCommentClickUrls[i];
+      scores[position] = indexOf(other.string(other.scores[i]));
+      commentCounts[position] = indexOf(other.string(other.commentCounts[i]));
+      tags[position] = indexOf(other.string(other.tags[i]));
+      authors[position] = indexOf(other.string(other.authors[i]));
+      sources[position] = indexOf(other.string(other.sources[i]));
+      modified = true;
+    }
+    return modified;
+  }
+
+  public void clear() {
+    // Drop the references so that cleared strings can be collected, the rest is overwritten.
+    Arrays.fill(titles, 0, size, null);
+    Arrays.fill(itemClickUrls, 0, size, null);
+    Arrays.fill(itemCommentClickUrls, 0, size, null);
+    Arrays.fill(idSlots, 0);
+    strings.clear();
+    stringIndices.clear();
+    size = 0;
+  }
+
+  @Nullable private String string(int index) {
+    return index == NO_STRING ? null : strings.get(index);
+  }
+
+  private int indexOf(@Nullable String string) {
+    if (string == null) {
+      return NO_STRING;
+    }
+    Integer index = stringIndices.get(string);
+    if (index == null) {
+      index = strings.size();
+      strings.add(string);
+      stringIndices.put(string, index);
+    }
+    return index;
+  }
+
+  /**
+   * @return the slot holding {@code id}, or the empty slot it would go in.
+   */
+  private int findSlot(long id) {
+    int mask = idSlots.length - 1;
+    int slot = hash(id) & mask;
+    while (true) {
+      int entry = idSlots[slot];
+      if (entry == 0 || ids[entry - 1] == id) {
+        return slot;
+      }
+      slot = (slot + 1) & mask;
+    }
+  }
+
+  private void rehash(int slotCount) {
+    idSlots = new int[slotCount];
+    int mask = slotCount - 1;
+    for (int position = 0; position < size; position++) {
+      int slot = hash(ids[position]) & mask;
+      while (idSlots[slot] != 0) {
+        slot = (slot + 1) & mask;
+      }
+      idSlots[slot] = position + 1;
+    }
+  }
+
+  private void ensureCapacity(int minCapacity) {
+    if (minCapacity <= ids.length) {
+      return;
+    }
+    int capacity = Math.max(minCapacity, ids.length + (ids.length >> 1));
+    ids = Arrays.copyOf(ids, capacity);
+    timestamps = Arrays.copyOf(timestamps, capacity);
+    titles = Arrays.copyOf(titles, capacity);
+    itemClickUrls = Arrays.copyOf(itemClickUrls, capacity);
+    itemCommentClickUrls = Arrays.copyOf(itemCommentClickUrls, capacity);
+    scores = Arrays.copyOf(scores, capacity);
+    commentCounts = Arrays.copyOf(commentCounts, capacity);
+    tags = Arrays.copyOf(tags, capacity);
+    authors = Arrays.copyOf(authors, capacity);
+    sources = Arrays.copyOf(sources, capacity);
+  }
+
+  private void checkPosition(int position) {
+    if (position < 0 || position >= size) {
+      throw new IndexOutOfBoundsException("Position: " + position + ", size: " + size);
+    }
+  }
+
+  /**
+   * @return a power of two with room for {@code capacity} IDs at no more than half load.
+   */
+  private static int slotCount(int capacity) {
+    return Integer.highestOneBit(Math.max(capacity, 4) * 2 - 1) << 1;
+  }
+
+  private static int hash(long id) {
+    long h = id * 0x9E3779B97F4A7C15L;
+    return (int) (h ^ (h >>> 32));
+  }
+
+  private static boolean equal(@Nullable String a, @Nullable String b) {
+    return a == null ? b == null : a.equals(b);
+  }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2017 Zac Sweers
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.squareup.moshi;
+
+import android.support.v4.util.ArrayMap;
+import android.support.v4.util.ArraySet;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import okio.Buffer;
+import okio.Okio;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public final class ArrayMapJsonAdapterTest {
+
+  /** The mock Product Hunt posts the debug build serves, relative to the module. */
+  private static final File POSTS = new File("src/debug/assets/ph/posts.json");
+
+  private final Moshi moshi = new Moshi.Builder().build();
+
+  @Test public void smallMapsStayArrayBacked() throws Exception {
+    // Product Hunt's image_url maps are the largest the app sees.
+    for (Map<String, String> imageUrls : fixtureImageUrls()) {
+      Map<String, String> map = adapter(ArrayMapJsonAdapter.MAX_ARRAY_SIZE).fromJson(
+          json(imageUrls));
+      assertThat(map).isInstanceOf(ArrayMap.class);
+      assertThat(map).isEqualTo(imageUrls);
+    }
+  }
+
+  @Test public void largeMapsAreHashed() throws Exception {
+    Map<String, String> entries = entries(ArrayMapJsonAdapter.MAX_ARRAY_SIZE + 1);
+    Map<String, String> map = adapter(ArrayMapJsonAdapter.MAX_ARRAY_SIZE).fromJson(json(entries));
+    assertThat(map).isInstanceOf(LinkedHashMap.class);
+    assertThat(map).containsExactlyEntriesIn(entries)
+        .inOrder();
+  }
+
+  @Test(expected = JsonDataException.class) public void duplicateKeysAfterHashing()
+      throws Exception {
+    Map<String, String> entries = entries(ArrayMapJsonAdapter.MAX_ARRAY_SIZE + 1);
+    String json = json(entries);
+    json = json.substring(0, json.length() - 1) + ",\"0\":\"again\"}";
+    adapter(ArrayMapJsonAdapter.MAX_ARRAY_SIZE).fromJson(json);
+  }
+
+  @Test public void largeSetsAreHashed() throws Exception {
+    JsonAdapter<Set<String>> adapter = ArrayCollectionJsonAdapter.newSetAdapter(
+        Types.newParameterizedType(Set.class, String.class), moshi, 2);
+    assertThat(adapter.fromJson("[\"a\",\"b\"]")).isInstanceOf(ArraySet.class);
+    Set<String> set = adapter.fromJson("[\"a\",\"b\",\"c\",\"a\"]");
+    assertThat(set).isInstanceOf(LinkedHashSet.class);
+    assertThat(set).containsExactly("a", "b", "c")
+        .inOrder();
+  }
+
+  /**
+   * Benchmarks reading a large map built from the fixture's image URLs with and without falling
+   * back to a hash map. At this size the array-backed map's linear inserts dominate. It compares
+   * wall-clock readings, so it's left for running by hand rather than on CI.
+   */
+  @Ignore("Benchmark, run by hand")
+  @Test public void hashingWinsForLargeMaps() throws Exception {
+    List<String> urls = new ArrayList<>();
+    for (Map<String, String> imageUrls : fixtureImageUrls()) {
+      urls.addAll(imageUrls.values());
+    }
+    JsonAdapter<Map<String, String>> adaptive = adapter(ArrayMapJsonAdapter.MAX_ARRAY_SIZE);
+    JsonAdapter<Map<String, String>> arrayOnly = adapter(Integer.MAX_VALUE);
+    Map<String, String> entries = new LinkedHashMap<>();
+    for (int i = 0; i < 4096; i++) {
+      // Scramble the keys, otherwise their hashes ascend and every insert is an append.
+      entries.put(Integer.toHexString(i * 0x9E3779B9), urls.get(i % urls.size()));
+    }
+    String json = json(entries);
+    long adaptiveNanos = Long.MAX_VALUE;
+    long arrayOnlyNanos = Long.MAX_VALUE;
+    for (int i = 0; i < 20; i++) {
+      adaptiveNanos = Math.min(adaptiveNanos, time(adaptive, json));
+      arrayOnlyNanos = Math.min(arrayOnlyNanos, time(arrayOnly, json));
+    }
+    assertThat(adaptiveNanos).isLessThan(arrayOnlyNanos);
+  }
+
+  private JsonAdapter<Map<String, String>> adapter(int maxArraySize) {
+    return new ArrayMapJsonAdapter<>(moshi, String.class, String.class, maxArraySize);
+  }
+
+  private List<Map<String, String>> fixtureImageUrls() throws Exception {
+    Object posts = JsonReader.of(Okio.buffer(Okio.source(POSTS)))
+        .readJsonValue();
+    List<Map<String, String>> imageUrls = new ArrayList<>();
+    for (Object post : (List<?>) ((Map<?, ?>) posts).get("posts")) {
+      @SuppressWarnings("unchecked") Map<String, String> urls =
+          (Map<String, String>) ((Map<?, ?>) ((Map<?, ?>) post).get("user")).get("image_url");
+      imageUrls.add(urls);
+    }
+    return imageUrls;
+  }
+
+  private String json(Map<String, String> map) {
+    return moshi.adapter(Map.class)
+        .toJson(map);
+  }
+
+  private static Map<String, String> entries(int size) {
+    Map<String, String> entries = new LinkedHashMap<>();
+    for (int i = 0; i < size; i++) {
+      entries.put(Integer.toString(i), "value" + i);
+    }
+    return entries;
+  }
+
+  private static long time(JsonAdapter<Map<String, String>> adapter, String json)
+      throws Exception {
+    Buffer buffer = new Buffer().writeUtf8(json);
+    long start = System.nanoTime();
+    adapter.fromJson(buffer);
+    return System.nanoTime() - start;
+  }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2017 Zac Sweers
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.sweers.catchup.data;
+
+import com.google.common.collect.Range;
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.TimeUnit;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+
+public final class AdaptiveTimeoutsTest {
+
+  private final MockWebServer server = new MockWebServer();
+  private final AdaptiveTimeouts timeouts = new AdaptiveTimeouts(null, 200, 10_000, 5);
+  private final OkHttpClient client = new OkHttpClient.Builder().readTimeout(10, TimeUnit.SECONDS)
+      .addNetworkInterceptor(timeouts)
+      .build();
+  private volatile long delayMs;
+
+  @Before public void setUp() throws Exception {
+    server.setDispatcher(new Dispatcher() {
+      @Override public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+        Thread.sleep(delayMs);
+        return new MockResponse().setBody("ok");
+      }
+    });
+    server.start();
+  }
+
+  @After public void tearDown() throws Exception {
+    server.shutdown();
+  }
+
+  @Test public void usesClientTimeoutUntilEnoughSamples() throws Exception {
+    String host = server.getHostName();
+    assertThat(timeouts.timeoutMs(host)).isEqualTo(10_000);
+    for (int i = 0; i < 4; i++) {
+      get();
+    }
+    assertThat(timeouts.timeoutMs(host)).isEqualTo(10_000);
+    get();
+    assertThat(timeouts.sampleCount(host)).isEqualTo(5);
+    assertThat(timeouts.timeoutMs(host)).isEqualTo(200);
+    assertThat(timeouts.hosts()).containsExactly(host);
+  }
+
+  @Test public void stalledCallFailsAtAdaptedTimeout() throws Exception {
+    for (int i = 0; i < 5; i++) {
+      get();
+    }
+    delayMs = 2000;
+    long start = System.nanoTime();
+    try {
+      get();
+      fail();
+    } catch (SocketTimeoutException expected) {
+    }
+    long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    assertThat(elapsedMs).isLessThan(1500L);
+    // The stall counts, so a run of them loosens the timeout.
+    assertThat(timeouts.sampleCount(server.getHostName())).isEqualTo(6);
+  }
+
+  @Test public void histogramTracksPercentile() {
+    LatencyHistogram histogram = new LatencyHistogram(1000);
+    for (int i = 1; i <= 100; i++) {
+      histogram.record(i * 10);
+    }
+    assertThat(histogram.percentileMs(0.5)).isIn(range(500, 500 * 1.19));
+    assertThat(histogram.percentileMs(0.99)).isIn(range(990, 990 * 1.19));
+    assertThat(histogram.percentileMs(1)).isIn(range(1000, 1000 * 1.19));
+    assertThat(new LatencyHistogram(1000).percentileMs(0.99)).isEqualTo(-1);
+  }
+
+  @Test public void histogramDecays() {
+    LatencyHistogram histogram = new LatencyHistogram(100);
+    for (int i = 0; i < 99; i++) {
+      histogram.record(5000);
+    }
+    histogram.record(10);
+    assertThat(histogram.count()).isEqualTo(49);
+    for (int i = 0; i < 60; i++) {
+      histogram.record(10);
+    }
+    assertThat(histogram.percentileMs(0.5)).isLessThan(20L);
+  }
+
+  @Test public void histogramRoundTrips() {
+    LatencyHistogram histogram = new LatencyHistogram(1000);
+    histogram.record(0);
+    histogram.record(120);
+    histogram.record(120);
+    histogram.record(Long.MAX_VALUE);
+    LatencyHistogram decoded = LatencyHistogram.decode(histogram.encode(), 1000);
+    assertThat(decoded.count()).isEqualTo(4);
+    assertThat(decoded.encode()).isEqualTo(histogram.encode());
+    assertThat(decoded.percentileMs(0.75)).isEqualTo(histogram.percentileMs(0.75));
+    assertThat(decoded.percentileMs(1)).isEqualTo(Long.MAX_VALUE);
+
+    assertThat(LatencyHistogram.decode("1,x", 1000)
+        .count()).isEqualTo(0);
+    assertThat(LatencyHistogram.decode(null, 1000)
+        .count()).isEqualTo(0);
+  }
+
+  private static Range<Long> range(long lower, double upper) {
+    return Range.closed(lower, (long) upper);
+  }
+
+  private void get() throws IOException {
+    Request request = new Request.Builder().url(server.url("/"))
+        .build();
+    try (Response response = client.newCall(request)
+        .execute()) {
+      response.body()
+          .string();
+    }
+  }
+}
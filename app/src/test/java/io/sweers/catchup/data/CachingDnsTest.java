@@ -0,0 +1,195 @@
+/*
+ * Copyright (c) 2017 Zac Sweers
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.sweers.catchup.data;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import okhttp3.Dns;
+import org.junit.After;
+import org.junit.Test;
+import org.threeten.bp.Clock;
+import org.threeten.bp.Instant;
+import org.threeten.bp.ZoneId;
+import org.threeten.bp.ZoneOffset;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+
+public final class CachingDnsTest {
+
+  private static final String HOST = "example.com";
+
+  private final FakeDns delegate = new FakeDns();
+  private final Queue<Runnable> background = new ArrayDeque<>();
+  private final FakeClock clock = new FakeClock();
+  private final CachingDns dns = new CachingDns(delegate, background::add, 1000, 5000, clock);
+  private final ExecutorService executor = Executors.newCachedThreadPool();
+
+  @After public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Test public void cachesWithinTtl() throws Exception {
+    assertThat(dns.lookup(HOST)).isEqualTo(address(1));
+    clock.advance(999);
+    assertThat(dns.lookup(HOST)).isEqualTo(address(1));
+    assertThat(delegate.lookups.get()).isEqualTo(1);
+    assertThat(dns.missCount()).isEqualTo(1);
+    assertThat(dns.hitCount()).isEqualTo(1);
+    assertThat(dns.lookupTimeMs(HOST)).isAtLeast(0L);
+  }
+
+  @Test public void servesStaleWhileRefreshing() throws Exception {
+    dns.lookup(HOST);
+    clock.advance(1000);
+    assertThat(dns.lookup(HOST)).isEqualTo(address(1));
+    // Only one refresh is started, however many stale lookups there are.
+    dns.lookup(HOST);
+    assertThat(background).hasSize(1);
+    assertThat(dns.staleCount()).isEqualTo(2);
+
+    background.remove()
+        .run();
+    assertThat(dns.lookup(HOST)).isEqualTo(address(2));
+    assertThat(dns.hitCount()).isEqualTo(1);
+  }
+
+  @Test public void servesStaleWhenRefreshFails() throws Exception {
+    dns.lookup(HOST);
+    clock.advance(1000);
+    delegate.fail = true;
+    dns.lookup(HOST);
+    background.remove()
+        .run();
+    assertThat(dns.lookup(HOST)).isEqualTo(address(1));
+  }
+
+  @Test public void resolvesAgainPastMaxStale() throws Exception {
+    dns.lookup(HOST);
+    clock.advance(6000);
+    assertThat(dns.lookup(HOST)).isEqualTo(address(2));
+    assertThat(background).isEmpty();
+    assertThat(dns.missCount()).isEqualTo(2);
+  }
+
+  @Test public void evictAllForgetsLookups() throws Exception {
+    dns.lookup(HOST);
+    dns.evictAll();
+    assertThat(dns.hosts()).isEmpty();
+    assertThat(dns.lookup(HOST)).isEqualTo(address(2));
+    assertThat(dns.missCount()).isEqualTo(2);
+  }
+
+  @Test public void refreshFromBeforeEvictAllIsNotCached() throws Exception {
+    dns.prefetch(Collections.singletonList(HOST));
+    dns.evictAll();
+    background.remove()
+        .run();
+    assertThat(dns.hosts()).isEmpty();
+    assertThat(dns.lookup(HOST)).isEqualTo(address(2));
+  }
+
+  @Test public void failedLookupThrows() {
+    delegate.fail = true;
+    try {
+      dns.lookup(HOST);
+      fail();
+    } catch (UnknownHostException expected) {
+      assertThat(expected).hasMessageThat()
+          .isEqualTo(HOST);
+    }
+    assertThat(dns.hosts()).isEmpty();
+  }
+
+  @Test public void lookupJoinsPrefetch() throws Exception {
+    CachingDns dns = new CachingDns(delegate, executor, 1000, 5000, clock);
+    delegate.release = new CountDownLatch(1);
+    dns.prefetch(Collections.singletonList(HOST));
+    assertThat(delegate.started.await(5, TimeUnit.SECONDS)).isTrue();
+
+    Future<List<InetAddress>> result = executor.submit(() -> dns.lookup(HOST));
+    Thread.sleep(100);
+    assertThat(result.isDone()).isFalse();
+    delegate.release.countDown();
+
+    assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo(address(1));
+    assertThat(delegate.lookups.get()).isEqualTo(1);
+    assertThat(dns.hosts()).containsExactly(HOST);
+  }
+
+  private static List<InetAddress> address(int last) throws UnknownHostException {
+    return Collections.singletonList(
+        InetAddress.getByAddress(HOST, new byte[] { 10, 0, 0, (byte) last }));
+  }
+
+  /** Resolves to 10.0.0.n on the nth lookup. */
+  private static final class FakeDns implements Dns {
+    final AtomicInteger lookups = new AtomicInteger();
+    final CountDownLatch started = new CountDownLatch(1);
+    volatile CountDownLatch release;
+    volatile boolean fail;
+
+    @Override public List<InetAddress> lookup(String hostname) throws UnknownHostException {
+      started.countDown();
+      if (release != null) {
+        try {
+          release.await();
+        } catch (InterruptedException e) {
+          throw new UnknownHostException(hostname);
+        }
+      }
+      if (fail) {
+        throw new UnknownHostException(hostname);
+      }
+      return address(lookups.incrementAndGet());
+    }
+  }
+
+  private static final class FakeClock extends Clock {
+    private long millis = 1_000_000;
+
+    void advance(long deltaMs) {
+      millis += deltaMs;
+    }
+
+    @Override public ZoneId getZone() {
+      return ZoneOffset.UTC;
+    }
+
+    @Override public Clock withZone(ZoneId zone) {
+      return this;
+    }
+
+    @Override public long millis() {
+      return millis;
+    }
+
+    @Override public Instant instant() {
+      return Instant.ofEpochMilli(millis);
+    }
+  }
+}
@@ -0,0 +1,224 @@
+/*
+ * Copyright (c) 2017 Zac Sweers
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.sweers.catchup.data;
+
+import java.io.IOException;
+import okhttp3.Cache;
+import okhttp3.Call;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.SocketPolicy;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.threeten.bp.Clock;
+import org.threeten.bp.Instant;
+import org.threeten.bp.ZoneId;
+import org.threeten.bp.ZoneOffset;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+
+public final class CircuitBreakerTest {
+
+  @Rule public final TemporaryFolder cacheDir = new TemporaryFolder();
+  private final MockWebServer server = new MockWebServer();
+  private final FakeClock clock = new FakeClock();
+  private final CircuitBreaker breaker = new CircuitBreaker("Test", 3, 1000, 4000, clock);
+  private final OkHttpClient client = new OkHttpClient.Builder().addInterceptor(breaker)
+      .build();
+
+  @Before public void setUp() throws Exception {
+    server.start();
+  }
+
+  @After public void tearDown() throws Exception {
+    server.shutdown();
+  }
+
+  @Test public void opensAfterConsecutiveFailures() throws Exception {
+    for (int i = 0; i < 3; i++) {
+      server.enqueue(new MockResponse().setResponseCode(503));
+      assertThat(get()).isEqualTo(503);
+    }
+    assertThat(breaker.state()).isEqualTo(CircuitBreaker.State.OPEN);
+    assertThat(breaker.retryInMs()).isEqualTo(1000);
+
+    assertFailsFast();
+    assertThat(server.getRequestCount()).isEqualTo(3);
+  }
+
+  @Test public void successResetsFailures() throws Exception {
+    server.enqueue(new MockResponse().setResponseCode(500));
+    server.enqueue(new MockResponse().setResponseCode(500));
+    server.enqueue(new MockResponse().setResponseCode(404));
+    server.enqueue(new MockResponse().setResponseCode(500));
+    for (int i = 0; i < 4; i++) {
+      get();
+    }
+    assertThat(breaker.state()).isEqualTo(CircuitBreaker.State.CLOSED);
+    assertThat(breaker.consecutiveFailures()).isEqualTo(1);
+  }
+
+  @Test public void probesAfterBackoffAndCloses() throws Exception {
+    trip();
+    clock.advance(1000);
+    server.enqueue(new MockResponse().setBody("ok"));
+    assertThat(get()).isEqualTo(200);
+    assertThat(breaker.state()).isEqualTo(CircuitBreaker.State.CLOSED);
+    assertThat(breaker.consecutiveFailures()).isEqualTo(0);
+  }
+
+  @Test public void failedProbeDoublesBackoff() throws Exception {
+    trip();
+    clock.advance(1000);
+    server.enqueue(new MockResponse().setResponseCode(502));
+    assertThat(get()).isEqualTo(502);
+    assertThat(breaker.state()).isEqualTo(CircuitBreaker.State.OPEN);
+    assertThat(breaker.retryInMs()).isEqualTo(2000);
+
+    clock.advance(2000);
+    server.enqueue(new MockResponse().setResponseCode(502));
+    get();
+    assertThat(breaker.retryInMs()).isEqualTo(4000);
+
+    // Capped at the max.
+    clock.advance(4000);
+    server.enqueue(new MockResponse().setResponseCode(502));
+    get();
+    assertThat(breaker.retryInMs()).isEqualTo(4000);
+  }
+
+  @Test public void connectionFailuresCount() throws Exception {
+    server.shutdown();
+    for (int i = 0; i < 3; i++) {
+      try {
+        get();
+        fail();
+      } catch (IOException expected) {
+        assertThat(expected).isNotInstanceOf(CircuitBreaker.OpenException.class);
+      }
+    }
+    assertThat(breaker.state()).isEqualTo(CircuitBreaker.State.OPEN);
+    assertFailsFast();
+  }
+
+  @Test public void openCircuitStillServesTheCache() throws Exception {
+    Cache cache = new Cache(cacheDir.getRoot(), 1024 * 1024);
+    OkHttpClient cachingClient = client.newBuilder()
+        .cache(cache)
+        .build();
+    server.enqueue(new MockResponse().setBody("a")
+        .setHeader("Cache-Control", "max-age=60"));
+    assertThat(get(cachingClient, "/cached")).isEqualTo(200);
+    trip();
+
+    assertThat(get(cachingClient, "/cached")).isEqualTo(200);
+    assertThat(server.getRequestCount()).isEqualTo(4);
+    // Anything that would need the network still fails fast.
+    try {
+      get(cachingClient, "/");
+      fail();
+    } catch (CircuitBreaker.OpenException expected) {
+    }
+    cache.close();
+  }
+
+  @Test public void canceledCallsArentFailures() throws Exception {
+    for (int i = 0; i < 3; i++) {
+      server.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.NO_RESPONSE));
+      CallTag tag = new CallTag(null, false);
+      Call call = client.newCall(new Request.Builder().url(server.url("/"))
+          .tag(tag)
+          .build());
+      new Thread(() -> {
+        try {
+          server.takeRequest();
+        } catch (InterruptedException e) {
+          throw new AssertionError(e);
+        }
+        tag.cancel();
+        call.cancel();
+      }).start();
+      try {
+        call.execute();
+        fail();
+      } catch (IOException expected) {
+      }
+    }
+    assertThat(breaker.state()).isEqualTo(CircuitBreaker.State.CLOSED);
+    assertThat(breaker.consecutiveFailures()).isEqualTo(0);
+  }
+
+  private void trip() throws Exception {
+    for (int i = 0; i < 3; i++) {
+      server.enqueue(new MockResponse().setResponseCode(500));
+      get();
+    }
+    assertThat(breaker.state()).isEqualTo(CircuitBreaker.State.OPEN);
+  }
+
+  private void assertFailsFast() throws Exception {
+    try {
+      get();
+      fail();
+    } catch (CircuitBreaker.OpenException expected) {
+    }
+  }
+
+  private int get() throws IOException {
+    return get(client, "/");
+  }
+
+  private int get(OkHttpClient client, String path) throws IOException {
+    Request request = new Request.Builder().url(server.url(path))
+        .build();
+    try (Response response = client.newCall(request)
+        .execute()) {
+      return response.code();
+    }
+  }
+
+  private static final class FakeClock extends Clock {
+    private long millis = 1_000_000;
+
+    void advance(long deltaMs) {
+      millis += deltaMs;
+    }
+
+    @Override public ZoneId getZone() {
+      return ZoneOffset.UTC;
+    }
+
+    @Override public Clock withZone(ZoneId zone) {
+      return this;
+    }
+
+    @Override public long millis() {
+      return millis;
+    }
+
+    @Override public Instant instant() {
+      return Instant.ofEpochMilli(millis);
+    }
+  }
+}
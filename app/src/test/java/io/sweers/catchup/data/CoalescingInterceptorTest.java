@@ -0,0 +1,184 @@
+/*
+ * Copyright (c) 2017 Zac Sweers
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.sweers.catchup.data;
+
+import io.sweers.catchup.data.medium.MediumJsonInterceptor;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+
+public final class CoalescingInterceptorTest {
+
+  private final MockWebServer server = new MockWebServer();
+  private final CoalescingInterceptor interceptor = new CoalescingInterceptor();
+  private final OkHttpClient client = new OkHttpClient.Builder().addInterceptor(interceptor)
+      .build();
+  private final ExecutorService executor = Executors.newCachedThreadPool();
+
+  @Before public void setUp() throws Exception {
+    server.start();
+  }
+
+  @After public void tearDown() throws Exception {
+    executor.shutdownNow();
+    server.shutdown();
+  }
+
+  @Test public void concurrentIdenticalGetsShareOneCall() throws Exception {
+    CountDownLatch received = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    server.setDispatcher(new Dispatcher() {
+      @Override public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+        received.countDown();
+        release.await();
+        return new MockResponse().setBody("a");
+      }
+    });
+
+    List<Future<String>> results = new ArrayList<>();
+    results.add(executor.submit(() -> get("/")));
+    assertThat(received.await(5, TimeUnit.SECONDS)).isTrue();
+    for (int i = 0; i < 3; i++) {
+      results.add(executor.submit(() -> get("/")));
+    }
+    awaitRequestCount(4);
+    release.countDown();
+
+    for (Future<String> result : results) {
+      assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo("a");
+    }
+    assertThat(server.getRequestCount()).isEqualTo(1);
+    assertThat(interceptor.coalescedCount()).isEqualTo(3);
+  }
+
+  @Test public void sequentialGetsAreNotCoalesced() throws Exception {
+    server.enqueue(new MockResponse().setBody("a"));
+    server.enqueue(new MockResponse().setBody("b"));
+
+    assertThat(get("/")).isEqualTo("a");
+    assertThat(get("/")).isEqualTo("b");
+    assertThat(server.getRequestCount()).isEqualTo(2);
+    assertThat(interceptor.requestCount()).isEqualTo(2);
+    assertThat(interceptor.coalescedCount()).isEqualTo(0);
+  }
+
+  @Test public void followersShareAPartlyConsumedBody() throws Exception {
+    CountDownLatch received = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    server.setDispatcher(new Dispatcher() {
+      @Override public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+        received.countDown();
+        release.await();
+        return new MockResponse().setBody("])}while(1);</x>{}");
+      }
+    });
+    // Skips part of the body below the coalescing, like Medium's does.
+    OkHttpClient skipping = client.newBuilder()
+        .addInterceptor(new MediumJsonInterceptor())
+        .build();
+
+    List<Future<String>> results = new ArrayList<>();
+    results.add(executor.submit(() -> get(skipping, new Request.Builder().url(server.url("/"))
+        .build())));
+    assertThat(received.await(5, TimeUnit.SECONDS)).isTrue();
+    results.add(executor.submit(() -> get(skipping, new Request.Builder().url(server.url("/"))
+        .build())));
+    awaitRequestCount(2);
+    release.countDown();
+
+    for (Future<String> result : results) {
+      assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo("{}");
+    }
+    assertThat(interceptor.coalescedCount()).isEqualTo(1);
+  }
+
+  @Test public void canceledFollowerStopsWaiting() throws Exception {
+    CountDownLatch received = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    server.setDispatcher(new Dispatcher() {
+      @Override public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+        received.countDown();
+        release.await();
+        return new MockResponse().setBody("a");
+      }
+    });
+
+    Future<String> leader = executor.submit(() -> get("/"));
+    assertThat(received.await(5, TimeUnit.SECONDS)).isTrue();
+    CallTag tag = new CallTag(null, false);
+    Future<String> follower = executor.submit(() -> get(client, new Request.Builder().url(
+        server.url("/"))
+        .tag(tag)
+        .build()));
+    awaitRequestCount(2);
+    tag.cancel();
+
+    try {
+      follower.get(5, TimeUnit.SECONDS);
+      fail();
+    } catch (ExecutionException e) {
+      assertThat(e.getCause()).isInstanceOf(IOException.class);
+    }
+    release.countDown();
+    assertThat(leader.get(5, TimeUnit.SECONDS)).isEqualTo("a");
+    assertThat(interceptor.coalescedCount()).isEqualTo(0);
+  }
+
+  private String get(String path) throws Exception {
+    return get(client, new Request.Builder().url(server.url(path))
+        .build());
+  }
+
+  private static String get(OkHttpClient client, Request request) throws Exception {
+    try (Response response = client.newCall(request)
+        .execute()) {
+      return response.body()
+          .string();
+    }
+  }
+
+  /**
+   * Waits for callers to reach the interceptor, then gives them a moment to join the in-flight
+   * call.
+   */
+  private void awaitRequestCount(long count) throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (interceptor.requestCount() < count && System.nanoTime() < deadline) {
+      Thread.sleep(10);
+    }
+    Thread.sleep(100);
+  }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2017 Zac Sweers
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.sweers.catchup.data;
+
+import io.reactivex.plugins.RxJavaPlugins;
+import io.reactivex.schedulers.Schedulers;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.threeten.bp.Instant;
+
+import static com.google.common.truth.Truth.assertThat;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 23)
+public final class ItemStoreTest {
+
+  private static final String SERVICE = "hn";
+
+  private ItemStore store;
+
+  @Before public void setUp() {
+    // Run writes and reads in place so each one has landed by the time it returns.
+    RxJavaPlugins.setSingleSchedulerHandler(scheduler -> Schedulers.trampoline());
+    RxJavaPlugins.setIoSchedulerHandler(scheduler -> Schedulers.trampoline());
+    store = new ItemStore(RuntimeEnvironment.application);
+  }
+
+  @After public void tearDown() {
+    RxJavaPlugins.reset();
+  }
+
+  @Test public void roundTrips() {
+    List<CatchUpItem> items = Arrays.asList(fullItem(1), bareItem(2), fullItem(3));
+    store.write(SERVICE, items, true);
+    assertThat(read(SERVICE)).containsExactlyElementsIn(items)
+        .inOrder();
+  }
+
+  @Test public void emptyWhenNothingStored() {
+    store.write(SERVICE, Arrays.asList(fullItem(1)), true);
+    assertThat(read("reddit")).isNull();
+  }
+
+  @Test public void replaceDropsWhatWasStored() {
+    store.write(SERVICE, Arrays.asList(fullItem(1), fullItem(2)), true);
+    store.write(SERVICE, Arrays.asList(fullItem(3)), true);
+    assertThat(read(SERVICE)).containsExactly(fullItem(3));
+  }
+
+  @Test public void appendFollowsWhatWasStored() {
+    store.write(SERVICE, Arrays.asList(fullItem(2), fullItem(1)), true);
+    store.write(SERVICE, Arrays.asList(bareItem(4), fullItem(3)), false);
+    assertThat(read(SERVICE)).containsExactly(fullItem(2), fullItem(1), bareItem(4), fullItem(3))
+        .inOrder();
+  }
+
+  @Test public void appendSkipsStoredIds() {
+    store.write(SERVICE, Arrays.asList(fullItem(1), fullItem(2)), true);
+    CatchUpItem moved = CatchUpItem.builder()
+        .id(1)
+        .title("Moved")
+        .timestamp(Instant.ofEpochMilli(0))
+        .build();
+    store.write(SERVICE, Arrays.asList(moved, fullItem(3)), false);
+    assertThat(read(SERVICE)).containsExactly(fullItem(1), fullItem(2), fullItem(3))
+        .inOrder();
+  }
+
+  @Test public void servicesAreSeparate() {
+    store.write(SERVICE, Arrays.asList(fullItem(1)), true);
+    store.write("reddit", Arrays.asList(fullItem(1), fullItem(2)), true);
+    store.write("reddit", new ArrayList<>(), true);
+    assertThat(read(SERVICE)).containsExactly(fullItem(1));
+    assertThat(read("reddit")).isNull();
+  }
+
+  private List<CatchUpItem> read(String service) {
+    return store.read(service)
+        .blockingGet();
+  }
+
+  private static CatchUpItem fullItem(long id) {
+    return CatchUpItem.builder()
+        .id(id)
+        .title("Item " + id)
+        .score("+", id * 10)
+        .timestamp(Instant.ofEpochMilli(1500000000000L + id))
+        .tag("Tag")
+        .author("author" + id)
+        .source("example.com")
+        .commentCount(String.valueOf(id))
+        .itemClickUrl("https://example.com/" + id)
+        .itemCommentClickUrl("https://example.com/" + id + "/comments")
+        .build();
+  }
+
+  private static CatchUpItem bareItem(long id) {
+    return CatchUpItem.builder()
+        .id(id)
+        .title("Item " + id)
+        .timestamp(Instant.ofEpochMilli(1500000000000L + id))
+        .build();
+  }
+}
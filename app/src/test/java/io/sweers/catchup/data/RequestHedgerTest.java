@@ -0,0 +1,181 @@
+/*
+ * Copyright (c) 2017 Zac Sweers
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.sweers.catchup.data;
+
+import java.io.IOException;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import okhttp3.Call;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.threeten.bp.Clock;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public final class RequestHedgerTest {
+
+  private static final long STALL_MS = 3000;
+
+  private final MockWebServer server = new MockWebServer();
+  private final AdaptiveTimeouts timeouts = new AdaptiveTimeouts(null, 1000, 10_000, 5);
+  private final CoalescingInterceptor coalescingInterceptor = new CoalescingInterceptor();
+  private final OkHttpClient client = new OkHttpClient.Builder()
+      .addInterceptor(coalescingInterceptor)
+      .addNetworkInterceptor(timeouts)
+      .build();
+  private final RequestHedger hedger = new RequestHedger(timeouts, 5, 50);
+  private final Call.Factory callFactory = hedger.wrap(client);
+  /** How long to stall each request the server receives, in order. */
+  private final Queue<Long> stalls = new ConcurrentLinkedQueue<>();
+
+  @Before public void setUp() throws Exception {
+    server.setDispatcher(new Dispatcher() {
+      @Override public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+        Long stallMs = stalls.poll();
+        if (stallMs != null) {
+          Thread.sleep(stallMs);
+        }
+        return new MockResponse().setBody(stallMs == null ? "fast" : "stalled " + stallMs);
+      }
+    });
+    server.start();
+  }
+
+  @After public void tearDown() throws Exception {
+    server.shutdown();
+  }
+
+  @Test public void notHedgedUntilHostHasSamples() throws Exception {
+    assertThat(get()).isEqualTo("fast");
+    assertThat(hedger.callCount()).isEqualTo(0);
+  }
+
+  @Test public void fastResponseIsNotHedged() throws Exception {
+    warmUp();
+    assertThat(get()).isEqualTo("fast");
+    assertThat(hedger.callCount()).isEqualTo(1);
+    assertThat(hedger.hedgeCount()).isEqualTo(0);
+    assertThat(server.getRequestCount()).isEqualTo(6);
+  }
+
+  @Test public void hedgeWinsWhenPrimaryStalls() throws Exception {
+    warmUp();
+    stalls.add(STALL_MS);
+    long start = System.nanoTime();
+    assertThat(get()).isEqualTo("fast");
+    assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(STALL_MS / 2);
+    assertThat(hedger.hedgeCount()).isEqualTo(1);
+    assertThat(hedger.winCount()).isEqualTo(1);
+    // The hedge went to the server rather than joining the stalled call.
+    assertThat(server.getRequestCount()).isEqualTo(7);
+    assertThat(coalescingInterceptor.coalescedCount()).isEqualTo(0);
+  }
+
+  @Test public void primaryCanStillWin() throws Exception {
+    warmUp();
+    stalls.add(300L);
+    stalls.add(STALL_MS);
+    assertThat(get()).isEqualTo("stalled 300");
+    assertThat(hedger.hedgeCount()).isEqualTo(1);
+    assertThat(hedger.winCount()).isEqualTo(0);
+  }
+
+  @Test public void primaryRunsOnTheCallingThread() throws Exception {
+    Queue<Thread> primaryThreads = new ConcurrentLinkedQueue<>();
+    Call.Factory callFactory = hedger.wrap(client.newBuilder()
+        .addInterceptor(chain -> {
+          if (!RequestHedger.isHedge(chain.request())) {
+            primaryThreads.add(Thread.currentThread());
+          }
+          return chain.proceed(chain.request());
+        })
+        .build());
+    warmUp();
+    stalls.add(STALL_MS);
+    get(callFactory);
+
+    assertThat(hedger.hedgeCount()).isEqualTo(1);
+    assertThat(primaryThreads).containsExactly(Thread.currentThread());
+  }
+
+  @Test public void hedgeWinIsNotAFailure() throws Exception {
+    CircuitBreaker breaker = new CircuitBreaker("Test", 1, 1000, 1000, Clock.systemUTC());
+    Call.Factory callFactory = hedger.wrap(client.newBuilder()
+        .addInterceptor(breaker)
+        .build());
+    warmUp();
+    stalls.add(STALL_MS);
+    assertThat(get(callFactory)).isEqualTo("fast");
+
+    assertThat(hedger.winCount()).isEqualTo(1);
+    assertThat(breaker.state()).isEqualTo(CircuitBreaker.State.CLOSED);
+    // Only the hedge was timed, not the primary it beat.
+    assertThat(timeouts.sampleCount(server.url("/")
+        .host())).isEqualTo(6);
+  }
+
+  @Test public void nonGetIsNotHedged() throws Exception {
+    warmUp();
+    stalls.add(300L);
+    Call call = callFactory.newCall(new Request.Builder().url(server.url("/"))
+        .head()
+        .build());
+    try (Response response = call.execute()) {
+      assertThat(response.code()).isEqualTo(200);
+    }
+    assertThat(hedger.callCount()).isEqualTo(0);
+  }
+
+  @Test public void delayIsClampedToTheReadTimeout() {
+    // Past the histogram's last bucket, so the p95 reads back as Long.MAX_VALUE.
+    for (int i = 0; i < 5; i++) {
+      timeouts.record("example.com", TimeUnit.MINUTES.toMillis(10));
+    }
+    assertThat(timeouts.percentileMs("example.com", 0.95)).isEqualTo(Long.MAX_VALUE);
+    assertThat(hedger.delayMs("example.com")).isEqualTo(timeouts.timeoutMs("example.com"));
+  }
+
+  /** Gives the host enough samples to hedge on. */
+  private void warmUp() throws IOException {
+    for (int i = 0; i < 5; i++) {
+      get();
+    }
+  }
+
+  private String get() throws IOException {
+    return get(callFactory);
+  }
+
+  private String get(Call.Factory callFactory) throws IOException {
+    Request request = new Request.Builder().url(server.url("/"))
+        .build();
+    try (Response response = callFactory.newCall(request)
+        .execute()) {
+      return response.body()
+          .string();
+    }
+  }
+}
@@ -0,0 +1,223 @@
+/*
+ * Copyright (c) 2017 Zac Sweers
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.sweers.catchup.data;
+
+import io.sweers.catchup.data.RequestScheduler.Priority;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import okhttp3.CacheControl;
+import okhttp3.Connection;
+import okhttp3.Interceptor;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.junit.After;
+import org.junit.Test;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public final class RequestSchedulerTest {
+
+  private final ExecutorService executor = Executors.newCachedThreadPool();
+  private final CountDownLatch stall = new CountDownLatch(1);
+
+  @After public void tearDown() {
+    stall.countDown();
+    executor.shutdownNow();
+  }
+
+  @Test public void classesByHost() {
+    RequestScheduler scheduler = new RequestScheduler(8, 4);
+    assertThat(scheduler.priorityOf(request("a.test", "/"))).isEqualTo(Priority.VISIBLE);
+    scheduler.prioritize(Collections.singleton("a.test"), Collections.singleton("b.test"));
+    assertThat(scheduler.priorityOf(request("a.test", "/"))).isEqualTo(Priority.VISIBLE);
+    assertThat(scheduler.priorityOf(request("b.test", "/"))).isEqualTo(Priority.ADJACENT);
+    assertThat(scheduler.priorityOf(request("c.test", "/a.JPG"))).isEqualTo(Priority.IMAGE);
+    assertThat(scheduler.priorityOf(request("c.test", "/a.json"))).isEqualTo(Priority.PREFETCH);
+  }
+
+  @Test public void limitsPerHost() throws Exception {
+    RequestScheduler scheduler = new RequestScheduler(8, 2);
+    List<Future<Response>> stalled = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      stalled.add(call(scheduler, "a.test", true));
+    }
+    awaitQueued(scheduler, 1);
+    // Other hosts aren't held up by it.
+    call(scheduler, "b.test", false).get(5, TimeUnit.SECONDS);
+
+    stall.countDown();
+    for (Future<Response> future : stalled) {
+      assertThat(future.get(5, TimeUnit.SECONDS)
+          .code()).isEqualTo(200);
+    }
+  }
+
+  @Test public void visibleCallsSkipQueuedPrefetching() throws Exception {
+    RequestScheduler scheduler = new RequestScheduler(8, 4);
+    scheduler.prioritize(Collections.singleton("visible.test"), Collections.emptyList());
+
+    List<Future<Response>> prefetches = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      prefetches.add(call(scheduler, "prefetch" + i % 5 + ".test", true));
+    }
+    // Prefetching gets all but the reserved slots, and the rest of it queues.
+    awaitQueued(scheduler, 20 - (8 - RequestScheduler.RESERVED_FOR_VISIBLE));
+
+    // The visible page takes the reserved slots without queuing, however much is waiting.
+    List<Future<Response>> visible = new ArrayList<>();
+    for (int i = 0; i < RequestScheduler.RESERVED_FOR_VISIBLE; i++) {
+      visible.add(hold(scheduler, "visible.test"));
+      assertThat(scheduler.queuedCount()).isEqualTo(14);
+    }
+    // Past them, it waits like anything else.
+    visible.add(call(scheduler, "visible.test", false));
+    awaitQueued(scheduler, 15);
+
+    stall.countDown();
+    for (Future<Response> future : visible) {
+      future.get(5, TimeUnit.SECONDS);
+    }
+    for (Future<Response> prefetch : prefetches) {
+      prefetch.get(5, TimeUnit.SECONDS);
+    }
+    assertThat(scheduler.queuedCount()).isEqualTo(0);
+  }
+
+  @Test public void cacheOnlyCallsDontTakeASlot() throws Exception {
+    RequestScheduler scheduler = new RequestScheduler(8, 1);
+    Future<Response> holder = hold(scheduler, "a.test");
+    Request cacheOnly = request("a.test", "/").newBuilder()
+        .cacheControl(CacheControl.FORCE_CACHE)
+        .build();
+    assertThat(scheduler.intercept(new FakeChain(cacheOnly, null))
+        .code()).isEqualTo(200);
+    assertThat(scheduler.queuedCount()).isEqualTo(0);
+
+    stall.countDown();
+    holder.get(5, TimeUnit.SECONDS);
+  }
+
+  @Test public void promotesQueuedCallsOnSelection() throws Exception {
+    // Leaves exactly one slot for anything not visible.
+    RequestScheduler scheduler = new RequestScheduler(RequestScheduler.RESERVED_FOR_VISIBLE + 1, 4);
+    scheduler.prioritize(Collections.singleton("a.test"), Collections.emptyList());
+    Future<Response> holder = hold(scheduler, "b.test");
+    Future<Response> other = call(scheduler, "c.test", false);
+    awaitQueued(scheduler, 1);
+    Future<Response> promoted = call(scheduler, "d.test", false);
+    awaitQueued(scheduler, 2);
+
+    scheduler.prioritize(Collections.singleton("d.test"), Collections.emptyList());
+    assertThat(promoted.get(5, TimeUnit.SECONDS)
+        .code()).isEqualTo(200);
+    assertThat(other.isDone()).isFalse();
+
+    stall.countDown();
+    holder.get(5, TimeUnit.SECONDS);
+    other.get(5, TimeUnit.SECONDS);
+  }
+
+  @Test public void interruptedWaiterLeavesQueue() throws Exception {
+    RequestScheduler scheduler = new RequestScheduler(8, 1);
+    Future<Response> holder = hold(scheduler, "a.test");
+    Future<Response> waiter = call(scheduler, "a.test", false);
+    awaitQueued(scheduler, 1);
+    waiter.cancel(true);
+    awaitQueued(scheduler, 0);
+
+    stall.countDown();
+    holder.get(5, TimeUnit.SECONDS);
+    // The slot came back, rather than going to the canceled waiter.
+    call(scheduler, "a.test", false).get(5, TimeUnit.SECONDS);
+  }
+
+  /**
+   * @return a stalled call that's been given a slot.
+   */
+  private Future<Response> hold(RequestScheduler scheduler, String host) throws Exception {
+    FakeChain chain = new FakeChain(request(host, "/"), stall);
+    Future<Response> future = executor.submit(() -> scheduler.intercept(chain));
+    assertThat(chain.proceeding.await(5, TimeUnit.SECONDS)).isTrue();
+    return future;
+  }
+
+  private Future<Response> call(RequestScheduler scheduler, String host, boolean stalled) {
+    FakeChain chain = new FakeChain(request(host, "/"), stalled ? stall : null);
+    return executor.submit(() -> scheduler.intercept(chain));
+  }
+
+  private static void awaitQueued(RequestScheduler scheduler, int count)
+      throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (scheduler.queuedCount() != count) {
+      if (System.nanoTime() > deadline) {
+        throw new AssertionError("Expected " + count + " queued but was "
+            + scheduler.queuedCount());
+      }
+      Thread.sleep(5);
+    }
+  }
+
+  private static Request request(String host, String path) {
+    return new Request.Builder().url("https://" + host + path)
+        .build();
+  }
+
+  private static final class FakeChain implements Interceptor.Chain {
+    private final Request request;
+    private final CountDownLatch stall;
+    final CountDownLatch proceeding = new CountDownLatch(1);
+
+    FakeChain(Request request, CountDownLatch stall) {
+      this.request = request;
+      this.stall = stall;
+    }
+
+    @Override public Request request() {
+      return request;
+    }
+
+    @Override public Response proceed(Request request) throws IOException {
+      proceeding.countDown();
+      try {
+        if (stall != null) {
+          stall.await();
+        }
+      } catch (InterruptedException e) {
+        throw new InterruptedIOException();
+      }
+      return new Response.Builder().request(request)
+          .protocol(Protocol.HTTP_1_1)
+          .code(200)
+          .message("OK")
+          .build();
+    }
+
+    @Override public Connection connection() {
+      return null;
+    }
+  }
+}
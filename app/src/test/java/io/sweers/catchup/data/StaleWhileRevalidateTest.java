@@ -0,0 +1,223 @@
+/*
+ * Copyright (c) 2017 Zac Sweers
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.sweers.catchup.data;
+
+import io.reactivex.Single;
+import java.io.IOException;
+import java.text.DateFormat;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import okhttp3.Cache;
+import okhttp3.Call;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public final class StaleWhileRevalidateTest {
+
+  private static final CachePolicy POLICY =
+      CachePolicy.create(5, 60, TimeUnit.MINUTES);
+
+  @Rule public final TemporaryFolder cacheDir = new TemporaryFolder();
+  private final MockWebServer server = new MockWebServer();
+  private Cache cache;
+  private StaleWhileRevalidate staleWhileRevalidate;
+
+  @Before public void setUp() throws Exception {
+    server.start();
+    cache = new Cache(cacheDir.getRoot(), 1024 * 1024);
+    staleWhileRevalidate =
+        new StaleWhileRevalidate(new OkHttpClient.Builder().cache(cache)
+            .build(), POLICY);
+  }
+
+  @After public void tearDown() throws Exception {
+    server.shutdown();
+    cache.close();
+  }
+
+  @Test public void freshResponsesComeFromTheCache() throws Exception {
+    server.enqueue(new MockResponse().setBody("a"));
+
+    assertThat(load(false)).containsExactly("a");
+    assertThat(load(false)).containsExactly("a");
+    assertThat(server.getRequestCount()).isEqualTo(1);
+  }
+
+  @Test public void staleResponseIsServedThenRevalidated() throws Exception {
+    server.enqueue(new MockResponse().setBody("stale")
+        .setHeader("Date", minutesAgo(10)));
+    server.enqueue(new MockResponse().setBody("fresh"));
+    assertThat(load(false)).containsExactly("stale");
+
+    assertThat(load(false)).containsExactly("stale", "fresh")
+        .inOrder();
+    assertThat(server.getRequestCount()).isEqualTo(2);
+    // The revalidated response is now cached.
+    assertThat(load(false)).containsExactly("fresh");
+    assertThat(server.getRequestCount()).isEqualTo(2);
+  }
+
+  @Test public void unchangedRevalidationEmitsOnce() throws Exception {
+    server.enqueue(new MockResponse().setBody("a")
+        .setHeader("Date", minutesAgo(10))
+        .setHeader("ETag", "v1"));
+    server.enqueue(new MockResponse().setResponseCode(304)
+        .setHeader("ETag", "v1"));
+    assertThat(load(false)).containsExactly("a");
+
+    assertThat(load(false)).containsExactly("a");
+    server.takeRequest();
+    assertThat(server.takeRequest()
+        .getHeader("If-None-Match")).isEqualTo("v1");
+  }
+
+  @Test public void failedRevalidationKeepsTheStaleResponse() throws Exception {
+    server.enqueue(new MockResponse().setBody("a")
+        .setHeader("Date", minutesAgo(10)));
+    server.enqueue(new MockResponse().setResponseCode(500));
+    assertThat(load(false)).containsExactly("a");
+
+    assertThat(load(false)).containsExactly("a");
+  }
+
+  @Test public void tooStaleGoesToTheNetwork() throws Exception {
+    server.enqueue(new MockResponse().setBody("old")
+        .setHeader("Date", minutesAgo(90)));
+    server.enqueue(new MockResponse().setBody("new"));
+    assertThat(load(false)).containsExactly("old");
+
+    assertThat(load(false)).containsExactly("new");
+    assertThat(server.getRequestCount()).isEqualTo(2);
+  }
+
+  @Test public void forceNetworkSkipsTheCache() throws Exception {
+    server.enqueue(new MockResponse().setBody("a"));
+    server.enqueue(new MockResponse().setBody("b"));
+    assertThat(load(false)).containsExactly("a");
+
+    assertThat(load(true)).containsExactly("b");
+    assertThat(load(false)).containsExactly("b");
+    assertThat(server.getRequestCount()).isEqualTo(2);
+  }
+
+  @Test public void forceNetworkOnlyAppliesToTheSessionsCalls() throws Exception {
+    server.enqueue(new MockResponse().setBody("a"));
+    server.enqueue(new MockResponse().setBody("b"));
+    assertThat(load(false)).containsExactly("a");
+
+    // The first call doesn't go through the session's call factory, so isn't part of it.
+    Single<String> request =
+        Single.fromCallable(() -> fetch(staleWhileRevalidate.client()) + fetch(callFactory()));
+    assertThat(load(request, true)).containsExactly("ab");
+    assertThat(server.getRequestCount()).isEqualTo(2);
+  }
+
+  @Test public void revalidationsOnlyApplyToTheSessionsCalls() throws Exception {
+    server.enqueue(new MockResponse().setBody("stale")
+        .setHeader("Date", minutesAgo(10)));
+    server.enqueue(new MockResponse().setBody("fresh"));
+    assertThat(load(false)).containsExactly("stale");
+
+    Single<String> request = Single.fromCallable(() -> fetch(staleWhileRevalidate.client()));
+    assertThat(load(request, false)).containsExactly("stale");
+    // The revalidation still refreshes the cache for everyone.
+    assertThat(server.takeRequest()).isNotNull();
+    assertThat(server.takeRequest(5, TimeUnit.SECONDS)).isNotNull();
+  }
+
+  @Test public void parallelCallsStayInTheSession() throws Exception {
+    server.enqueue(new MockResponse().setBody("a"));
+    server.enqueue(new MockResponse().setBody("b"));
+    assertThat(load(false)).containsExactly("a");
+
+    List<Thread> threads = new CopyOnWriteArrayList<>();
+    Single<String> request = Single.defer(() -> {
+      threads.add(Thread.currentThread());
+      return staleWhileRevalidate.inParallel(Single.fromCallable(() -> {
+        threads.add(Thread.currentThread());
+        return fetch(callFactory());
+      }));
+    });
+    // Forced onto the network from another thread, so still in the session.
+    assertThat(load(request, true)).containsExactly("b");
+    assertThat(threads.get(1)).isNotSameAs(threads.get(0));
+    assertThat(server.getRequestCount()).isEqualTo(2);
+  }
+
+  @Test public void clientInterceptorsSeeTheCachePolicy() throws Exception {
+    List<String> cacheControls = new CopyOnWriteArrayList<>();
+    staleWhileRevalidate = new StaleWhileRevalidate(new OkHttpClient.Builder().cache(cache)
+        .addInterceptor(chain -> {
+          cacheControls.add(String.valueOf(chain.request()
+              .header("Cache-Control")));
+          return chain.proceed(chain.request());
+        })
+        .build(), POLICY);
+    server.enqueue(new MockResponse().setBody("a"));
+    server.enqueue(new MockResponse().setBody("b"));
+
+    assertThat(load(false)).containsExactly("a");
+    assertThat(load(true)).containsExactly("b");
+    // The cache probe, the miss going to the network, then the forced refresh.
+    assertThat(cacheControls).containsExactly("max-stale=3600, only-if-cached", "null", "no-cache")
+        .inOrder();
+  }
+
+  private List<String> load(boolean forceNetwork) {
+    return load(Single.fromCallable(() -> fetch(callFactory())), forceNetwork);
+  }
+
+  private List<String> load(Single<String> request, boolean forceNetwork) {
+    return staleWhileRevalidate.cacheThenRevalidate(request, forceNetwork)
+        .toList()
+        .timeout(5, TimeUnit.SECONDS)
+        .blockingGet();
+  }
+
+  private Call.Factory callFactory() {
+    return staleWhileRevalidate.callFactory(staleWhileRevalidate.client());
+  }
+
+  private String fetch(Call.Factory callFactory) throws IOException {
+    try (Response response = callFactory.newCall(new Request.Builder().url(server.url("/"))
+        .build())
+        .execute()) {
+      return response.body()
+          .string();
+    }
+  }
+
+  private static String minutesAgo(int minutes) {
+    DateFormat format = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss 'GMT'", Locale.US);
+    format.setTimeZone(TimeZone.getTimeZone("GMT"));
+    return format.format(new Date(System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(minutes)));
+  }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2017 Zac Sweers
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.sweers.catchup.data.medium;
+
+import io.reactivex.Single;
+import io.sweers.catchup.data.CachePolicy;
+import io.sweers.catchup.data.StaleWhileRevalidate;
+import java.text.DateFormat;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+import okhttp3.Cache;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public final class MediumJsonInterceptorTest {
+
+  @Rule public final TemporaryFolder cacheDir = new TemporaryFolder();
+  private final MockWebServer server = new MockWebServer();
+  private Cache cache;
+  private StaleWhileRevalidate staleWhileRevalidate;
+
+  @Before public void setUp() throws Exception {
+    server.start();
+    cache = new Cache(cacheDir.getRoot(), 1024 * 1024);
+    staleWhileRevalidate = new StaleWhileRevalidate(new OkHttpClient.Builder().cache(cache)
+        .addInterceptor(new MediumJsonInterceptor())
+        .build(), CachePolicy.create(15, 6 * 60, TimeUnit.MINUTES));
+  }
+
+  @After public void tearDown() throws Exception {
+    server.shutdown();
+    cache.close();
+  }
+
+  @Test public void stripsThePrefix() throws Exception {
+    server.enqueue(new MockResponse().setBody("])}while(1);</x>{\"a\":1}"));
+
+    assertThat(load()).containsExactly("{\"a\":1}");
+    assertThat(server.takeRequest()
+        .getPath()).isEqualTo("/browse/top?format=json");
+  }
+
+  @Test public void revalidationReplacesTheStoredResponse() throws Exception {
+    server.enqueue(new MockResponse().setBody("])}{\"v\":1}")
+        .setHeader("Date", minutesAgo(30)));
+    server.enqueue(new MockResponse().setBody("])}{\"v\":2}"));
+    assertThat(load()).containsExactly("{\"v\":1}");
+
+    assertThat(load()).containsExactly("{\"v\":1}", "{\"v\":2}")
+        .inOrder();
+    server.takeRequest();
+    assertThat(server.takeRequest()
+        .getPath()).isEqualTo("/browse/top?format=json");
+    // Stored under the same key as the original, so it's what's served now.
+    assertThat(load()).containsExactly("{\"v\":2}");
+    assertThat(server.getRequestCount()).isEqualTo(2);
+  }
+
+  private List<String> load() {
+    Single<String> request = Single.fromCallable(() -> {
+      try (Response response = staleWhileRevalidate.callFactory(staleWhileRevalidate.client())
+          .newCall(new Request.Builder().url(server.url("/browse/top"))
+              .build())
+          .execute()) {
+        return response.body()
+            .string();
+      }
+    });
+    return staleWhileRevalidate.cacheThenRevalidate(request, false)
+        .toList()
+        .timeout(5, TimeUnit.SECONDS)
+        .blockingGet();
+  }
+
+  private static String minutesAgo(int minutes) {
+    DateFormat format = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss 'GMT'", Locale.US);
+    format.setTimeZone(TimeZone.getTimeZone("GMT"));
+    return format.format(new Date(System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(minutes)));
+  }
+}
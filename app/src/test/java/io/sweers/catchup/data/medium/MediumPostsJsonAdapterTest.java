@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2017 Zac Sweers
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.sweers.catchup.data.medium;
+
+import com.squareup.moshi.JsonAdapter;
+import com.squareup.moshi.JsonReader;
+import com.squareup.moshi.Moshi;
+import com.squareup.moshi.Types;
+import io.sweers.catchup.data.AutoValueMoshiAdapterFactory;
+import io.sweers.catchup.data.EpochInstantJsonAdapter;
+import io.sweers.catchup.data.medium.model.MediumPost;
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import okio.BufferedSource;
+import okio.Okio;
+import org.junit.Test;
+import org.threeten.bp.Instant;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public final class MediumPostsJsonAdapterTest {
+
+  /** The mock top posts the debug build serves, relative to the module. */
+  private static final File TOP = new File("src/debug/assets/m/top.json");
+
+  private final JsonAdapter<List<MediumPost>> adapter =
+      new Moshi.Builder().add(AutoValueMoshiAdapterFactory.create())
+          .add(MediumPostsJsonAdapter.FACTORY)
+          .add(Instant.class, new EpochInstantJsonAdapter(TimeUnit.MILLISECONDS))
+          .build()
+          .adapter(Types.newParameterizedType(List.class, MediumPost.class));
+
+  @Test public void joinsTopPosts() throws Exception {
+    List<MediumPost> posts = readTop();
+    assertThat(posts).hasSize(20);
+    int withCollection = 0;
+    for (MediumPost post : posts) {
+      String homeCollectionId = post.post()
+          .homeCollectionId();
+      if (post.collection() != null) {
+        withCollection++;
+        assertThat(post.collection()
+            .id()).isEqualTo(homeCollectionId);
+      } else {
+        assertThat(homeCollectionId).isEmpty();
+      }
+    }
+    assertThat(withCollection).isEqualTo(15);
+  }
+
+  @Test public void roundTripsTopPosts() throws Exception {
+    List<MediumPost> posts = readTop();
+    assertThat(adapter.fromJson(adapter.toJson(posts))).isEqualTo(posts);
+  }
+
+  @Test public void noCreatorAmongPending() throws Exception {
+    // Collections last, so that the posts with one wait for them.
+    List<MediumPost> posts = adapter.fromJson("{"
+        + "\"User\":{\"u\":{\"name\":\"Jane\",\"userId\":\"u\",\"username\":\"jane\"}},"
+        + "\"Post\":{"
+        + post("a", "u", "\"homeCollectionId\":\"x\",") + ","
+        + post("b", "missing", "") + ","
+        + post("c", "u", "") + ","
+        + post("d", "u", "\"homeCollectionId\":\"y\",")
+        + "},"
+        + "\"Collection\":{"
+        + "\"x\":{\"domain\":\"x.com\",\"id\":\"x\",\"name\":\"X\"},"
+        + "\"y\":{\"domain\":\"y.com\",\"id\":\"y\",\"name\":\"Y\"}"
+        + "}"
+        + "}");
+    assertThat(posts).hasSize(3);
+    assertThat(posts.get(0)
+        .post()
+        .id()).isEqualTo("a");
+    assertThat(posts.get(0)
+        .collection()
+        .id()).isEqualTo("x");
+    assertThat(posts.get(1)
+        .post()
+        .id()).isEqualTo("c");
+    assertThat(posts.get(1)
+        .collection()).isNull();
+    assertThat(posts.get(2)
+        .post()
+        .id()).isEqualTo("d");
+    assertThat(posts.get(2)
+        .collection()
+        .id()).isEqualTo("y");
+  }
+
+  @Test public void noCollections() throws Exception {
+    // Users first, so that posts are joined as they're read.
+    List<MediumPost> posts = adapter.fromJson("{"
+        + "\"User\":{\"u\":{\"name\":\"Jane\",\"userId\":\"u\",\"username\":\"jane\"}},"
+        + "\"Post\":{"
+        + post("a", "u", "\"homeCollectionId\":null,") + ","
+        + post("b", "u", "") + ","
+        + post("c", "u", "\"homeCollectionId\":\"\",")
+        + "}"
+        + "}");
+    assertThat(posts).hasSize(3);
+    for (MediumPost post : posts) {
+      assertThat(post.collection()).isNull();
+      assertThat(post.user()
+          .userId()).isEqualTo("u");
+    }
+  }
+
+  private List<MediumPost> readTop() throws Exception {
+    try (BufferedSource source = Okio.buffer(Okio.source(TOP))) {
+      JsonReader reader = JsonReader.of(source);
+      reader.beginObject();
+      while (!reader.nextName()
+          .equals("payload")) {
+        reader.skipValue();
+      }
+      reader.beginObject();
+      while (!reader.nextName()
+          .equals("references")) {
+        reader.skipValue();
+      }
+      return adapter.fromJson(reader);
+    }
+  }
+
+  private static String post(String id, String creatorId, String homeCollectionId) {
+    return "\"" + id + "\":{\"createdAt\":1462677997460,\"creatorId\":\"" + creatorId + "\","
+        + homeCollectionId
+        + "\"id\":\"" + id + "\",\"title\":\"Title\",\"uniqueSlug\":\"title-" + id + "\","
+        + "\"virtuals\":{\"recommends\":1,\"responsesCreatedCount\":0}}";
+  }
+}
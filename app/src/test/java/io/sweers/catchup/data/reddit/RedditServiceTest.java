@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2017 Zac Sweers
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.sweers.catchup.data.reddit;
+
+import io.sweers.catchup.data.CachePolicy;
+import io.sweers.catchup.data.StaleWhileRevalidate;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.util.concurrent.TimeUnit;
+import okhttp3.Cache;
+import okhttp3.OkHttpClient;
+import okhttp3.ResponseBody;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import retrofit2.Converter;
+import retrofit2.Retrofit;
+import retrofit2.adapter.rxjava2.RxJava2CallAdapterFactory;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public final class RedditServiceTest {
+
+  @Rule public final TemporaryFolder cacheDir = new TemporaryFolder();
+  private final MockWebServer server = new MockWebServer();
+  private Cache cache;
+  private RedditService service;
+
+  @Before public void setUp() throws Exception {
+    server.start();
+    cache = new Cache(cacheDir.getRoot(), 1024 * 1024);
+    StaleWhileRevalidate staleWhileRevalidate =
+        new StaleWhileRevalidate(new OkHttpClient.Builder().cache(cache)
+            .build(), CachePolicy.create(5, 60, TimeUnit.MINUTES));
+    service = new Retrofit.Builder().baseUrl(server.url("/"))
+        .client(staleWhileRevalidate.client())
+        .addCallAdapterFactory(RxJava2CallAdapterFactory.create())
+        .addConverterFactory(new Converter.Factory() {
+          // The bodies aren't what's under test, so they're read and dropped.
+          @Override public Converter<ResponseBody, ?> responseBodyConverter(Type type,
+              Annotation[] annotations,
+              Retrofit retrofit) {
+            return ResponseBody::string;
+          }
+        })
+        .build()
+        .create(RedditService.class);
+  }
+
+  @After public void tearDown() throws Exception {
+    server.shutdown();
+    cache.close();
+  }
+
+  @Test public void requestsJson() throws Exception {
+    server.enqueue(new MockResponse().setBody("{}"));
+    service.subreddit("androiddev", "t3_a", 25)
+        .toCompletable()
+        .blockingAwait();
+
+    assertThat(server.takeRequest()
+        .getPath()).isEqualTo("/r/androiddev.json?after=t3_a&limit=25");
+  }
+
+  @Test public void secondRequestIsServedFromTheCache() throws Exception {
+    server.enqueue(new MockResponse().setBody("{}"));
+    service.frontPage(25, null)
+        .toCompletable()
+        .blockingAwait();
+    service.frontPage(25, null)
+        .toCompletable()
+        .blockingAwait();
+
+    assertThat(server.getRequestCount()).isEqualTo(1);
+    assertThat(server.takeRequest()
+        .getPath()).isEqualTo("/.json?limit=25");
+    assertThat(cache.hitCount()).isEqualTo(1);
+  }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2017 Zac Sweers
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.sweers.catchup.data.reddit.model;
+
+import com.squareup.moshi.JsonAdapter;
+import com.squareup.moshi.JsonReader;
+import com.squareup.moshi.Moshi;
+import io.sweers.catchup.data.AutoValueMoshiAdapterFactory;
+import io.sweers.catchup.data.EpochInstantJsonAdapter;
+import io.sweers.catchup.data.adapters.InternJsonAdapter;
+import io.sweers.catchup.util.StringPool;
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import okio.Buffer;
+import okio.BufferedSource;
+import okio.Okio;
+import org.junit.Before;
+import org.junit.Ignore;
+import org.junit.Test;
+import org.threeten.bp.Instant;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assume.assumeTrue;
+
+public final class RedditObjectFactoryTest {
+
+  /** The mock front page the debug build serves, relative to the module. */
+  private static final File FRONT_PAGE = new File("src/debug/assets/r/nopath.json");
+
+  private final Moshi moshi = new Moshi.Builder().add(AutoValueMoshiAdapterFactory.create())
+      .add(RedditObjectFactory.getInstance())
+      .add(Instant.class, new EpochInstantJsonAdapter(TimeUnit.SECONDS))
+      .add(InternJsonAdapter.newFactory(new StringPool(256)))
+      .build();
+  private final JsonAdapter<RedditObject> adapter = moshi.adapter(RedditObject.class);
+  private byte[] frontPage;
+
+  @Before public void setUp() throws Exception {
+    try (BufferedSource source = Okio.buffer(Okio.source(FRONT_PAGE))) {
+      frontPage = source.readByteArray();
+    }
+  }
+
+  @Test public void decodesFrontPage() throws Exception {
+    RedditListing listing = (RedditListing) adapter.fromJson(new Buffer().write(frontPage));
+    assertThat(listing.children()).hasSize(50);
+    assertThat(listing.children()
+        .get(0)).isInstanceOf(RedditLink.class);
+    assertThat(((RedditLink) listing.children()
+        .get(0)).id()).isEqualTo("4ionbq");
+  }
+
+  @Test public void poolsSubredditsAndDomains() throws Exception {
+    RedditListing listing = (RedditListing) adapter.fromJson(new Buffer().write(frontPage));
+    Map<String, String> seen = new HashMap<>();
+    int shared = 0;
+    for (Object child : listing.children()) {
+      RedditLink link = (RedditLink) child;
+      for (String value : Arrays.asList(link.subreddit(), link.domain())) {
+        String first = seen.get(value);
+        if (first == null) {
+          seen.put(value, value);
+        } else {
+          assertThat(value).isSameAs(first);
+          shared++;
+        }
+      }
+    }
+    assertThat(shared).isGreaterThan(0);
+  }
+
+  @Test public void dataBeforeKind() throws Exception {
+    RedditObject object = adapter.fromJson("{\"data\":{\"count\":0,\"parent_id\":\"t1_a\","
+        + "\"children\":[],\"name\":\"t1_b\",\"id\":\"b\"},\"kind\":\"more\"}");
+    assertThat(object).isInstanceOf(RedditMore.class);
+  }
+
+  @Test public void encodesKindThenData() throws Exception {
+    RedditObject more = adapter.fromJson("{\"kind\":\"more\",\"data\":{\"count\":0,"
+        + "\"parent_id\":\"t1_a\",\"children\":[],\"name\":\"t1_b\",\"id\":\"b\"}}");
+    assertThat(adapter.toJson(more)).startsWith("{\"kind\":\"more\",\"data\":{");
+  }
+
+  @Test public void roundTripsFrontPage() throws Exception {
+    RedditObject listing = adapter.fromJson(new Buffer().write(frontPage));
+    assertThat(adapter.fromJson(adapter.toJson(listing))).isEqualTo(listing);
+  }
+
+  /**
+   * Benchmarks the streaming decode against materializing the JSON tree first, which is what
+   * this factory used to do for every object. Allocation counts vary with the JVM and its warmup,
+   * so it's left for running by hand rather than on CI.
+   */
+  @Ignore("Benchmark, run by hand")
+  @Test public void streamingAllocatesLessThanTreeDecoding() throws Exception {
+    java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+    assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+    com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+    assumeTrue(threads.isThreadAllocatedMemorySupported());
+    threads.setThreadAllocatedMemoryEnabled(true);
+    for (int i = 0; i < 50; i++) {
+      decodeStreaming();
+      decodeTree();
+    }
+    long streaming = allocatedBytes(threads, this::decodeStreaming);
+    long tree = allocatedBytes(threads, this::decodeTree);
+    assertThat(streaming).isLessThan(tree);
+  }
+
+  private void decodeStreaming() throws Exception {
+    adapter.fromJson(new Buffer().write(frontPage));
+  }
+
+  private void decodeTree() throws Exception {
+    adapter.fromJsonValue(JsonReader.of(new Buffer().write(frontPage))
+        .readJsonValue());
+  }
+
+  private static long allocatedBytes(com.sun.management.ThreadMXBean threads, Decode decode)
+      throws Exception {
+    long threadId = Thread.currentThread()
+        .getId();
+    long before = threads.getThreadAllocatedBytes(threadId);
+    for (int i = 0; i < 100; i++) {
+      decode.run();
+    }
+    return threads.getThreadAllocatedBytes(threadId) - before;
+  }
+
+  private interface Decode {
+    void run() throws Exception;
+  }
+}
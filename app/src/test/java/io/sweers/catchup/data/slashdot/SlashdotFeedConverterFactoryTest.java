@@ -0,0 +1,188 @@
+/*
+ * Copyright (c) 2017 Zac Sweers
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.sweers.catchup.data.slashdot;
+
+import io.sweers.catchup.util.StringPool;
+import java.io.File;
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import okhttp3.MediaType;
+import okhttp3.ResponseBody;
+import okio.BufferedSource;
+import okio.Okio;
+import org.junit.Before;
+import org.junit.Ignore;
+import org.junit.Test;
+import org.simpleframework.xml.Element;
+import org.simpleframework.xml.ElementList;
+import org.simpleframework.xml.Root;
+import org.simpleframework.xml.core.Persister;
+import org.threeten.bp.Instant;
+import retrofit2.Converter;
+import retrofit2.Retrofit;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeTrue;
+
+public final class SlashdotFeedConverterFactoryTest {
+
+  /** The mock feed the debug build serves, relative to the module. */
+  private static final File FEED = new File("src/debug/assets/sd/slashdotMainatom.xml");
+  private static final MediaType XML = MediaType.parse("application/atom+xml");
+
+  private final Retrofit retrofit = new Retrofit.Builder().baseUrl("http://localhost/")
+      .build();
+  private byte[] feed;
+
+  @Before public void setUp() throws Exception {
+    try (BufferedSource source = Okio.buffer(Okio.source(FEED))) {
+      feed = source.readByteArray();
+    }
+  }
+
+  @Test public void readsFeed() throws Exception {
+    Feed result = converter(50).convert(ResponseBody.create(XML, feed));
+    assertThat(result.title).isEqualTo("Slashdot");
+    assertThat(result.updated).isEqualTo(Instant.parse("2016-05-19T05:58:13Z"));
+    assertThat(result.itemList).hasSize(15);
+
+    Entry entry = result.itemList.get(0);
+    assertThat(entry.id).isEqualTo("https://news.slashdot.org/story/16/05/18/2247243/"
+        + "pfizer-blocks-the-use-of-its-drugs-in-executions"
+        + "?utm_source=atom1.0mainlinkanon&utm_medium=feed");
+    assertThat(entry.title).isEqualTo("Pfizer Blocks The Use Of Its Drugs In Executions");
+    assertThat(entry.link).isEqualTo(entry.id);
+    assertThat(entry.updated).isNotNull();
+    assertThat(entry.author.name).isNotEmpty();
+    assertThat(entry.department).isNotEmpty();
+    assertThat(entry.section).isNotEmpty();
+    assertThat(entry.comments).isGreaterThan(0);
+  }
+
+  @Test public void malformedCommentCountReadsAsZero() throws Exception {
+    String malformed = new String(feed, "UTF-8").replaceFirst(
+        "<slash:comments>\\d+</slash:comments>", "<slash:comments>lots</slash:comments>");
+    Feed result = converter(50).convert(ResponseBody.create(XML, malformed));
+    assertThat(result.itemList).hasSize(15);
+    assertThat(result.itemList.get(0).comments).isEqualTo(0);
+    assertThat(result.itemList.get(1).comments).isGreaterThan(0);
+  }
+
+  @Test public void malformedDateIsAnIoException() throws Exception {
+    String malformed = new String(feed, "UTF-8").replaceFirst(
+        "<updated>[^<]+</updated>", "<updated>yesterday</updated>");
+    try {
+      converter(50).convert(ResponseBody.create(XML, malformed));
+      fail();
+    } catch (IOException expected) {
+      assertThat(expected).hasMessageThat()
+          .isEqualTo("Malformed Slashdot feed");
+    }
+  }
+
+  @Test public void stopsAtMaxEntries() throws Exception {
+    Feed result = converter(3).convert(ResponseBody.create(XML, feed));
+    assertThat(result.itemList).hasSize(3);
+  }
+
+  @Test public void sharesRepeatedSections() throws Exception {
+    List<Entry> entries = converter(50).convert(ResponseBody.create(XML, feed)).itemList;
+    for (Entry entry : entries) {
+      for (Entry other : entries) {
+        if (entry.section.equals(other.section)) {
+          assertThat(other.section).isSameAs(entry.section);
+        }
+      }
+    }
+  }
+
+  @Test public void matchesSimpleXml() throws Exception {
+    List<Entry> entries = converter(50).convert(ResponseBody.create(XML, feed)).itemList;
+    List<SimpleEntry> simpleEntries = readWithSimpleXml().itemList;
+    assertThat(entries).hasSize(simpleEntries.size());
+    for (int i = 0; i < entries.size(); i++) {
+      Entry entry = entries.get(i);
+      SimpleEntry simpleEntry = simpleEntries.get(i);
+      assertThat(entry.id).isEqualTo(simpleEntry.id.trim());
+      assertThat(entry.department).isEqualTo(simpleEntry.department.trim());
+      assertThat(entry.comments).isEqualTo(simpleEntry.comments);
+    }
+  }
+
+  /**
+   * Benchmarks allocations against the SimpleXML converter this replaced. The counts vary with
+   * the JVM and its warmup, so it's left for running by hand.
+   */
+  @Ignore("Benchmark, run by hand")
+  @Test public void allocatesLessThanSimpleXml() throws Exception {
+    java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+    assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+    com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+    assumeTrue(threads.isThreadAllocatedMemorySupported());
+    threads.setThreadAllocatedMemoryEnabled(true);
+    Converter<ResponseBody, Feed> converter = converter(50);
+    for (int i = 0; i < 50; i++) {
+      converter.convert(ResponseBody.create(XML, feed));
+      readWithSimpleXml();
+    }
+    long threadId = Thread.currentThread()
+        .getId();
+
+    long before = threads.getThreadAllocatedBytes(threadId);
+    for (int i = 0; i < 20; i++) {
+      converter.convert(ResponseBody.create(XML, feed));
+    }
+    long pull = threads.getThreadAllocatedBytes(threadId) - before;
+    before = threads.getThreadAllocatedBytes(threadId);
+    for (int i = 0; i < 20; i++) {
+      readWithSimpleXml();
+    }
+    long simpleXml = threads.getThreadAllocatedBytes(threadId) - before;
+    assertThat(pull).isLessThan(simpleXml);
+  }
+
+  @SuppressWarnings("unchecked")
+  private Converter<ResponseBody, Feed> converter(int maxEntries) {
+    return (Converter<ResponseBody, Feed>) SlashdotFeedConverterFactory.create(maxEntries,
+        new StringPool(64))
+        .responseBodyConverter(Feed.class, new Annotation[0], retrofit);
+  }
+
+  private SimpleFeed readWithSimpleXml() throws Exception {
+    return new Persister().read(SimpleFeed.class, ResponseBody.create(XML, feed)
+        .byteStream(), false);
+  }
+
+  /** The SimpleXML model this replaced. */
+  @Root(strict = false)
+  public static class SimpleFeed {
+    @ElementList(name = "item", inline = true) public List<SimpleEntry> itemList;
+  }
+
+  @Root(name = "entry", strict = false)
+  public static class SimpleEntry {
+    @Element(name = "title", required = false) public String title;
+    @Element(name = "id") public String id;
+    @Element(name = "updated", required = false) public String updated;
+    @Element(name = "section", required = false) public String section;
+    @Element(name = "comments", required = false) public int comments;
+    @Element(name = "department", required = false) public String department;
+  }
+}
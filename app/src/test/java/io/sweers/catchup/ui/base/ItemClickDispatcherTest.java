@@ -0,0 +1,179 @@
+/*
+ * Copyright (c) 2017 Zac Sweers
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.sweers.catchup.ui.base;
+
+import io.sweers.catchup.data.CatchUpItem;
+import io.sweers.catchup.util.collect.ColumnarItems;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Ignore;
+import org.junit.Test;
+import org.threeten.bp.Instant;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assume.assumeTrue;
+
+public final class ItemClickDispatcherTest {
+
+  private final ColumnarItems data = new ColumnarItems();
+  private final RecordingCallbacks callbacks = new RecordingCallbacks();
+  private ItemClickDispatcher dispatcher;
+
+  @Before public void setUp() {
+    for (int i = 0; i < 10; i++) {
+      data.add(item(i));
+    }
+    dispatcher = new ItemClickDispatcher(data, callbacks);
+  }
+
+  @Test public void resolvesItemAtClickTime() {
+    dispatcher.dispatchClick(3);
+    data.clear();
+    data.add(item(42));
+    dispatcher.dispatchClick(0);
+    dispatcher.dispatchCommentClick(0);
+    assertThat(callbacks.clicks).containsExactly(3L, 42L).inOrder();
+    assertThat(callbacks.commentClicks).containsExactly(42L);
+  }
+
+  @Test public void ignoresStalePositions() {
+    dispatcher.dispatchClick(-1); // RecyclerView.NO_POSITION
+    dispatcher.dispatchClick(10);
+    dispatcher.dispatchCommentClick(-1);
+    assertThat(dispatcher.dispatchLongClick(-1)).isFalse();
+    assertThat(callbacks.clicks).isEmpty();
+    assertThat(callbacks.commentClicks).isEmpty();
+    assertThat(callbacks.longClicks).isEmpty();
+  }
+
+  @Test public void longClickReportsConsumption() {
+    callbacks.consumeLongClicks = true;
+    assertThat(dispatcher.dispatchLongClick(1)).isTrue();
+    callbacks.consumeLongClicks = false;
+    assertThat(dispatcher.dispatchLongClick(2)).isFalse();
+    assertThat(callbacks.longClicks).containsExactly(1L, 2L).inOrder();
+  }
+
+  @Test public void handsOverTheBackingItems() {
+    // Callbacks read columns in place rather than getting a materialized item per click.
+    dispatcher.dispatchClick(0);
+    dispatcher.dispatchLongClick(1);
+    dispatcher.dispatchCommentClick(2);
+    assertThat(callbacks.items).hasSize(3);
+    for (ColumnarItems items : callbacks.items) {
+      assertThat(items).isSameAs(data);
+    }
+  }
+
+  /**
+   * Rows bind with no click wiring at all, so the only click work left is this lookup. Scrolling
+   * through a large list and clicking should not allocate anything on the calling thread.
+   * Allocation counts vary with the JVM and its warmup, so it's left for running by hand.
+   */
+  @Ignore("Benchmark, run by hand")
+  @Test public void dispatchDoesNotAllocate() {
+    com.sun.management.ThreadMXBean threads = threadMxBean();
+    assumeTrue(threads != null && threads.isThreadAllocatedMemorySupported());
+    threads.setThreadAllocatedMemoryEnabled(true);
+    NoOpCallbacks noOp = new NoOpCallbacks();
+    ItemClickDispatcher dispatcher = new ItemClickDispatcher(data, noOp);
+    long threadId = Thread.currentThread().getId();
+
+    // Warm up so the measured run isn't interpreting or loading classes.
+    dispatchAll(dispatcher, 100_000);
+    long overhead = measure(threads, threadId, null, 0);
+    long allocated = measure(threads, threadId, dispatcher, 100_000);
+
+    assertThat(allocated - overhead).isAtMost(0L);
+    assertThat(noOp.count).isGreaterThan(0L);
+  }
+
+  private static long measure(com.sun.management.ThreadMXBean threads, long threadId,
+      ItemClickDispatcher dispatcher, int rounds) {
+    long before = threads.getThreadAllocatedBytes(threadId);
+    if (dispatcher != null) {
+      dispatchAll(dispatcher, rounds);
+    }
+    return threads.getThreadAllocatedBytes(threadId) - before;
+  }
+
+  private static void dispatchAll(ItemClickDispatcher dispatcher, int rounds) {
+    for (int i = 0; i < rounds; i++) {
+      int position = i % 12 - 1; // Includes out of range positions
+      dispatcher.dispatchClick(position);
+      dispatcher.dispatchLongClick(position);
+      dispatcher.dispatchCommentClick(position);
+    }
+  }
+
+  private static com.sun.management.ThreadMXBean threadMxBean() {
+    java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+    return bean instanceof com.sun.management.ThreadMXBean
+        ? (com.sun.management.ThreadMXBean) bean
+        : null;
+  }
+
+  private static CatchUpItem item(long id) {
+    return CatchUpItem.builder()
+        .id(id)
+        .title("Item " + id)
+        .timestamp(Instant.EPOCH)
+        .build();
+  }
+
+  private static final class RecordingCallbacks implements ItemClickDispatcher.Callbacks {
+    final List<Long> clicks = new ArrayList<>();
+    final List<Long> longClicks = new ArrayList<>();
+    final List<Long> commentClicks = new ArrayList<>();
+    final List<ColumnarItems> items = new ArrayList<>();
+    boolean consumeLongClicks;
+
+    @Override public void onItemClick(ColumnarItems items, int position) {
+      clicks.add(items.id(position));
+      this.items.add(items);
+    }
+
+    @Override public boolean onItemLongClick(ColumnarItems items, int position) {
+      longClicks.add(items.id(position));
+      this.items.add(items);
+      return consumeLongClicks;
+    }
+
+    @Override public void onItemCommentClick(ColumnarItems items, int position) {
+      commentClicks.add(items.id(position));
+      this.items.add(items);
+    }
+  }
+
+  private static final class NoOpCallbacks implements ItemClickDispatcher.Callbacks {
+    long count;
+
+    @Override public void onItemClick(ColumnarItems items, int position) {
+      count += items.id(position);
+    }
+
+    @Override public boolean onItemLongClick(ColumnarItems items, int position) {
+      count++;
+      return false;
+    }
+
+    @Override public void onItemCommentClick(ColumnarItems items, int position) {
+      count++;
+    }
+  }
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright (c) 2017 Zac Sweers
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.sweers.catchup.ui.controllers;
+
+import com.bluelinelabs.conductor.Controller;
+import com.google.firebase.FirebaseApp;
+import com.google.firebase.FirebaseOptions;
+import dagger.android.DispatchingAndroidInjector;
+import io.sweers.catchup.app.ApplicationComponent;
+import io.sweers.catchup.app.DaggerApplicationComponent;
+import io.sweers.catchup.data.CircuitBreaker;
+import io.sweers.catchup.data.StaleWhileRevalidate;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import okhttp3.Interceptor;
+import okhttp3.OkHttpClient;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import retrofit2.Converter;
+import retrofit2.Retrofit;
+import retrofit2.converter.moshi.MoshiConverterFactory;
+
+import static com.google.common.truth.Truth.assertThat;
+
+/**
+ * Builds the real {@link ApplicationComponent}, injects every service controller twice and counts
+ * the distinct instances of each heavy type behind them.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 23)
+public final class ApplicationScopeTest {
+
+  private ApplicationComponent component;
+  private DispatchingAndroidInjector<Controller> injector;
+
+  @Before public void setUp() {
+    // There's no google-services.json under test, so provide the default app up front.
+    if (FirebaseApp.getApps(RuntimeEnvironment.application)
+        .isEmpty()) {
+      FirebaseApp.initializeApp(RuntimeEnvironment.application,
+          new FirebaseOptions.Builder().setApplicationId("1:0:android:0")
+              .setApiKey("test")
+              .setDatabaseUrl("https://catchup-test.firebaseio.com")
+              .build());
+    }
+    component = DaggerApplicationComponent.builder()
+        .application(RuntimeEnvironment.application)
+        .build();
+    injector = component.controllerInjector();
+  }
+
+  @Test public void oneInstancePerBinding() throws Exception {
+    Set<Object> services = identitySet();
+    Set<Object> staleWhileRevalidates = identitySet();
+    Set<Object> retrofits = identitySet();
+    Set<Object> moshis = identitySet();
+    for (int i = 0; i < 2; i++) {
+      HackerNewsController hackerNews = inject(new HackerNewsController());
+      services.add(hackerNews.database.get());
+
+      RedditController reddit = inject(new RedditController());
+      services.add(reddit.service);
+      staleWhileRevalidates.add(reddit.staleWhileRevalidate);
+
+      MediumController medium = inject(new MediumController());
+      services.add(medium.service);
+      staleWhileRevalidates.add(medium.staleWhileRevalidate);
+
+      ProductHuntController productHunt = inject(new ProductHuntController());
+      services.add(productHunt.service);
+      staleWhileRevalidates.add(productHunt.staleWhileRevalidate);
+
+      SlashdotController slashdot = inject(new SlashdotController());
+      services.add(slashdot.service);
+      staleWhileRevalidates.add(slashdot.staleWhileRevalidate);
+
+      DesignerNewsController designerNews = inject(new DesignerNewsController());
+      services.add(designerNews.service);
+      staleWhileRevalidates.add(designerNews.staleWhileRevalidate);
+
+      DribbbleController dribbble = inject(new DribbbleController());
+      services.add(dribbble.service);
+
+      services.add(inject(new GitHubController()).apolloClient);
+
+      for (Object service : Arrays.asList(reddit.service, medium.service, productHunt.service,
+          slashdot.service, designerNews.service, dribbble.service)) {
+        Retrofit retrofit = retrofitOf(service);
+        retrofits.add(retrofit);
+        for (Converter.Factory factory : retrofit.converterFactories()) {
+          if (factory instanceof MoshiConverterFactory) {
+            moshis.add(moshiOf((MoshiConverterFactory) factory));
+          }
+        }
+      }
+    }
+
+    assertThat(services).hasSize(8);
+    assertThat(staleWhileRevalidates).hasSize(5);
+    // Slashdot's is the only Retrofit without Moshi.
+    assertThat(retrofits).hasSize(6);
+    assertThat(moshis).hasSize(5);
+
+    Set<OkHttpClient> serviceClients = identitySet();
+    serviceClients.addAll(component.serviceClients());
+    assertThat(serviceClients).hasSize(7);
+    for (Object staleWhileRevalidate : staleWhileRevalidates) {
+      assertThat(serviceClients).contains(((StaleWhileRevalidate) staleWhileRevalidate).client());
+    }
+
+    // Each service client trips the breaker the component reports for it, and no other.
+    Set<CircuitBreaker> breakers = identitySet();
+    breakers.addAll(component.circuitBreakers());
+    Set<CircuitBreaker> clientBreakers = identitySet();
+    for (OkHttpClient client : serviceClients) {
+      List<CircuitBreaker> found = new ArrayList<>();
+      for (Interceptor interceptor : client.interceptors()) {
+        if (interceptor instanceof CircuitBreaker) {
+          found.add((CircuitBreaker) interceptor);
+        }
+      }
+      assertThat(found).hasSize(1);
+      assertThat(breakers).contains(found.get(0));
+      clientBreakers.add(found.get(0));
+    }
+    assertThat(clientBreakers).hasSize(breakers.size());
+
+    // Service clients are derived from the shared one, so they reuse its cache, connection pool
+    // and dispatcher.
+    List<OkHttpClient> clients = new ArrayList<>(serviceClients);
+    clients.add(component.okHttpClient());
+    Set<Object> caches = identitySet();
+    Set<Object> connectionPools = identitySet();
+    Set<Object> dispatchers = identitySet();
+    for (OkHttpClient client : clients) {
+      caches.add(client.cache());
+      connectionPools.add(client.connectionPool());
+      dispatchers.add(client.dispatcher());
+    }
+    assertThat(caches).hasSize(1);
+    assertThat(connectionPools).hasSize(1);
+    assertThat(dispatchers).hasSize(1);
+  }
+
+  private <T extends Controller> T inject(T controller) {
+    injector.inject(controller);
+    return controller;
+  }
+
+  /** Retrofit's service proxies dispatch through an inner class of the Retrofit that made them. */
+  private static Retrofit retrofitOf(Object service) throws Exception {
+    InvocationHandler handler = Proxy.getInvocationHandler(service);
+    Field retrofit = handler.getClass()
+        .getDeclaredField("this$0");
+    retrofit.setAccessible(true);
+    return (Retrofit) retrofit.get(handler);
+  }
+
+  private static Object moshiOf(MoshiConverterFactory factory) throws Exception {
+    Field moshi = MoshiConverterFactory.class.getDeclaredField("moshi");
+    moshi.setAccessible(true);
+    return moshi.get(factory);
+  }
+
+  private static <T> Set<T> identitySet() {
+    return Collections.newSetFromMap(new IdentityHashMap<>());
+  }
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) 2017 Zac Sweers
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.sweers.catchup.util;
+
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assume.assumeTrue;
+
+public final class HashingTest {
+
+  private static final char[] SLUG = "abcdefghijklmnopqrstuvwxyz-".toCharArray();
+
+  @Test public void isStable() {
+    // Persisted as stable IDs, so these must never change.
+    assertThat(Hashing.hash64("6jx1x3")).isEqualTo(0x084d380b5f804b5fL);
+    assertThat(Hashing.hash64(new String("6jx1x3"))).isEqualTo(0x084d380b5f804b5fL);
+    assertThat(Hashing.hash64("a")).isNotEqualTo(Hashing.hash64("a\u0000"));
+    assertThat(Hashing.hash64("abcd")).isNotEqualTo(Hashing.hash64("abcd\u0000"));
+  }
+
+  /**
+   * Hashes a corpus shaped like the keys the services hand out, where {@link String#hashCode()}
+   * is all but guaranteed to collide.
+   */
+  @Test public void noCollisionsOnRealisticKeys() {
+    List<String> corpus = corpus(1_000_000);
+    long[] hashes = new long[corpus.size()];
+    int[] hashCodes = new int[corpus.size()];
+    for (int i = 0; i < corpus.size(); i++) {
+      hashes[i] = Hashing.hash64(corpus.get(i));
+      hashCodes[i] = corpus.get(i)
+          .hashCode();
+    }
+    Arrays.sort(hashes);
+    Arrays.sort(hashCodes);
+    int collisions = 0;
+    int hashCodeCollisions = 0;
+    for (int i = 1; i < hashes.length; i++) {
+      if (hashes[i] == hashes[i - 1]) {
+        collisions++;
+      }
+      if (hashCodes[i] == hashCodes[i - 1]) {
+        hashCodeCollisions++;
+      }
+    }
+    assertThat(collisions).isEqualTo(0);
+    assertThat(hashCodeCollisions).isGreaterThan(0);
+  }
+
+  /**
+   * Benchmarks throughput against a truncated SHA-1, the usual way of getting 64 well mixed bits
+   * out of a string, and checks that hashing doesn't allocate. Timings flake on loaded machines,
+   * so it's left for running by hand.
+   */
+  @Ignore("Benchmark, run by hand")
+  @Test public void fasterThanDigest() throws Exception {
+    List<String> corpus = corpus(100_000);
+    MessageDigest sha1 = MessageDigest.getInstance("SHA-1");
+    long sink = 0;
+    // Warm up.
+    for (int round = 0; round < 3; round++) {
+      for (String key : corpus) {
+        sink += Hashing.hash64(key) + digest64(sha1, key);
+      }
+    }
+
+    long start = System.nanoTime();
+    for (String key : corpus) {
+      sink += Hashing.hash64(key);
+    }
+    long hashNanos = System.nanoTime() - start;
+
+    start = System.nanoTime();
+    for (String key : corpus) {
+      sink += digest64(sha1, key);
+    }
+    long digestNanos = System.nanoTime() - start;
+
+    assertThat(sink).isNotEqualTo(1);
+    assertThat(hashNanos).isLessThan(digestNanos);
+
+    java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+    assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+    com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+    assumeTrue(threads.isThreadAllocatedMemorySupported());
+    long threadId = Thread.currentThread()
+        .getId();
+    long before = threads.getThreadAllocatedBytes(threadId);
+    for (String key : corpus) {
+      sink += Hashing.hash64(key);
+    }
+    long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+    assertThat(sink).isNotEqualTo(2);
+    // Leave room for the measurement itself.
+    assertThat(allocated).isLessThan(1024L);
+  }
+
+  private static long digest64(MessageDigest digest, String key) {
+    byte[] bytes = digest.digest(key.getBytes(StandardCharsets.UTF_8));
+    long h = 0;
+    for (int i = 0; i < 8; i++) {
+      h = h << 8 | (bytes[i] & 0xff);
+    }
+    return h;
+  }
+
+  /**
+   * Mixes Reddit's base 36 IDs, Medium's hex post IDs, GitHub's base 64 node IDs and Slashdot's
+   * story URLs.
+   */
+  private static List<String> corpus(int size) {
+    Random random = new Random(42);
+    List<String> keys = new ArrayList<>(size);
+    for (int i = 0; keys.size() < size; i++) {
+      switch (i & 3) {
+        case 0:
+          keys.add(Long.toString(200_000_000L + i, 36));
+          break;
+        case 1:
+          keys.add(String.format("%012x", 0x10000000000L + i * 7919L));
+          break;
+        case 2:
+          keys.add("MDEwOlJlcG9zaXRvcnk" + (10_000_000 + i));
+          break;
+        default:
+          keys.add("https://news.slashdot.org/story/17/"
+              + (1 + i % 12) + "/" + (1 + i % 28) + "/" + (1000000 + i)
+              + "/" + slug(random)
+              + "?utm_source=atom1.0mainlinkanon&utm_medium=feed");
+      }
+    }
+    return keys;
+  }
+
+  private static String slug(Random random) {
+    char[] slug = new char[20 + random.nextInt(40)];
+    for (int i = 0; i < slug.length; i++) {
+      slug[i] = SLUG[random.nextInt(SLUG.length)];
+    }
+    return new String(slug);
+  }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2017 Zac Sweers
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.sweers.catchup.util;
+
+import java.lang.management.ManagementFactory;
+import org.junit.Ignore;
+import org.junit.Test;
+import org.threeten.bp.Instant;
+import org.threeten.bp.OffsetDateTime;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assume.assumeTrue;
+
+public final class InstantsTest {
+
+  /** The layouts the mock assets use, plus edges of what the fast path accepts. */
+  private static final String[] TIMES = {
+      "2016-04-20T18:09:46Z",
+      "2016-05-19T05:58:13+00:00",
+      "2016-05-10T09:04:47.123-07:00",
+      "2016-05-10T09:04:47.1+05:30",
+      "2016-05-10T09:04:47.123456789Z",
+      "2016-02-29T23:59:59-18:00",
+      "2000-02-29T00:00:00+18:00",
+      "1969-12-31T23:59:59.999Z",
+      "0001-01-01T00:00:00Z",
+      "9999-12-31T23:59:59Z",
+  };
+
+  @Test public void matchesThreeTen() {
+    for (String time : TIMES) {
+      assertThat(Instants.parseRfc3339(time)).isEqualTo(OffsetDateTime.parse(time)
+          .toInstant());
+    }
+  }
+
+  @Test public void otherLayoutsFallBack() {
+    String[] unsupported = {
+        "2016-05-19T05:58Z",
+        "2016-05-19T05:58:13",
+        "2016-05-19T05:58:13.Z",
+        "2016-05-19T05:58:13+0000",
+        "2016-05-19T05:58:13+00:00:00",
+        "2016-05-19 05:58:13Z",
+        "2016-02-30T05:58:13Z",
+        "2015-02-29T05:58:13Z",
+        "2016-05-19T24:00:00Z",
+        "2016-05-19T05:58:13+19:00",
+        "2016-05-19T05:58:13Zz",
+    };
+    for (String time : unsupported) {
+      assertThat(Instants.parseRfc3339(time)).isNull();
+    }
+    assertThat(Instants.parsePossiblyOffsetInstant("2016-05-19T05:58:13+00:00:00"))
+        .isEqualTo(Instant.parse("2016-05-19T05:58:13Z"));
+  }
+
+  /**
+   * Benchmarks allocations against the formatter-based parsing this replaced. The counts vary
+   * with the JVM and its warmup, so it's left for running by hand.
+   */
+  @Ignore("Benchmark, run by hand")
+  @Test public void allocatesLessThanThreeTen() {
+    java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+    assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+    com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+    assumeTrue(threads.isThreadAllocatedMemorySupported());
+    threads.setThreadAllocatedMemoryEnabled(true);
+    long threadId = Thread.currentThread()
+        .getId();
+    for (int i = 0; i < 1000; i++) {
+      parseAll(false);
+      parseAll(true);
+    }
+
+    long before = threads.getThreadAllocatedBytes(threadId);
+    parseAll(false);
+    long fast = threads.getThreadAllocatedBytes(threadId) - before;
+    before = threads.getThreadAllocatedBytes(threadId);
+    parseAll(true);
+    long threeTen = threads.getThreadAllocatedBytes(threadId) - before;
+    assertThat(fast * 10).isLessThan(threeTen);
+  }
+
+  private static void parseAll(boolean threeTen) {
+    for (int i = 0; i < 100; i++) {
+      for (String time : TIMES) {
+        if (threeTen) {
+          OffsetDateTime.parse(time)
+              .toInstant();
+        } else {
+          Instants.parseRfc3339(time);
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2017 Zac Sweers
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.sweers.catchup.util;
+
+import com.squareup.moshi.JsonAdapter;
+import com.squareup.moshi.JsonReader;
+import com.squareup.moshi.Moshi;
+import io.sweers.catchup.data.adapters.Intern;
+import io.sweers.catchup.data.adapters.InternJsonAdapter;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import okio.Buffer;
+import okio.BufferedSource;
+import okio.Okio;
+import org.junit.Test;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public final class StringPoolTest {
+
+  /** The mock front page the debug build serves, relative to the module. */
+  private static final File FRONT_PAGE = new File("src/debug/assets/r/nopath.json");
+  private static final List<String> POOLED_NAMES = Arrays.asList("subreddit", "domain");
+
+  @Test public void sharesEqualStrings() {
+    StringPool pool = new StringPool(16);
+    String first = pool.intern(new String("android"));
+    String second = pool.intern(new String("android"));
+    assertThat(second).isSameAs(first);
+    assertThat(pool.intern(null)).isNull();
+  }
+
+  @Test public void staysBounded() {
+    StringPool pool = new StringPool(1);
+    assertThat(pool.capacity()).isEqualTo(1);
+    String first = pool.intern(new String("a"));
+    pool.intern("b");
+    String again = pool.intern(new String("a"));
+    assertThat(again).isEqualTo(first);
+    assertThat(again).isNotSameAs(first);
+    assertThat(new StringPool(100).capacity()).isEqualTo(128);
+  }
+
+  /**
+   * Benchmarks the heap retained by the front page's subreddits and domains, with and without
+   * {@link Intern}. Sizes are estimated for a 64-bit VM with compressed references.
+   */
+  @Test public void savesHeapOnFrontPage() throws Exception {
+    byte[] frontPage;
+    try (BufferedSource source = Okio.buffer(Okio.source(FRONT_PAGE))) {
+      frontPage = source.readByteArray();
+    }
+    Moshi moshi = new Moshi.Builder().add(InternJsonAdapter.newFactory(new StringPool(256)))
+        .build();
+
+    List<String> plain = new ArrayList<>();
+    collect(JsonReader.of(new Buffer().write(frontPage)), moshi.adapter(String.class), plain);
+    List<String> pooled = new ArrayList<>();
+    collect(JsonReader.of(new Buffer().write(frontPage)),
+        moshi.adapter(String.class, Intern.class),
+        pooled);
+
+    assertThat(pooled).isEqualTo(plain);
+    long saved = retainedSize(plain) - retainedSize(pooled);
+    assertThat(saved).isGreaterThan(0L);
+  }
+
+  private static void collect(JsonReader reader, JsonAdapter<String> adapter, List<String> out)
+      throws IOException {
+    switch (reader.peek()) {
+      case BEGIN_OBJECT:
+        reader.beginObject();
+        while (reader.hasNext()) {
+          boolean pooled = POOLED_NAMES.contains(reader.nextName());
+          if (pooled && reader.peek() == JsonReader.Token.STRING) {
+            out.add(adapter.fromJson(reader));
+          } else {
+            collect(reader, adapter, out);
+          }
+        }
+        reader.endObject();
+        break;
+      case BEGIN_ARRAY:
+        reader.beginArray();
+        while (reader.hasNext()) {
+          collect(reader, adapter, out);
+        }
+        reader.endArray();
+        break;
+      default:
+        reader.skipValue();
+    }
+  }
+
+  private static long retainedSize(List<String> strings) {
+    Set<String> distinct = Collections.newSetFromMap(new IdentityHashMap<>());
+    distinct.addAll(strings);
+    long size = 0;
+    for (String string : distinct) {
+      // String header and fields, then a Latin-1 backing array.
+      size += 24 + align(16 + string.length());
+    }
+    return size;
+  }
+
+  private static long align(long size) {
+    return (size + 7) & ~7;
+  }
+}
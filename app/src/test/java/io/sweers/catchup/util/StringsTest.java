@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2017 Zac Sweers
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.sweers.catchup.util;
+
+import java.lang.management.ManagementFactory;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assume.assumeTrue;
+
+public final class StringsTest {
+
+  @Test public void unescapes() {
+    assertThat(Strings.unescapeJavaString("a\\tb\\nc")).isEqualTo("a\tb\nc");
+    assertThat(Strings.unescapeJavaString("\\\"quoted\\\" \\'single\\'")).isEqualTo(
+        "\"quoted\" 'single'");
+    assertThat(Strings.unescapeJavaString("\\101\\60\\0")).isEqualTo("A0\0");
+    assertThat(Strings.unescapeJavaString("\\u00e9t\\u00C9")).isEqualTo("\u00e9t\u00c9");
+    assertThat(Strings.unescapeJavaString("caf\\u00e")).isEqualTo("cafu00e");
+    assertThat(Strings.unescapeJavaString("trailing\\")).isEqualTo("trailing\\");
+  }
+
+  @Test public void returnsSameInstanceWithoutEscapes() {
+    String title = "Nothing to see here";
+    assertThat(Strings.unescapeJavaString(title)).isSameAs(title);
+    assertThat(Strings.unescapeJavaString("")).isEmpty();
+    assertThat(Strings.unescapeJavaString(null)).isNull();
+  }
+
+  @Test(expected = NumberFormatException.class) public void invalidUnicodeEscape() {
+    Strings.unescapeJavaString("\\uzzzz");
+  }
+
+  /**
+   * Benchmarks the common case of a string with nothing to unescape, which shouldn't allocate.
+   * The counts are sensitive to the JVM and its warmup, so it's left for running by hand.
+   */
+  @Ignore("Benchmark, run by hand")
+  @Test public void noEscapesDoesNotAllocate() {
+    java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+    assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+    com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+    assumeTrue(threads.isThreadAllocatedMemorySupported());
+    threads.setThreadAllocatedMemoryEnabled(true);
+    String title = "Ask Slashdot: What Should You Do With An Old Laptop?";
+    long threadId = Thread.currentThread()
+        .getId();
+    for (int i = 0; i < 10_000; i++) {
+      Strings.unescapeJavaString(title);
+    }
+    // The measurement itself can allocate a little, so measure nothing first as a baseline.
+    long before = threads.getThreadAllocatedBytes(threadId);
+    long baseline = threads.getThreadAllocatedBytes(threadId) - before;
+    before = threads.getThreadAllocatedBytes(threadId);
+    for (int i = 0; i < 10_000; i++) {
+      Strings.unescapeJavaString(title);
+    }
+    long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+    assertThat(allocated).isAtMost(baseline);
+  }
+}